@@ -0,0 +1,107 @@
+package com.zakuwarrior.crudhttp;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import org.h2.jdbcx.JdbcDataSource;
+import org.testcontainers.containers.PostgreSQLContainer;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * In-memory H2 database in PostgreSQL mode, seeded with the same rows on every run so
+ * benchmarks are repeatable and need no running PostgreSQL.
+ * <p>
+ * With {@code -Dbenchmark.postgres=true} ({@code ./gradlew jmh -Pjmh.postgres}) the rows go to PostgreSQL in a
+ * Testcontainers container instead, behind a Hikari pool configured like the application's, so pgjdbc's
+ * prepareThreshold (from PG_PREPARE_THRESHOLD) and statement cache behave as in production. That needs Docker.
+ */
+public final class BenchmarkDatabase {
+    private static final String[] CATEGORIES = {"Smartphone", "Laptop", "Tablet", "Camera", "Headphones"};
+
+    private BenchmarkDatabase() {
+    }
+
+    public static DataSource create(String name, int rows) throws SQLException {
+        return Boolean.getBoolean("benchmark.postgres") ? postgres(name, rows) : h2(name, rows);
+    }
+
+    private static DataSource h2(String name, int rows) throws SQLException {
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:" + name + ";MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1");
+
+        try (Connection connection = dataSource.getConnection()) {
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("DROP TABLE IF EXISTS products");
+                statement.execute("""
+                        CREATE TABLE products (
+                            id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+                            name VARCHAR(100) NOT NULL,
+                            description VARCHAR(500),
+                            price DECIMAL(10, 2) NOT NULL,
+                            quantity INTEGER NOT NULL,
+                            category VARCHAR(50) NOT NULL,
+                            version BIGINT NOT NULL DEFAULT 0
+                        )""");
+            }
+            seed(connection, rows);
+        }
+        return dataSource;
+    }
+
+    @SuppressWarnings("resource")
+    private static DataSource postgres(String name, int rows) throws SQLException {
+        PostgreSQLContainer<?> container = new PostgreSQLContainer<>("postgres:17.0-alpine")
+                .withDatabaseName(name)
+                .withInitScript("schema.sql");
+        container.start();
+
+        HikariConfig config = new HikariConfig();
+        config.setJdbcUrl(container.getJdbcUrl());
+        config.setUsername(container.getUsername());
+        config.setPassword(container.getPassword());
+        config.setMaximumPoolSize(5);
+        config.addDataSourceProperty("prepareThreshold", System.getenv().getOrDefault("PG_PREPARE_THRESHOLD", "1"));
+        config.addDataSourceProperty("preparedStatementCacheQueries", "256");
+        config.addDataSourceProperty("preparedStatementCacheSizeMiB", "5");
+        HikariDataSource dataSource = new HikariDataSource(config);
+
+        try (Connection connection = dataSource.getConnection()) {
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("TRUNCATE products RESTART IDENTITY");
+                // no listener runs during benchmarks, so seeding skips the change notifications
+                statement.execute("ALTER TABLE products DISABLE TRIGGER USER");
+            }
+            seed(connection, rows);
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("ALTER TABLE products ENABLE TRIGGER USER");
+                statement.execute("VACUUM ANALYZE products");
+            }
+        }
+        return dataSource;
+    }
+
+    private static void seed(Connection connection, int rows) throws SQLException {
+        connection.setAutoCommit(false);
+        String sql = "INSERT INTO products (name, description, price, quantity, category) VALUES (?, ?, ?, ?, ?)";
+        try (PreparedStatement preparedStatement = connection.prepareStatement(sql)) {
+            for (int i = 1; i <= rows; i++) {
+                preparedStatement.setString(1, "Product " + i);
+                preparedStatement.setString(2, "Description of product " + i);
+                preparedStatement.setDouble(3, 10 + (i % 1000) * 0.99);
+                preparedStatement.setInt(4, i % 50);
+                preparedStatement.setString(5, CATEGORIES[i % CATEGORIES.length]);
+                preparedStatement.addBatch();
+                if (i % 1000 == 0) {
+                    preparedStatement.executeBatch();
+                }
+            }
+            preparedStatement.executeBatch();
+        }
+        connection.commit();
+        connection.setAutoCommit(true);
+    }
+}
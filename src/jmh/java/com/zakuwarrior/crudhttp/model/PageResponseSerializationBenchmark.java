@@ -0,0 +1,88 @@
+package com.zakuwarrior.crudhttp.model;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import com.fasterxml.jackson.dataformat.protobuf.ProtobufMapper;
+import com.fasterxml.jackson.dataformat.protobuf.schema.ProtobufSchema;
+import com.fasterxml.jackson.dataformat.smile.databind.SmileMapper;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Encodes and decodes a page in each format the controller can negotiate.
+ * The size of every encoded page is reported as the serialize:payloadBytes secondary result.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class PageResponseSerializationBenchmark {
+    private static final TypeReference<PageResponse<Product>> PAGE_TYPE = new TypeReference<>() {
+    };
+
+    @Param({"5", "20", "100"})
+    private int pageSize;
+
+    @Param({"json", "cbor", "smile", "protobuf"})
+    private String format;
+
+    /** Set rather than added to, so the iteration result is the size of one encoded page. */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Payload {
+        public long payloadBytes;
+    }
+
+    private ObjectWriter writer;
+    private ObjectReader reader;
+    private PageResponse<Product> page;
+    private byte[] encoded;
+
+    @Setup
+    public void setup() throws IOException {
+        ObjectMapper objectMapper = switch (format) {
+            case "cbor" -> new CBORMapper();
+            case "smile" -> new SmileMapper();
+            case "protobuf" -> new ProtobufMapper();
+            default -> new ObjectMapper();
+        };
+        Jackson2ObjectMapperBuilder.json().configure(objectMapper);
+        JavaType pageType = objectMapper.getTypeFactory().constructType(PAGE_TYPE);
+        writer = objectMapper.writerFor(pageType);
+        reader = objectMapper.readerFor(pageType);
+        if (objectMapper instanceof ProtobufMapper protobufMapper) {
+            ProtobufSchema schema = protobufMapper.generateSchemaFor(pageType);
+            writer = writer.with(schema);
+            reader = reader.with(schema);
+        }
+
+        List<Product> products = new ArrayList<>(pageSize);
+        for (int i = 1; i <= pageSize; i++) {
+            products.add(new Product((long) i, "Product " + i, "Description of product " + i,
+                    10 + i * 0.99, i % 50, "Smartphone"));
+        }
+        page = new PageResponse<>(products, 0, 100, 100L * pageSize, pageSize);
+        encoded = writer.writeValueAsBytes(page);
+    }
+
+    @Benchmark
+    public byte[] serialize(Payload payload) throws IOException {
+        byte[] bytes = writer.writeValueAsBytes(page);
+        payload.payloadBytes = bytes.length;
+        return bytes;
+    }
+
+    @Benchmark
+    public PageResponse<Product> deserialize() throws IOException {
+        return reader.readValue(encoded);
+    }
+}
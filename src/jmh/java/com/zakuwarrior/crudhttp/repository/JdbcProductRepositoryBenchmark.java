@@ -0,0 +1,94 @@
+package com.zakuwarrior.crudhttp.repository;
+
+import com.zakuwarrior.crudhttp.BenchmarkDatabase;
+import com.zakuwarrior.crudhttp.config.ProductProperties;
+import com.zakuwarrior.crudhttp.model.Product;
+
+import org.openjdk.jmh.annotations.*;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class JdbcProductRepositoryBenchmark {
+    private static final int ROWS = 100_000;
+
+    @Param({"0", "50000", "99980"})
+    private int offset;
+
+    @Param({"20", "1000"})
+    private int pageSize;
+
+    private JdbcProductRepository repository;
+    private Connection connection;
+    private ResultSet resultSet;
+
+    @Setup
+    public void setup() throws SQLException {
+        DataSource dataSource = BenchmarkDatabase.create("repository", ROWS);
+        repository = new JdbcProductRepository(dataSource, new ProductProperties());
+
+        connection = dataSource.getConnection();
+        Statement statement = connection.createStatement(ResultSet.TYPE_SCROLL_INSENSITIVE, ResultSet.CONCUR_READ_ONLY);
+        resultSet = statement.executeQuery(
+                "SELECT id, name, description, price, quantity, category, version FROM products ORDER BY id LIMIT 1000");
+    }
+
+    @TearDown
+    public void tearDown() throws SQLException {
+        connection.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(1000)
+    public Product mapRowToProduct() throws SQLException {
+        Product product = null;
+        resultSet.beforeFirst();
+        while (resultSet.next()) {
+            product = repository.mapRowToProduct(resultSet);
+        }
+        return product;
+    }
+
+    /** The label lookups the repository used to do per column, kept as the baseline for mapRowToProduct. */
+    @Benchmark
+    @OperationsPerInvocation(1000)
+    public Product mapRowByLabel() throws SQLException {
+        Product product = null;
+        resultSet.beforeFirst();
+        while (resultSet.next()) {
+            product = new Product();
+            product.setId(resultSet.getLong("id"));
+            product.setName(resultSet.getString("name"));
+            product.setDescription(resultSet.getString("description"));
+            product.setPrice(resultSet.getDouble("price"));
+            product.setQuantity(resultSet.getInt("quantity"));
+            product.setCategory(resultSet.getString("category"));
+            product.setVersion(resultSet.getLong("version"));
+        }
+        return product;
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public List<Product> findAll() {
+        return repository.findAll();
+    }
+
+    @Benchmark
+    public List<Product> findByPage() {
+        return repository.findByPage(offset, pageSize);
+    }
+
+    @Benchmark
+    public List<Product> findAfterId() {
+        return repository.findAfterId(offset, pageSize);
+    }
+}
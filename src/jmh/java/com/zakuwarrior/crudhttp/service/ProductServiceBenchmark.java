@@ -0,0 +1,43 @@
+package com.zakuwarrior.crudhttp.service;
+
+import com.zakuwarrior.crudhttp.BenchmarkDatabase;
+import com.zakuwarrior.crudhttp.config.ProductProperties;
+import com.zakuwarrior.crudhttp.model.PageResponse;
+import com.zakuwarrior.crudhttp.model.Product;
+import com.zakuwarrior.crudhttp.repository.JdbcProductRepository;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.validation.Validation;
+import org.openjdk.jmh.annotations.*;
+
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ProductServiceBenchmark {
+    private static final int ROWS = 100_000;
+
+    @Param({"0", "2500", "4999"})
+    private int page;
+
+    @Param({"20"})
+    private int size;
+
+    private ProductService productService;
+
+    @Setup
+    public void setup() throws SQLException {
+        JdbcProductRepository repository = new JdbcProductRepository(
+                BenchmarkDatabase.create("service", ROWS), new ProductProperties());
+        productService = new ProductService(repository, Validation.buildDefaultValidatorFactory().getValidator(),
+                new QuantityWriteBehindBuffer(repository, new ProductProperties()), new CategoryAggregates(repository),
+                new ProductProperties(), new SimpleMeterRegistry());
+    }
+
+    @Benchmark
+    public PageResponse<Product> getProductsByPage() {
+        return productService.getProductsByPage(page, size);
+    }
+}
@@ -1,11 +1,17 @@
 package com.zakuwarrior.crudhttp;
 
+import com.zakuwarrior.crudhttp.config.ProductRuntimeHints;
+
 import lombok.extern.slf4j.Slf4j;
 
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.context.properties.ConfigurationPropertiesScan;
 import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.ImportRuntimeHints;
 import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 import javax.sql.DataSource;
 import java.sql.Connection;
@@ -13,10 +19,14 @@ import java.sql.SQLException;
 
 @Slf4j
 @SpringBootApplication
+@ConfigurationPropertiesScan
+@EnableScheduling
+@ImportRuntimeHints(ProductRuntimeHints.class)
 public class CrudHttpApplication {
-	private final DataSource dataSource;
+	// absent under the reactive profile, which talks to PostgreSQL through R2DBC only
+	private final ObjectProvider<DataSource> dataSource;
 
-	public CrudHttpApplication(DataSource dataSource) {
+	public CrudHttpApplication(ObjectProvider<DataSource> dataSource) {
 		this.dataSource = dataSource;
 	}
 
@@ -24,9 +34,20 @@ public class CrudHttpApplication {
 		SpringApplication.run(CrudHttpApplication.class, args);
 	}
 
+	/**
+	 * Logs where the application is connected without holding up startup: readiness is only reported
+	 * after ready listeners return, and the database itself is checked by the readiness probe.
+	 */
 	@EventListener(ApplicationReadyEvent.class)
 	public void testDatabaseConnection() {
-		try (Connection connection = dataSource.getConnection()) {
+		if (dataSource.getIfAvailable() == null) {
+			return;
+		}
+		Thread.ofVirtual().name("database-check").start(this::logDatabaseConnection);
+	}
+
+	private void logDatabaseConnection() {
+		try (Connection connection = dataSource.getObject().getConnection()) {
 			log.info("Connection to PostgreSQL established!");
 			log.info("URL: {}", connection.getMetaData().getURL());
 			log.info("Username: {}", connection.getMetaData().getUserName());
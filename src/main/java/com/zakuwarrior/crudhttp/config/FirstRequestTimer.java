@@ -0,0 +1,51 @@
+package com.zakuwarrior.crudhttp.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Measures the time from JVM start until the first request has been answered, next to the
+ * {@code application.started.time} and {@code application.ready.time} gauges Spring Boot reports,
+ * since that is what an instance added on a traffic burst actually makes clients wait.
+ */
+@Slf4j
+@Profile("!reactive")
+@Component
+public class FirstRequestTimer extends OncePerRequestFilter {
+    private final AtomicBoolean served = new AtomicBoolean();
+    private volatile double firstRequestMillis = Double.NaN;
+
+    public FirstRequestTimer(MeterRegistry meterRegistry) {
+        TimeGauge.builder("application.first-request.time", this, TimeUnit.MILLISECONDS, timer -> timer.firstRequestMillis)
+                .description("Time from JVM start until the first request was answered")
+                .register(meterRegistry);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            if (!served.get() && served.compareAndSet(false, true)) {
+                long elapsed = System.currentTimeMillis() - ManagementFactory.getRuntimeMXBean().getStartTime();
+                firstRequestMillis = elapsed;
+                log.info("Answered the first request ({} {}) {} ms after JVM start",
+                        request.getMethod(), request.getRequestURI(), elapsed);
+            }
+        }
+    }
+}
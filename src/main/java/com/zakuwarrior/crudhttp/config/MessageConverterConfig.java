@@ -0,0 +1,55 @@
+package com.zakuwarrior.crudhttp.config;
+
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import com.fasterxml.jackson.dataformat.protobuf.ProtobufMapper;
+import com.fasterxml.jackson.dataformat.smile.databind.SmileMapper;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.List;
+
+/**
+ * Lets clients ask for CBOR, Smile or Protobuf through the Accept header. The binary converters
+ * go right after the JSON one, so JSON is still picked when the client accepts anything.
+ */
+@Profile("!reactive")
+@Configuration
+public class MessageConverterConfig implements WebMvcConfigurer {
+    private final Jackson2ObjectMapperBuilder objectMapperBuilder;
+
+    public MessageConverterConfig(Jackson2ObjectMapperBuilder objectMapperBuilder) {
+        this.objectMapperBuilder = objectMapperBuilder;
+    }
+
+    @Override
+    public void extendMessageConverters(List<HttpMessageConverter<?>> converters) {
+        // the defaults registered for these formats ignore the application's Jackson settings
+        converters.removeIf(converter -> converter instanceof MappingJackson2CborHttpMessageConverter
+                || converter instanceof MappingJackson2SmileHttpMessageConverter);
+
+        CBORMapper cborMapper = new CBORMapper();
+        SmileMapper smileMapper = new SmileMapper();
+        ProtobufMapper protobufMapper = new ProtobufMapper();
+        objectMapperBuilder.configure(cborMapper);
+        objectMapperBuilder.configure(smileMapper);
+        objectMapperBuilder.configure(protobufMapper);
+
+        int index = 0;
+        for (int i = 0; i < converters.size(); i++) {
+            if (converters.get(i) instanceof MappingJackson2HttpMessageConverter) {
+                index = i + 1;
+                break;
+            }
+        }
+        converters.addAll(index, List.of(
+                new MappingJackson2CborHttpMessageConverter(cborMapper),
+                new MappingJackson2SmileHttpMessageConverter(smileMapper),
+                new ProtobufJacksonHttpMessageConverter(protobufMapper)));
+    }
+}
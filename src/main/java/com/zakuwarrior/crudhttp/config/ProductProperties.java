@@ -0,0 +1,180 @@
+package com.zakuwarrior.crudhttp.config;
+
+import lombok.Data;
+
+import java.time.Duration;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Data
+@ConfigurationProperties(prefix = "products")
+public class ProductProperties {
+    private Export export = new Export();
+    private Batch batch = new Batch();
+    private Ingest ingest = new Ingest();
+    private Cache cache = new Cache();
+    private Count count = new Count();
+    private Database database = new Database();
+    private WriteBehind writeBehind = new WriteBehind();
+    private SingleFlight singleFlight = new SingleFlight();
+    private PageCache pageCache = new PageCache();
+    private Changes changes = new Changes();
+    private Snapshot snapshot = new Snapshot();
+    private Stats stats = new Stats();
+    private Lookup lookup = new Lookup();
+
+    @Data
+    public static class Database {
+        /** Bound concurrent repository calls and turn away callers beyond the bound with 503. */
+        private boolean limitConcurrency = false;
+        /** Move the bound between min and max concurrency with the observed query latency. */
+        private boolean adaptive = true;
+        /** Lowest bound the adaptive limit may shrink to. */
+        private int minConcurrency = 1;
+        /** Callers allowed into the database at once, normally the connection pool size less max transfers. */
+        private int maxConcurrency = 5;
+        /**
+         * Whole-table transfers (exports, full listings, imports) allowed at once. They hold a connection
+         * for as long as the transfer runs, so they are capped on their own outside the adaptive limit;
+         * size the pool for max concurrency plus these.
+         */
+        private int maxTransfers = 2;
+        /** How long a caller waits for a slot before it is turned away. */
+        private Duration acquireTimeout = Duration.ofSeconds(5);
+        /** Sent as Retry-After to callers that were turned away. */
+        private Duration retryAfter = Duration.ofSeconds(1);
+        private Replica replica = new Replica();
+
+        @Data
+        public static class Replica {
+            /** JDBC url of a read replica; reads are routed to it only when set. */
+            private String url;
+            /** Credentials for the replica, defaulting to the primary ones. */
+            private String username;
+            private String password;
+            /** Replication lag we tolerate; while the measured lag is higher, or unknown, all reads go to the primary. */
+            private Duration maxStaleness = Duration.ofSeconds(5);
+            /** How often the replica lag is measured; writes newer than the last check are read from the primary. */
+            private Duration lagCheckInterval = Duration.ofSeconds(1);
+            /** Recently written ids remembered for read-your-writes. */
+            private long trackedWrites = 100_000;
+        }
+    }
+
+    @Data
+    public static class Export {
+        /** Rows fetched per round trip by the server-side cursor. */
+        private int fetchSize = 1000;
+        /** Rows written to the response between explicit flushes. */
+        private int flushRows = 500;
+        /** Longest an export may run before it is cut off; other async requests keep the default timeout. */
+        private Duration timeout = Duration.ofMinutes(30);
+    }
+
+    @Data
+    public static class Batch {
+        /** Rows sent per executeBatch call. */
+        private int chunkSize = 500;
+    }
+
+    @Data
+    public static class Ingest {
+        /** Characters handed to the COPY stream per write. */
+        private int bufferSize = 65536;
+        /** Rejected rows listed in the import response; the rest are only counted. */
+        private int maxReportedErrors = 100;
+    }
+
+    @Data
+    public static class Cache {
+        private boolean enabled = true;
+        private long maximumSize = 10_000;
+        private Duration timeToLive = Duration.ofMinutes(5);
+    }
+
+    @Data
+    public static class Count {
+        public enum Strategy { EXACT, CACHED, ESTIMATED }
+
+        /** How totalItems is computed: COUNT(*) every time, a maintained counter or the planner estimate. */
+        private Strategy strategy = Strategy.EXACT;
+        /** How often the CACHED counter is reset from an exact count. */
+        private Duration reconcileInterval = Duration.ofMinutes(1);
+    }
+
+    @Data
+    public static class WriteBehind {
+        /** Queue quantity changes in memory and write them in batches instead of one UPDATE per request. */
+        private boolean enabled = false;
+        /** Distinct products with pending changes that trigger an immediate flush. */
+        private int maxPending = 1000;
+        /** Longest time a change waits in memory before it is flushed. */
+        private Duration flushInterval = Duration.ofSeconds(1);
+    }
+
+    @Data
+    public static class SingleFlight {
+        /** Let concurrent identical reads by id and by page share one query. */
+        private boolean enabled = true;
+        /** How long a caller waits for a shared query before failing. */
+        private Duration maxWait = Duration.ofSeconds(5);
+    }
+
+    @Data
+    public static class PageCache {
+        /** Keep encoded bytes of the first pages so they are served without the database or Jackson. */
+        private boolean enabled = true;
+        /** Highest zero-based page number that is cached. */
+        private int maxPage = 4;
+        /** Largest page size that is cached. */
+        private int maxPageSize = 100;
+        private long maximumSize = 256;
+        /** Bounds staleness after writes that bypass ProductService, such as imports and write-behind flushes. */
+        private Duration timeToLive = Duration.ofSeconds(30);
+        /** Also keep a gzip copy for clients sending Accept-Encoding: gzip. */
+        private boolean gzip = true;
+        /** Bodies smaller than this are not worth compressing. */
+        private int gzipMinBytes = 1024;
+    }
+
+    @Data
+    public static class Changes {
+        /** Listen for row change notifications and stream them to subscribers. */
+        private boolean enabled = true;
+        /** Recent changes kept so a reconnecting subscriber can resume from its Last-Event-ID. */
+        private int historySize = 1000;
+        /** Changes queued per subscriber; a subscriber falling further behind is disconnected. */
+        private int subscriberBuffer = 256;
+        /** Comment sent to idle subscribers so dead connections are noticed. */
+        private Duration heartbeatInterval = Duration.ofSeconds(15);
+        /** Lifetime of one event stream before the client has to reconnect. */
+        private Duration emitterTimeout = Duration.ofMinutes(30);
+        /** Pause before the listener connection is reopened after a failure. */
+        private Duration reconnectDelay = Duration.ofSeconds(5);
+    }
+
+    @Data
+    public static class Snapshot {
+        /** Serve reads by id, by page and the count from an in-process copy of the whole catalog. */
+        private boolean enabled = false;
+        /** Reload interval, bounding staleness after writes made by other instances. */
+        private Duration refreshInterval = Duration.ofMinutes(5);
+        /** Rows to allocate for up front, so the first load does not have to grow the columns. */
+        private int expectedSize = 10_000;
+    }
+
+    @Data
+    public static class Stats {
+        /** How often the per-category aggregates are reset from a GROUP BY, once they are in use. */
+        private Duration reconcileInterval = Duration.ofMinutes(1);
+    }
+
+    @Data
+    public static class Lookup {
+        /** Most ids one lookup request may ask for. */
+        private int maxIds = 10_000;
+        /** Ids resolved per ANY(?) query; larger lookups are split into chunks of this size. */
+        private int chunkSize = 1000;
+        /** Chunks of one lookup queried at the same time, each on its own connection. */
+        private int parallelism = 4;
+    }
+}
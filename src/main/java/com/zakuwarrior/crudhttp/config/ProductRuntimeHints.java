@@ -0,0 +1,30 @@
+package com.zakuwarrior.crudhttp.config;
+
+import com.zakuwarrior.crudhttp.model.BatchResponse;
+import com.zakuwarrior.crudhttp.model.ImportResponse;
+import com.zakuwarrior.crudhttp.model.LookupResponse;
+import com.zakuwarrior.crudhttp.model.PageResponse;
+import com.zakuwarrior.crudhttp.model.Product;
+import com.zakuwarrior.crudhttp.model.ProductChange;
+import com.zakuwarrior.crudhttp.model.ProductSearchCriteria;
+import com.zakuwarrior.crudhttp.model.QuantityUpdate;
+import org.springframework.aot.hint.BindingReflectionHintsRegistrar;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.RuntimeHintsRegistrar;
+
+/**
+ * Reflection hints for a native image. Spring only derives them from controller signatures, which miss
+ * the models bound by hand: pages behind {@code ResponseEntity<?>}, Protobuf schemas generated from the
+ * model classes and change notifications parsed by the listener.
+ */
+public class ProductRuntimeHints implements RuntimeHintsRegistrar {
+    private final BindingReflectionHintsRegistrar bindingRegistrar = new BindingReflectionHintsRegistrar();
+
+    @Override
+    public void registerHints(RuntimeHints hints, ClassLoader classLoader) {
+        bindingRegistrar.registerReflectionHints(hints.reflection(),
+                Product.class, PageResponse.class, ProductChange.class, ProductSearchCriteria.class,
+                QuantityUpdate.class, BatchResponse.class, ImportResponse.class, LookupResponse.class);
+        hints.resources().registerPattern("schema.sql");
+    }
+}
@@ -0,0 +1,98 @@
+package com.zakuwarrior.crudhttp.config;
+
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.dataformat.protobuf.ProtobufMapper;
+import com.fasterxml.jackson.dataformat.protobuf.schema.ProtobufSchema;
+import com.zakuwarrior.crudhttp.model.PageResponse;
+import com.zakuwarrior.crudhttp.model.Product;
+import org.springframework.core.ResolvableType;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConversionException;
+import org.springframework.http.converter.json.AbstractJackson2HttpMessageConverter;
+import org.springframework.http.converter.json.MappingJacksonValue;
+import org.springframework.lang.Nullable;
+import org.springframework.util.MimeType;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Reads and writes {@link Product} and {@link PageResponse} as Protobuf, using schemas Jackson
+ * generates from the model classes on first use. Lists have no Protobuf root message, so other
+ * types are left to the JSON, CBOR and Smile converters. A body declared without its message type,
+ * such as a {@code ResponseEntity<?>}, is written with the schema of its runtime type.
+ */
+public class ProtobufJacksonHttpMessageConverter extends AbstractJackson2HttpMessageConverter {
+    public static final MediaType APPLICATION_X_PROTOBUF = new MediaType("application", "x-protobuf");
+    public static final MediaType APPLICATION_PROTOBUF = new MediaType("application", "protobuf");
+    private static final Type PAGE_TYPE = ResolvableType.forClassWithGenerics(PageResponse.class, Product.class).getType();
+
+    private final ProtobufMapper protobufMapper;
+    private final Map<JavaType, ProtobufSchema> schemas = new ConcurrentHashMap<>();
+
+    public ProtobufJacksonHttpMessageConverter(ProtobufMapper protobufMapper) {
+        super(protobufMapper, APPLICATION_X_PROTOBUF, APPLICATION_PROTOBUF);
+        this.protobufMapper = protobufMapper;
+    }
+
+    public ProtobufSchema schemaFor(JavaType javaType) {
+        return schemas.computeIfAbsent(javaType, type -> {
+            try {
+                return protobufMapper.generateSchemaFor(type);
+            } catch (JsonMappingException e) {
+                throw new HttpMessageConversionException("Failed to generate a Protobuf schema for " + type, e);
+            }
+        });
+    }
+
+    @Override
+    public boolean canRead(Type type, @Nullable Class<?> contextClass, @Nullable MediaType mediaType) {
+        return isMessage(getJavaType(type, contextClass).getRawClass()) && super.canRead(type, contextClass, mediaType);
+    }
+
+    @Override
+    public boolean canWrite(Class<?> clazz, @Nullable MediaType mediaType) {
+        return isMessage(clazz) && super.canWrite(clazz, mediaType);
+    }
+
+    @Override
+    protected void writeInternal(Object object, @Nullable Type type, HttpOutputMessage outputMessage) throws IOException {
+        super.writeInternal(object, messageType(object, type), outputMessage);
+    }
+
+    @Override
+    protected ObjectReader customizeReader(ObjectReader reader, JavaType javaType) {
+        return reader.with(schemaFor(javaType));
+    }
+
+    @Override
+    protected ObjectWriter customizeWriter(ObjectWriter writer, @Nullable MimeType mimeType,
+                                           @Nullable JavaType javaType, HttpHeaders headers) {
+        if (javaType == null) {
+            throw new HttpMessageConversionException("Protobuf needs the declared type of the body to pick a schema");
+        }
+        return writer.with(schemaFor(javaType));
+    }
+
+    /** The declared type if it names a message with all its generics, otherwise the message type of the value. */
+    private static Type messageType(Object object, @Nullable Type type) {
+        ResolvableType declared = type == null ? ResolvableType.NONE : ResolvableType.forType(type);
+        if (isMessage(declared.toClass()) && !declared.hasUnresolvableGenerics()) {
+            return type;
+        }
+        Object value = object instanceof MappingJacksonValue container ? container.getValue() : object;
+        // the only pages the application writes are product pages
+        return value instanceof PageResponse<?> ? PAGE_TYPE : value.getClass();
+    }
+
+    private static boolean isMessage(Class<?> clazz) {
+        return Product.class == clazz || PageResponse.class == clazz;
+    }
+}
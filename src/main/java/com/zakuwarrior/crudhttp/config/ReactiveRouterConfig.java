@@ -0,0 +1,63 @@
+package com.zakuwarrior.crudhttp.config;
+
+import com.zakuwarrior.crudhttp.controller.ProductHandler;
+import com.zakuwarrior.crudhttp.exception.DatabaseException;
+import com.zakuwarrior.crudhttp.exception.InvalidRequestException;
+import com.zakuwarrior.crudhttp.exception.VersionConflictException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.reactive.function.server.RouterFunction;
+import org.springframework.web.reactive.function.server.RouterFunctions;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import reactor.core.publisher.Mono;
+
+import static org.springframework.web.reactive.function.server.RequestPredicates.contentType;
+import static org.springframework.web.reactive.function.server.RequestPredicates.headers;
+
+@Slf4j
+@Profile("reactive")
+@Configuration
+public class ReactiveRouterConfig {
+    @Bean
+    public RouterFunction<ServerResponse> productRoutes(ProductHandler productHandler) {
+        return RouterFunctions.route()
+                // an explicit NDJSON Accept header only, so */* keeps getting the JSON array
+                .GET("/api/v1/products", headers(headers -> headers.accept().contains(MediaType.APPLICATION_NDJSON)),
+                        productHandler::streamAllProducts)
+                .GET("/api/v1/products/stream", productHandler::streamAllProducts)
+                .GET("/api/v1/products", productHandler::getAllProducts)
+                .GET("/api/v1/products/page", productHandler::getProductsByPage)
+                .GET("/api/v1/products/search/text", productHandler::searchProductsByText)
+                .GET("/api/v1/products/search", productHandler::searchProducts)
+                .GET("/api/v1/products/{id}", productHandler::getProductById)
+                .POST("/api/v1/products", productHandler::createProduct)
+                .POST("/api/v1/products/batch", productHandler::createProducts)
+                .POST("/api/v1/products/import", contentType(ProductHandler.TEXT_CSV, MediaType.APPLICATION_NDJSON),
+                        productHandler::importProducts)
+                .PUT("/api/v1/products/batch", productHandler::updateProducts)
+                .PUT("/api/v1/products/{id}", productHandler::updateProduct)
+                .PATCH("/api/v1/products/{id}/quantity", productHandler::updateProductQuantity)
+                .DELETE("/api/v1/products/batch", productHandler::deleteProducts)
+                .DELETE("/api/v1/products/{id}", productHandler::deleteProduct)
+                .onError(InvalidRequestException.class, (e, request) -> {
+                    log.warn("Bad request: {}", e.getMessage());
+                    return ServerResponse.badRequest().bodyValue(e.getMessage());
+                })
+                .onError(VersionConflictException.class, (e, request) -> {
+                    log.warn("Precondition failed: {}", e.getMessage());
+                    return ServerResponse.status(HttpStatus.PRECONDITION_FAILED).bodyValue(e.getMessage());
+                })
+                .onError(DatabaseException.class, (e, request) -> {
+                    log.error("Database error occurred", e);
+                    return ServerResponse.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                            .bodyValue("Database error: " + e.getMessage());
+                })
+                // a handler that throws while reading the request fails the Mono, so the mappings above apply
+                .filter((request, next) -> Mono.defer(() -> next.handle(request)))
+                .build();
+    }
+}
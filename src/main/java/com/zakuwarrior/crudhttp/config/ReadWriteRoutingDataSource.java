@@ -0,0 +1,95 @@
+package com.zakuwarrior.crudhttp.config;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.Map;
+
+/**
+ * Hands out primary connections unless the caller asked for a replica one through
+ * {@link #getReplicaConnection(DataSource, long)} and the replica is known to be current enough:
+ * its last measured lag is within {@code max-staleness}, the measurement is recent, and the replica
+ * had replayed the caller's write by the time it was measured.
+ */
+public class ReadWriteRoutingDataSource extends AbstractRoutingDataSource {
+    public enum Route { PRIMARY, REPLICA }
+
+    /** Write time of data this instance never wrote, which any replica within the staleness serves. */
+    public static final long NEVER = Long.MIN_VALUE;
+
+    private static final ThreadLocal<Route> ROUTE = new ThreadLocal<>();
+
+    private final long maxStalenessNanos;
+    private final long maxMeasurementAgeNanos;
+    /** Null until measured and while the replica cannot be measured. */
+    private volatile Lag lag;
+
+    /** The replica had replayed everything committed before {@code measuredAt - nanos}. */
+    private record Lag(long measuredAt, long nanos) {
+    }
+
+    /**
+     * @param maxMeasurementAge how long a lag measurement is trusted before reads fall back to the primary
+     */
+    public ReadWriteRoutingDataSource(DataSource primary, DataSource replica, Duration maxStaleness,
+                                      Duration maxMeasurementAge) {
+        setTargetDataSources(Map.of(Route.PRIMARY, primary, Route.REPLICA, replica));
+        setDefaultTargetDataSource(primary);
+        this.maxStalenessNanos = maxStaleness.toNanos();
+        this.maxMeasurementAgeNanos = maxMeasurementAge.toNanos();
+    }
+
+    /**
+     * Borrows a connection for a read, from the replica if it has replayed what was written at
+     * {@code writtenAt}. Any other data source ignores the request and returns its usual connection.
+     *
+     * @param writtenAt {@link System#nanoTime()} of the latest write the read has to see, or {@link #NEVER}
+     */
+    public static Connection getReplicaConnection(DataSource dataSource, long writtenAt) throws SQLException {
+        if (!(dataSource instanceof ReadWriteRoutingDataSource routing) || !routing.replicaHasReplayed(writtenAt)) {
+            return dataSource.getConnection();
+        }
+        ROUTE.set(Route.REPLICA);
+        try {
+            return dataSource.getConnection();
+        } finally {
+            ROUTE.remove();
+        }
+    }
+
+    /**
+     * @param measuredAt {@link System#nanoTime()} taken before the lag was queried
+     */
+    public void replicaLagMeasured(long measuredAt, Duration replicaLag) {
+        lag = new Lag(measuredAt, replicaLag.toNanos());
+    }
+
+    /** Sends every read to the primary until the lag is measured again. */
+    public void replicaLagUnknown() {
+        lag = null;
+    }
+
+    /** Last measured lag, or null if unknown. */
+    public Duration getReplicaLag() {
+        Lag current = lag;
+        return current == null ? null : Duration.ofNanos(current.nanos());
+    }
+
+    boolean replicaHasReplayed(long writtenAt) {
+        Lag current = lag;
+        if (current == null || current.nanos() > maxStalenessNanos
+                || System.nanoTime() - current.measuredAt() > maxMeasurementAgeNanos) {
+            return false;
+        }
+        return writtenAt == NEVER || current.measuredAt() - writtenAt > current.nanos();
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        Route route = ROUTE.get();
+        return route == null ? Route.PRIMARY : route;
+    }
+}
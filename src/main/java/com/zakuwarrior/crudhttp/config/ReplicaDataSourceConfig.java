@@ -0,0 +1,79 @@
+package com.zakuwarrior.crudhttp.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.annotation.Profile;
+
+import javax.sql.DataSource;
+
+/**
+ * Replaces the auto-configured pool with a primary and a replica pool behind a
+ * {@link ReadWriteRoutingDataSource} once {@code products.database.replica.url} is set,
+ * and measures the replica lag the routing depends on.
+ */
+@Slf4j
+@Profile("!reactive")
+@Configuration
+@ConditionalOnProperty(prefix = "products.database.replica", name = "url")
+public class ReplicaDataSourceConfig {
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties dataSourceProperties) {
+        HikariDataSource dataSource = dataSourceProperties.initializeDataSourceBuilder()
+                .type(HikariDataSource.class)
+                .build();
+        dataSource.setPoolName("primary");
+        return dataSource;
+    }
+
+    @Bean
+    @ConfigurationProperties("products.database.replica.hikari")
+    public HikariDataSource replicaDataSource(DataSourceProperties dataSourceProperties,
+                                              ProductProperties properties) {
+        ProductProperties.Database.Replica replica = properties.getDatabase().getReplica();
+        HikariDataSource dataSource = DataSourceBuilder.create()
+                .type(HikariDataSource.class)
+                .driverClassName(dataSourceProperties.determineDriverClassName())
+                .url(replica.getUrl())
+                .username(replica.getUsername() != null ? replica.getUsername() : dataSourceProperties.determineUsername())
+                .password(replica.getPassword() != null ? replica.getPassword() : dataSourceProperties.determinePassword())
+                .build();
+        dataSource.setPoolName("replica");
+        dataSource.setReadOnly(true);
+        return dataSource;
+    }
+
+    @Bean
+    @Primary
+    public ReadWriteRoutingDataSource dataSource(@Qualifier("primaryDataSource") DataSource primaryDataSource,
+                                                 @Qualifier("replicaDataSource") DataSource replicaDataSource,
+                                                 ProductProperties properties) {
+        ProductProperties.Database.Replica replica = properties.getDatabase().getReplica();
+        log.info("Routing product reads to the replica while its lag, checked every {}, stays within {}",
+                replica.getLagCheckInterval(), replica.getMaxStaleness());
+        // a measurement the monitor failed to renew for two intervals no longer vouches for the replica
+        return new ReadWriteRoutingDataSource(primaryDataSource, replicaDataSource, replica.getMaxStaleness(),
+                replica.getLagCheckInterval().multipliedBy(2));
+    }
+
+    @Bean
+    public ReplicaLagMonitor replicaLagMonitor(@Qualifier("primaryDataSource") DataSource primaryDataSource,
+                                               @Qualifier("replicaDataSource") DataSource replicaDataSource,
+                                               ReadWriteRoutingDataSource dataSource,
+                                               ProductProperties properties,
+                                               MeterRegistry meterRegistry) {
+        ReplicaLagMonitor monitor = new ReplicaLagMonitor(primaryDataSource, replicaDataSource, dataSource,
+                properties.getDatabase().getReplica().getLagCheckInterval());
+        monitor.bindTo(meterRegistry);
+        return monitor;
+    }
+}
@@ -0,0 +1,105 @@
+package com.zakuwarrior.crudhttp.config;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures how far the replica's replay is behind the primary and hands it to the
+ * {@link ReadWriteRoutingDataSource}, which keeps reads on the primary while the lag is unknown
+ * or above {@code max-staleness}. Runs on its own thread, so long scheduled jobs cannot hold
+ * back the measurement the routing relies on.
+ */
+@Slf4j
+public class ReplicaLagMonitor implements MeterBinder {
+    private static final String PRIMARY_LSN_SQL = "SELECT pg_current_wal_lsn()";
+    // a replica that has replayed up to the primary's current position counts as current; otherwise it is
+    // as old as its last replayed commit, so a replica that stopped receiving WAL falls further behind
+    private static final String LAG_SQL = "SELECT CASE WHEN NOT pg_is_in_recovery() "
+            + "OR pg_last_wal_replay_lsn() >= CAST(? AS pg_lsn) THEN 0 "
+            + "ELSE EXTRACT(EPOCH FROM now() - pg_last_xact_replay_timestamp()) END";
+
+    private final DataSource primaryDataSource;
+    private final DataSource replicaDataSource;
+    private final ReadWriteRoutingDataSource routingDataSource;
+    private final Duration interval;
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(
+            Thread.ofPlatform().name("replica-lag-monitor").daemon().factory());
+
+    public ReplicaLagMonitor(DataSource primaryDataSource, DataSource replicaDataSource,
+                             ReadWriteRoutingDataSource routingDataSource, Duration interval) {
+        this.primaryDataSource = primaryDataSource;
+        this.replicaDataSource = replicaDataSource;
+        this.routingDataSource = routingDataSource;
+        this.interval = interval;
+    }
+
+    /** Measured once before serving, so reads do not all start on the primary. */
+    @PostConstruct
+    public void start() {
+        measure();
+        scheduler.scheduleWithFixedDelay(this::measure, interval.toNanos(), interval.toNanos(), TimeUnit.NANOSECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+
+    public void measure() {
+        // taken before either query, so the replica has replayed at least up to measuredAt - lag
+        long measuredAt = System.nanoTime();
+        try {
+            String primaryLsn = primaryLsn();
+            try (Connection connection = replicaDataSource.getConnection();
+                 PreparedStatement statement = connection.prepareStatement(LAG_SQL)) {
+                statement.setString(1, primaryLsn);
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    BigDecimal seconds = resultSet.next() ? resultSet.getBigDecimal(1) : null;
+                    if (seconds == null) {
+                        log.warn("Replica has not replayed any transaction yet, reading from the primary");
+                        routingDataSource.replicaLagUnknown();
+                        return;
+                    }
+                    routingDataSource.replicaLagMeasured(measuredAt, Duration.ofNanos(seconds.movePointRight(9).longValue()));
+                }
+            }
+        } catch (SQLException | RuntimeException e) {
+            log.warn("Failed to measure the replica lag, reading from the primary", e);
+            routingDataSource.replicaLagUnknown();
+        }
+    }
+
+    private String primaryLsn() throws SQLException {
+        try (Connection connection = primaryDataSource.getConnection();
+             Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery(PRIMARY_LSN_SQL)) {
+            resultSet.next();
+            return resultSet.getString(1);
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("products.database.replica.lag", routingDataSource,
+                        routing -> routing.getReplicaLag() == null ? Double.NaN : routing.getReplicaLag().toNanos() / 1e9)
+                .description("Replay lag of the read replica at the last check, NaN while unknown")
+                .baseUnit("seconds")
+                .register(registry);
+    }
+}
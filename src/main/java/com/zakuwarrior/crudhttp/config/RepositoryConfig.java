@@ -0,0 +1,61 @@
+package com.zakuwarrior.crudhttp.config;
+
+import com.zakuwarrior.crudhttp.repository.CachingProductRepository;
+import com.zakuwarrior.crudhttp.repository.CatalogSnapshotProductRepository;
+import com.zakuwarrior.crudhttp.repository.ConcurrencyLimitingProductRepository;
+import com.zakuwarrior.crudhttp.repository.CountingProductRepository;
+import com.zakuwarrior.crudhttp.repository.JdbcProductRepository;
+import com.zakuwarrior.crudhttp.repository.MeteredProductRepository;
+import com.zakuwarrior.crudhttp.repository.ProductCounter;
+import com.zakuwarrior.crudhttp.repository.ProductRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.annotation.Profile;
+
+@Slf4j
+@Profile("!reactive")
+@Configuration
+public class RepositoryConfig {
+    @Bean
+    @Primary
+    public ProductRepository productRepository(JdbcProductRepository jdbcProductRepository,
+                                               ProductCounter productCounter,
+                                               ProductProperties properties,
+                                               MeterRegistry meterRegistry) {
+        ProductRepository repository = new MeteredProductRepository(jdbcProductRepository, meterRegistry);
+        if (properties.getDatabase().isLimitConcurrency()) {
+            ProductProperties.Database database = properties.getDatabase();
+            if (database.isAdaptive()) {
+                log.info("Limiting database concurrency adaptively between {} and {}",
+                        database.getMinConcurrency(), database.getMaxConcurrency());
+            } else {
+                log.info("Limiting database concurrency to {}", database.getMaxConcurrency());
+            }
+            ConcurrencyLimitingProductRepository limitingRepository = new ConcurrencyLimitingProductRepository(repository, database);
+            limitingRepository.bindTo(meterRegistry);
+            repository = limitingRepository;
+        }
+        if (properties.getCount().getStrategy() != ProductProperties.Count.Strategy.EXACT) {
+            log.info("Counting products with the {} strategy", properties.getCount().getStrategy());
+            repository = new CountingProductRepository(repository, productCounter);
+        }
+        if (properties.getCache().isEnabled()) {
+            log.info("Caching products by id, up to {} entries", properties.getCache().getMaximumSize());
+            CachingProductRepository cachingRepository = new CachingProductRepository(repository, properties.getCache());
+            cachingRepository.bindTo(meterRegistry);
+            repository = cachingRepository;
+        }
+        if (properties.getSnapshot().isEnabled()) {
+            log.info("Serving reads from an in-process catalog snapshot, reloaded every {}",
+                    properties.getSnapshot().getRefreshInterval());
+            CatalogSnapshotProductRepository snapshotRepository =
+                    new CatalogSnapshotProductRepository(repository, properties.getSnapshot());
+            snapshotRepository.bindTo(meterRegistry);
+            repository = snapshotRepository;
+        }
+        return repository;
+    }
+}
@@ -1,7 +1,12 @@
 package com.zakuwarrior.crudhttp.controller;
 
 import com.zakuwarrior.crudhttp.exception.DatabaseException;
+import com.zakuwarrior.crudhttp.exception.DatabaseOverloadedException;
+import com.zakuwarrior.crudhttp.exception.InvalidRequestException;
+import com.zakuwarrior.crudhttp.exception.VersionConflictException;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 
@@ -13,6 +18,7 @@ import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
 
 @Slf4j
+@Profile("!reactive")
 @RestControllerAdvice
 public class ExceptionController {
     @ExceptionHandler(DatabaseException.class)
@@ -22,6 +28,28 @@ public class ExceptionController {
         return "Database error: " + e.getMessage();
     }
 
+    @ExceptionHandler(DatabaseOverloadedException.class)
+    public ResponseEntity<String> handleDatabaseOverloadedException(DatabaseOverloadedException e) {
+        log.warn("Shed a request: {}", e.getMessage());
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, Long.toString(Math.max(1, e.getRetryAfter().toSeconds())))
+                .body(e.getMessage());
+    }
+
+    @ExceptionHandler(InvalidRequestException.class)
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    public String handleInvalidRequestException(InvalidRequestException e) {
+        log.warn("Bad request: {}", e.getMessage());
+        return e.getMessage();
+    }
+
+    @ExceptionHandler(VersionConflictException.class)
+    @ResponseStatus(HttpStatus.PRECONDITION_FAILED)
+    public String handleVersionConflictException(VersionConflictException e) {
+        log.warn("Precondition failed: {}", e.getMessage());
+        return e.getMessage();
+    }
+
     @ExceptionHandler(MethodArgumentNotValidException.class)
     @ResponseStatus(HttpStatus.BAD_REQUEST)
     public ResponseEntity<Map<String, String>> handleValidationExceptions(MethodArgumentNotValidException e) {
@@ -0,0 +1,75 @@
+package com.zakuwarrior.crudhttp.controller;
+
+import com.zakuwarrior.crudhttp.config.ProductProperties;
+import com.zakuwarrior.crudhttp.service.ProductChangeFeed;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Pumps a {@link ProductChangeFeed.Subscription} into a Server-Sent Events stream, one virtual thread
+ * per subscriber, so a slow client only ever blocks its own sender and fills its own bounded queue.
+ */
+@Slf4j
+@Profile("!reactive")
+@Component
+public class ProductChangeStream {
+    private final ProductChangeFeed feed;
+    private final ProductProperties.Changes properties;
+    private final ExecutorService senders = Executors.newVirtualThreadPerTaskExecutor();
+
+    public ProductChangeStream(ProductChangeFeed feed, ProductProperties properties) {
+        this.feed = feed;
+        this.properties = properties.getChanges();
+    }
+
+    public SseEmitter open(String lastEventId) {
+        SseEmitter emitter = new SseEmitter(properties.getEmitterTimeout().toMillis());
+        ProductChangeFeed.Subscription subscription = feed.subscribe(lastEventId);
+        emitter.onCompletion(subscription::close);
+        emitter.onTimeout(subscription::close);
+        emitter.onError(e -> subscription.close());
+        senders.execute(() -> send(emitter, subscription));
+        return emitter;
+    }
+
+    private void send(SseEmitter emitter, ProductChangeFeed.Subscription subscription) {
+        try {
+            while (subscription.isOpen()) {
+                ProductChangeFeed.Event event = subscription.next(properties.getHeartbeatInterval());
+                if (event == null) {
+                    emitter.send(SseEmitter.event().comment("heartbeat"));
+                } else {
+                    emitter.send(SseEmitter.event()
+                            .id(event.id())
+                            .name(event.change().getOperation())
+                            .data(event.change(), MediaType.APPLICATION_JSON));
+                }
+            }
+            if (subscription.isOverflowed()) {
+                // the client reconnects with its Last-Event-ID and catches up from the history
+                emitter.complete();
+            }
+        } catch (IOException | IllegalStateException e) {
+            log.debug("Product change subscriber went away", e);
+            subscription.close();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            subscription.close();
+            emitter.complete();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        senders.shutdownNow();
+    }
+}
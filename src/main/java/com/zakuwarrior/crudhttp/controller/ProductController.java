@@ -1,33 +1,82 @@
 package com.zakuwarrior.crudhttp.controller;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.zakuwarrior.crudhttp.config.ProductProperties;
+import com.zakuwarrior.crudhttp.exception.VersionConflictException;
+import com.zakuwarrior.crudhttp.model.BatchResponse;
+import com.zakuwarrior.crudhttp.model.CategoryStatistics;
+import com.zakuwarrior.crudhttp.model.ImportResponse;
+import com.zakuwarrior.crudhttp.model.LookupResponse;
 import com.zakuwarrior.crudhttp.model.PageResponse;
 import com.zakuwarrior.crudhttp.model.Product;
+import com.zakuwarrior.crudhttp.model.ProductSearchCriteria;
+import com.zakuwarrior.crudhttp.model.QuantityUpdate;
+import com.zakuwarrior.crudhttp.service.ProductCopyReader;
+import com.zakuwarrior.crudhttp.service.ProductImportService;
 import com.zakuwarrior.crudhttp.service.ProductService;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.util.List;
 import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.concurrent.Callable;
 
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.enums.ParameterIn;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.tags.Tag;
 
 import jakarta.validation.Valid;
 import lombok.extern.slf4j.Slf4j;
 
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.context.request.async.AsyncWebRequest;
+import org.springframework.web.context.request.async.CallableProcessingInterceptor;
+import org.springframework.web.context.request.async.WebAsyncUtils;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 @Slf4j
 @Tag(name = "Product API", description = "Basic CRUD API for managing products in a database.")
+@Profile("!reactive")
 @RestController
 @RequestMapping("/api/v1/products")
 public class ProductController {
+    private static final MediaType TEXT_CSV = MediaType.parseMediaType("text/csv");
+
     private final ProductService productService;
+    private final ProductImportService productImportService;
+    private final ObjectMapper objectMapper;
+    private final ProductProperties properties;
+    private final SerializedPageCache pageCache;
+    private final ProductChangeStream changeStream;
 
-    public ProductController(ProductService productService) {
+    public ProductController(ProductService productService, ProductImportService productImportService,
+                             ObjectMapper objectMapper, ProductProperties properties,
+                             SerializedPageCache pageCache, ProductChangeStream changeStream) {
         this.productService = productService;
+        this.productImportService = productImportService;
+        this.objectMapper = objectMapper;
+        this.properties = properties;
+        this.pageCache = pageCache;
+        this.changeStream = changeStream;
     }
 
     @Operation(
@@ -48,25 +97,150 @@ public class ProductController {
         return ResponseEntity.ok(productService.getAllProducts());
     }
 
+    @Operation(
+            summary = "Retrieve products by ids",
+            description = "Fetches the products with the given comma-separated ids in one round trip per chunk "
+                    + "of ids instead of one request per product. Products come back in the order of the ids, "
+                    + "and ids without a product are listed separately.",
+            parameters = {
+                    @Parameter(
+                            name = "ids",
+                            description = "Comma-separated product ids; use POST /lookup for long lists",
+                            example = "1,2,3",
+                            required = true)
+            },
+            responses = {
+                    @ApiResponse(
+                            responseCode = "200",
+                            description = "Successfully looked up the products"),
+                    @ApiResponse(
+                            responseCode = "400",
+                            description = "Invalid ids or more ids than allowed in one lookup provided"),
+                    @ApiResponse(
+                            responseCode = "500",
+                            description = "Internal server error occurred while processing the request")
+            }
+    )
+    @GetMapping(params = "ids")
+    public ResponseEntity<LookupResponse> getProductsByIds(@RequestParam List<Long> ids) {
+        log.info("Served a request to get {} products by id", ids.size());
+        return ResponseEntity.ok(productService.getProductsByIds(ids));
+    }
+
+    @Operation(
+            summary = "Stream all products",
+            description = "Streams every product as newline-delimited JSON, one product per line, "
+                    + "reading rows through a database cursor so memory use does not grow with the table.",
+            responses = {
+                    @ApiResponse(
+                            responseCode = "200",
+                            description = "Successfully started streaming the products"),
+                    @ApiResponse(
+                            responseCode = "500",
+                            description = "Internal server error occurred while processing the request")
+            }
+    )
+    @GetMapping(value = {"", "/stream"}, produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamAllProducts(WebRequest request) {
+        log.info("Served a request to stream all products");
+        extendAsyncTimeout(request, properties.getExport().getTimeout());
+        StreamingResponseBody body = this::writeProductsAsNdjson;
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
+    }
+
+    @Operation(
+            summary = "Retrieve product statistics",
+            description = "Returns the number of products, total stock and minimum, average and maximum price "
+                    + "per group. The aggregates are kept up to date on every write and periodically reconciled "
+                    + "with the database, so a request does not read the products themselves.",
+            parameters = {
+                    @Parameter(
+                            name = "groupBy",
+                            description = "Property to group by; only category is supported",
+                            example = "category",
+                            required = false)
+            },
+            responses = {
+                    @ApiResponse(
+                            responseCode = "200",
+                            description = "Successfully retrieved the statistics"),
+                    @ApiResponse(
+                            responseCode = "400",
+                            description = "Unsupported groupBy parameter provided"),
+                    @ApiResponse(
+                            responseCode = "500",
+                            description = "Internal server error occurred while processing the request")
+            }
+    )
+    @GetMapping("/stats")
+    public ResponseEntity<List<CategoryStatistics>> getProductStatistics(
+            @RequestParam(defaultValue = "category") String groupBy) {
+        log.info("Served a request to get product statistics grouped by {}", groupBy);
+        return ResponseEntity.ok(productService.getStatistics(groupBy));
+    }
+
+    @Operation(
+            summary = "Stream product changes",
+            description = "Opens a Server-Sent Events stream with one event per inserted, updated or deleted product, "
+                    + "named after the operation and carrying the id and version. A client reconnecting with "
+                    + "Last-Event-ID receives the changes it missed while they are still retained; otherwise, and "
+                    + "whenever changes may have been lost, it receives a RESET event and should reload. A client "
+                    + "that falls too far behind is disconnected and expected to reconnect.",
+            parameters = {
+                    @Parameter(
+                            name = "Last-Event-ID",
+                            in = ParameterIn.HEADER,
+                            description = "Id of the last event received, sent by EventSource on reconnect",
+                            required = false)
+            },
+            responses = {
+                    @ApiResponse(
+                            responseCode = "200",
+                            description = "Successfully opened the change stream")
+            }
+    )
+    @GetMapping(value = "/changes", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamProductChanges(
+            @RequestHeader(value = "Last-Event-ID", required = false) String lastEventId) {
+        log.info("Served a request to stream product changes from event: {}", lastEventId);
+        return changeStream.open(lastEventId);
+    }
+
     @Operation(
             summary = "Retrieve paginated products",
-            description = "Fetches a paginated list of products with customizable page size.",
+            description = "Fetches a paginated list of products with customizable page size. "
+                    + "When the 'after' cursor is given, the page is read by keyset instead of by offset "
+                    + "and currentPage is reported as -1, as are totalPages and totalItems unless withTotal is set. The ETag covers the ids and versions on the page, "
+                    + "so a matching If-None-Match is answered with 304 and no body. The first pages are "
+                    + "served from already encoded, optionally gzipped bytes until the next write.",
             parameters = {
                     @Parameter(
                             name = "page",
                             description = "Zero-based page index (0..n)",
                             example = "0",
                             required = false),
+                    @Parameter(
+                            name = "after",
+                            description = "Opaque cursor taken from nextCursor of the previous page",
+                            required = false),
                     @Parameter(
                             name = "size",
                             description = "Number of items per page",
                             example = "5",
+                            required = false),
+                    @Parameter(
+                            name = "withTotal",
+                            description = "Count the products for a cursor page too, at the cost of a count query",
+                            example = "false",
                             required = false)
             },
             responses = {
                     @ApiResponse(
                             responseCode = "200",
                             description = "Successfully retrieved the paginated list of products"),
+                    @ApiResponse(
+                            responseCode = "304",
+                            description = "Page unchanged since the ETag in If-None-Match"),
                     @ApiResponse(
                             responseCode = "400",
                             description = "Invalid pagination parameters provided"),
@@ -76,27 +250,171 @@ public class ProductController {
             }
     )
     @GetMapping("/page")
-    public ResponseEntity<PageResponse<Product>> getProductsByPage(
+    public ResponseEntity<?> getProductsByPage(
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(required = false) String after,
+            @RequestParam(defaultValue = "5") int size,
+            @RequestParam(defaultValue = "false") boolean withTotal,
+            NativeWebRequest request) {
+        if (after == null && pageCache.covers(page, size)) {
+            MediaType format = pageCache.negotiate(request);
+            if (format != null) {
+                log.info("Served a request to get products page {} with size {} as {}", page, size, format);
+                return cachedPage(page, size, format, request);
+            }
+        }
+
+        PageResponse<Product> response;
+        if (after != null) {
+            log.info("Served a request to get products after cursor {} with size {}", after, size);
+            response = productService.getProductsAfter(after, size, withTotal);
+        } else {
+            log.info("Served a request to get products page {} with size {}", page, size);
+            response = productService.getProductsByPage(page, size);
+        }
+        // Spring answers a matching If-None-Match with 304 before the body is serialised; the format
+        // is only negotiated after that, so the tag is weak
+        return ResponseEntity.ok().eTag(SerializedPageCache.weakPageETag(response)).body(response);
+    }
+
+    @Operation(
+            summary = "Search products",
+            description = "Fetches a page of products filtered by category, price range and name prefix. "
+                    + "Filtering and sorting happen in the database.",
+            parameters = {
+                    @Parameter(
+                            name = "category",
+                            description = "Exact product category",
+                            example = "Laptop",
+                            required = false),
+                    @Parameter(
+                            name = "minPrice",
+                            description = "Lowest price, inclusive",
+                            example = "100",
+                            required = false),
+                    @Parameter(
+                            name = "maxPrice",
+                            description = "Highest price, inclusive",
+                            example = "500",
+                            required = false),
+                    @Parameter(
+                            name = "nameStartsWith",
+                            description = "Case-sensitive prefix of the product name",
+                            example = "iPhone",
+                            required = false),
+                    @Parameter(
+                            name = "sort",
+                            description = "Sort column (id, name, price, quantity, category) and optional direction",
+                            example = "price,desc",
+                            required = false),
+                    @Parameter(
+                            name = "page",
+                            description = "Zero-based page index (0..n)",
+                            example = "0",
+                            required = false),
+                    @Parameter(
+                            name = "size",
+                            description = "Number of items per page",
+                            example = "5",
+                            required = false)
+            },
+            responses = {
+                    @ApiResponse(
+                            responseCode = "200",
+                            description = "Successfully retrieved the matching products"),
+                    @ApiResponse(
+                            responseCode = "400",
+                            description = "Invalid sort parameter provided"),
+                    @ApiResponse(
+                            responseCode = "500",
+                            description = "Internal server error occurred while processing the request")
+            }
+    )
+    @GetMapping("/search")
+    public ResponseEntity<List<Product>> searchProducts(
+            @RequestParam(required = false) String category,
+            @RequestParam(required = false) Double minPrice,
+            @RequestParam(required = false) Double maxPrice,
+            @RequestParam(required = false) String nameStartsWith,
+            @RequestParam(required = false) String sort,
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "5") int size) {
-        log.info("Served a request to get products page {} with size {}", page, size);
-        return ResponseEntity.ok(productService.getProductsByPage(page, size));
+        ProductSearchCriteria criteria = new ProductSearchCriteria();
+        criteria.setCategory(category);
+        criteria.setMinPrice(minPrice);
+        criteria.setMaxPrice(maxPrice);
+        criteria.setNameStartsWith(nameStartsWith);
+        log.info("Served a request to search products by {} sorted by {}", criteria, sort);
+        return ResponseEntity.ok(productService.searchProducts(criteria, sort, page, size));
+    }
+
+    @Operation(
+            summary = "Search products by text",
+            description = "Finds products whose name or description contains words starting with every word "
+                    + "of the text, through a full-text index. Matches in the name rank above matches in the "
+                    + "description; equally ranked products are ordered by id.",
+            parameters = {
+                    @Parameter(
+                            name = "q",
+                            description = "Words of at least 3 characters to search for; each one also matches longer words it starts",
+                            example = "apple mac",
+                            required = true),
+                    @Parameter(
+                            name = "page",
+                            description = "Zero-based page index (0..n)",
+                            example = "0",
+                            required = false),
+                    @Parameter(
+                            name = "size",
+                            description = "Number of items per page",
+                            example = "5",
+                            required = false)
+            },
+            responses = {
+                    @ApiResponse(
+                            responseCode = "200",
+                            description = "Successfully retrieved the matching products"),
+                    @ApiResponse(
+                            responseCode = "400",
+                            description = "Blank search text or a word shorter than 3 characters provided"),
+                    @ApiResponse(
+                            responseCode = "500",
+                            description = "Internal server error occurred while processing the request")
+            }
+    )
+    @GetMapping("/search/text")
+    public ResponseEntity<List<Product>> searchProductsByText(
+            @RequestParam String q,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "5") int size) {
+        log.info("Served a request to search products by text: {}", q);
+        return ResponseEntity.ok(productService.searchProductsByText(q, page, size));
     }
 
     @Operation(
             summary = "Retrieve product by ID",
-            description = "Fetches a single product by its unique ID.",
+            description = "Fetches a single product by its unique ID. The ETag is the product version; "
+                    + "a matching If-None-Match is answered with 304 after looking up only the version.",
             parameters = {
                     @Parameter(
                             name = "id",
                             description = "Unique identifier of the product",
                             example = "1",
-                            required = true)
+                            required = true),
+                    @Parameter(
+                            name = HttpHeaders.IF_NONE_MATCH,
+                            in = ParameterIn.HEADER,
+                            description = "ETag of the copy the client already has",
+                            example = "\"0\"",
+                            required = false)
             },
             responses = {
                     @ApiResponse(
                             responseCode = "200",
                             description = "Product found and returned successfully"),
+                    @ApiResponse(
+                            responseCode = "304",
+                            description = "Product unchanged since the ETag in If-None-Match"),
                     @ApiResponse(
                             responseCode = "404",
                             description = "Product with the specified ID was not found"),
@@ -106,10 +424,18 @@ public class ProductController {
             }
     )
     @GetMapping("/{id}")
-    public ResponseEntity<Product> getProductById(@PathVariable Long id) {
+    public ResponseEntity<Product> getProductById(@PathVariable Long id, WebRequest request) {
         log.info("Served a request to get a product with id: {}", id);
+        if (request.getHeader(HttpHeaders.IF_NONE_MATCH) != null) {
+            OptionalLong version = productService.getProductVersion(id);
+            if (version.isPresent() && request.checkNotModified(eTag(version.getAsLong()))) {
+                return null;
+            }
+        }
         Optional<Product> optionalProduct = productService.getByProductId(id);
-        return optionalProduct.map(ResponseEntity::ok).orElseGet(() -> ResponseEntity.notFound().build());
+        return optionalProduct
+                .map(product -> ResponseEntity.ok().eTag(eTag(product.getVersion())).body(product))
+                .orElseGet(() -> ResponseEntity.notFound().build());
     }
 
     @Operation(
@@ -141,13 +467,20 @@ public class ProductController {
 
     @Operation(
             summary = "Update an existing product",
-            description = "Updates the details of an existing product identified by its ID.",
+            description = "Updates the details of an existing product identified by its ID. "
+                    + "With If-Match the update only happens if the product is still at that version.",
             parameters = {
                     @Parameter(
                             name = "id",
                             description = "Unique identifier of the product to be updated",
                             example = "1",
                             required = true),
+                    @Parameter(
+                            name = HttpHeaders.IF_MATCH,
+                            in = ParameterIn.HEADER,
+                            description = "ETag the product must still have",
+                            example = "\"0\"",
+                            required = false),
                     @Parameter(
                             name = "product",
                             description = "Updated product object",
@@ -163,6 +496,9 @@ public class ProductController {
                     @ApiResponse(
                             responseCode = "404",
                             description = "Product with the specified ID was not found"),
+                    @ApiResponse(
+                            responseCode = "412",
+                            description = "Product changed or was deleted since the ETag in If-Match"),
                     @ApiResponse(
                             responseCode = "500",
                             description = "Internal server error occurred while processing the request")
@@ -171,20 +507,73 @@ public class ProductController {
     @PutMapping("/{id}")
     public ResponseEntity<Product> updateProduct(
             @PathVariable Long id,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
             @Valid @RequestBody final Product product) {
      log.info("Served a request to update a product with id {}: {}", id, product);
-     return ResponseEntity.ok(productService.updateProduct(id, product));
+     Product updatedProduct = productService.updateProduct(id, product, expectedVersion(ifMatch));
+     return ResponseEntity.ok().eTag(eTag(updatedProduct.getVersion())).body(updatedProduct);
+    }
+
+    @Operation(
+            summary = "Change a product quantity",
+            description = "Adds a delta to the quantity of a product or replaces it. With write-behind enabled "
+                    + "the change is queued and written later, together with the product's other queued changes: "
+                    + "a replacement supersedes them and deltas are summed. A queued delta that would make the "
+                    + "quantity negative is rejected when it is written and counted in products.quantity.write-behind.rejected.",
+            parameters = {
+                    @Parameter(
+                            name = "id",
+                            description = "Unique identifier of the product to be updated",
+                            example = "1",
+                            required = true)
+            },
+            responses = {
+                    @ApiResponse(
+                            responseCode = "202",
+                            description = "Quantity change queued for writing"),
+                    @ApiResponse(
+                            responseCode = "204",
+                            description = "Quantity changed"),
+                    @ApiResponse(
+                            responseCode = "400",
+                            description = "Invalid quantity change provided"),
+                    @ApiResponse(
+                            responseCode = "404",
+                            description = "Product not found or the change would make its quantity negative"),
+                    @ApiResponse(
+                            responseCode = "500",
+                            description = "Internal server error occurred while processing the request")
+            }
+    )
+    @PatchMapping("/{id}/quantity")
+    public ResponseEntity<Void> updateProductQuantity(
+            @PathVariable Long id,
+            @Valid @RequestBody final QuantityUpdate update) {
+        log.info("Served a request to update the quantity of a product with id {}: {}", id, update);
+        if (!productService.updateQuantity(id, update)) {
+            return ResponseEntity.notFound().build();
+        }
+        return productService.isWritingBehind()
+                ? ResponseEntity.accepted().build()
+                : ResponseEntity.noContent().build();
     }
 
     @Operation(
             summary = "Delete a product",
-            description = "Removes a product from the database by its ID.",
+            description = "Removes a product from the database by its ID. "
+                    + "With If-Match the product is only deleted if it is still at that version.",
             parameters = {
                     @Parameter(
                             name = "id",
                             description = "Unique identifier of the product to be deleted",
                             example = "1",
-                            required = true)
+                            required = true),
+                    @Parameter(
+                            name = HttpHeaders.IF_MATCH,
+                            in = ParameterIn.HEADER,
+                            description = "ETag the product must still have",
+                            example = "\"0\"",
+                            required = false)
             },
             responses = {
                     @ApiResponse(
@@ -193,15 +582,226 @@ public class ProductController {
                     @ApiResponse(
                             responseCode = "404",
                             description = "Product with the specified ID was not found"),
+                    @ApiResponse(
+                            responseCode = "412",
+                            description = "Product changed or was deleted since the ETag in If-Match"),
                     @ApiResponse(
                             responseCode = "500",
                             description = "Internal server error occurred while processing the request")
             }
     )
     @DeleteMapping("/{id}")
-    public ResponseEntity<Void> deleteProduct(@PathVariable Long id) {
+    public ResponseEntity<Void> deleteProduct(
+            @PathVariable Long id,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
         log.info("Served a request to delete a product with id : {}", id);
-        productService.deleteProduct(id);
+        productService.deleteProduct(id, expectedVersion(ifMatch));
         return ResponseEntity.noContent().build();
     }
+
+    @Operation(
+            summary = "Create products in bulk",
+            description = "Validates each product and inserts the valid ones in batched statements within "
+                    + "a single transaction. Generated ids are returned in request order.",
+            responses = {
+                    @ApiResponse(
+                            responseCode = "201",
+                            description = "Batch processed, see errors for items that were rejected"),
+                    @ApiResponse(
+                            responseCode = "500",
+                            description = "Internal server error occurred while processing the request")
+            }
+    )
+    @PostMapping("/batch")
+    public ResponseEntity<BatchResponse> createProducts(@RequestBody List<Product> products) {
+        log.info("Served a request to create a batch of {} products", products.size());
+        return new ResponseEntity<>(productService.createProducts(products), HttpStatus.CREATED);
+    }
+
+    @Operation(
+            summary = "Update products in bulk",
+            description = "Validates each product and updates the valid ones in batched statements within "
+                    + "a single transaction. Every product must carry its id.",
+            responses = {
+                    @ApiResponse(
+                            responseCode = "200",
+                            description = "Batch processed, see errors for items that were rejected or not found"),
+                    @ApiResponse(
+                            responseCode = "500",
+                            description = "Internal server error occurred while processing the request")
+            }
+    )
+    @PutMapping("/batch")
+    public ResponseEntity<BatchResponse> updateProducts(@RequestBody List<Product> products) {
+        log.info("Served a request to update a batch of {} products", products.size());
+        return ResponseEntity.ok(productService.updateProducts(products));
+    }
+
+    @Operation(
+            summary = "Delete products in bulk",
+            description = "Deletes the products with the given ids in batched statements within a single transaction.",
+            responses = {
+                    @ApiResponse(
+                            responseCode = "200",
+                            description = "Batch processed, see errors for ids that were not found"),
+                    @ApiResponse(
+                            responseCode = "500",
+                            description = "Internal server error occurred while processing the request")
+            }
+    )
+    @DeleteMapping("/batch")
+    public ResponseEntity<BatchResponse> deleteProducts(@RequestBody List<Long> ids) {
+        log.info("Served a request to delete a batch of {} products", ids.size());
+        return ResponseEntity.ok(productService.deleteProducts(ids));
+    }
+
+    @Operation(
+            summary = "Retrieve products by ids in bulk",
+            description = "Same as GET with ids, for lists of ids too long for a query string. Products come back "
+                    + "in the order of the ids, and ids without a product are listed separately.",
+            responses = {
+                    @ApiResponse(
+                            responseCode = "200",
+                            description = "Successfully looked up the products"),
+                    @ApiResponse(
+                            responseCode = "400",
+                            description = "Null ids or more ids than allowed in one lookup provided"),
+                    @ApiResponse(
+                            responseCode = "500",
+                            description = "Internal server error occurred while processing the request")
+            }
+    )
+    @PostMapping("/lookup")
+    public ResponseEntity<LookupResponse> lookupProducts(@RequestBody List<Long> ids) {
+        log.info("Served a request to look up {} products by id", ids.size());
+        return ResponseEntity.ok(productService.getProductsByIds(ids));
+    }
+
+    @Operation(
+            summary = "Import products in bulk",
+            description = "Streams a CSV (with a header row) or NDJSON body into the database using PostgreSQL COPY. "
+                    + "Rows failing validation are skipped and reported; the valid rows are copied in one transaction.",
+            responses = {
+                    @ApiResponse(
+                            responseCode = "201",
+                            description = "Import finished, see errors for rows that were rejected"),
+                    @ApiResponse(
+                            responseCode = "400",
+                            description = "Malformed CSV header provided"),
+                    @ApiResponse(
+                            responseCode = "500",
+                            description = "Internal server error occurred while processing the request")
+            }
+    )
+    @PostMapping(value = "/import", consumes = {"text/csv", MediaType.APPLICATION_NDJSON_VALUE})
+    public ResponseEntity<ImportResponse> importProducts(
+            @RequestHeader(HttpHeaders.CONTENT_TYPE) String contentType,
+            InputStream body) {
+        MediaType mediaType = MediaType.parseMediaType(contentType);
+        ProductCopyReader.Format format = TEXT_CSV.isCompatibleWith(mediaType)
+                ? ProductCopyReader.Format.CSV
+                : ProductCopyReader.Format.NDJSON;
+        Charset charset = mediaType.getCharset() != null ? mediaType.getCharset() : StandardCharsets.UTF_8;
+        log.info("Served a request to import products as {}", format);
+        return new ResponseEntity<>(productImportService.importProducts(body, charset, format), HttpStatus.CREATED);
+    }
+
+    private ResponseEntity<byte[]> cachedPage(int page, int size, MediaType format, NativeWebRequest request) {
+        // taken before the page is read, so a write during the read cannot leave it cached as current
+        long generation = productService.getWriteGeneration();
+        SerializedPageCache.Entry entry = pageCache.get(page, size, format, generation,
+                () -> productService.getProductsByPage(page, size));
+
+        boolean gzip = entry.gzipBody() != null && acceptsGzip(request.getHeader(HttpHeaders.ACCEPT_ENCODING));
+        // the compressed bytes are a different representation, so they need their own strong tag
+        String eTag = gzip ? entry.eTag().replaceFirst("\"$", "-gzip\"") : entry.eTag();
+        if (request.checkNotModified(eTag)) {
+            return null;
+        }
+        ResponseEntity.BodyBuilder builder = ResponseEntity.ok()
+                .contentType(entry.contentType())
+                .eTag(eTag)
+                .varyBy(HttpHeaders.ACCEPT, HttpHeaders.ACCEPT_ENCODING);
+        if (gzip) {
+            builder.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        return builder.body(gzip ? entry.gzipBody() : entry.body());
+    }
+
+    private static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parts = coding.trim().split(";");
+            if (parts[0].trim().equalsIgnoreCase("gzip")) {
+                return parts.length == 1 || !parts[1].trim().replace(" ", "").matches("q=0(\\.0*)?");
+            }
+        }
+        return false;
+    }
+
+    static String eTag(long version) {
+        return "\"" + version + "\"";
+    }
+
+    /** Reads the version out of a single strong ETag; null means no precondition or "*". */
+    static Long expectedVersion(String ifMatch) {
+        if (ifMatch == null || ifMatch.trim().equals("*")) {
+            return null;
+        }
+        String tag = ifMatch.trim();
+        try {
+            if (tag.length() > 2 && tag.startsWith("\"") && tag.endsWith("\"")) {
+                return Long.parseLong(tag.substring(1, tag.length() - 1));
+            }
+        } catch (NumberFormatException e) {
+            // not one of our tags, so it cannot match
+        }
+        throw new VersionConflictException("If-Match does not name a product version: " + ifMatch);
+    }
+
+    /**
+     * Gives this request's async processing its own timeout, since a whole-table export outlives
+     * the default one that other async requests keep.
+     */
+    private static void extendAsyncTimeout(WebRequest request, Duration timeout) {
+        WebAsyncUtils.getAsyncManager(request).registerCallableInterceptor(ProductController.class.getName() + ".timeout",
+                new CallableProcessingInterceptor() {
+                    @Override
+                    public <T> void beforeConcurrentHandling(NativeWebRequest asyncRequest, Callable<T> task) {
+                        if (asyncRequest instanceof AsyncWebRequest asyncWebRequest) {
+                            asyncWebRequest.setTimeout(timeout.toMillis());
+                        }
+                    }
+                });
+    }
+
+    private void writeProductsAsNdjson(OutputStream outputStream) throws IOException {
+        ObjectWriter writer = objectMapper.writerFor(Product.class)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE)
+                .withRootValueSeparator("\n");
+        int flushRows = properties.getExport().getFlushRows();
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream)) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            long[] written = {0};
+            try {
+                productService.streamAllProducts(product -> {
+                    try {
+                        writer.writeValue(generator, product);
+                        if (++written[0] % flushRows == 0) {
+                            generator.flush();
+                        }
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            if (written[0] > 0) {
+                generator.writeRaw('\n');
+            }
+        }
+    }
 }
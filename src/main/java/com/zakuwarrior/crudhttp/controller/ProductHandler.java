@@ -0,0 +1,245 @@
+package com.zakuwarrior.crudhttp.controller;
+
+import com.zakuwarrior.crudhttp.exception.InvalidRequestException;
+import com.zakuwarrior.crudhttp.model.PageResponse;
+import com.zakuwarrior.crudhttp.model.Product;
+import com.zakuwarrior.crudhttp.model.ProductSearchCriteria;
+import com.zakuwarrior.crudhttp.model.QuantityUpdate;
+import com.zakuwarrior.crudhttp.service.ProductCopyReader;
+import com.zakuwarrior.crudhttp.service.ReactiveProductService;
+
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+import jakarta.validation.Validator;
+import lombok.extern.slf4j.Slf4j;
+
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.BodyExtractors;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import reactor.core.publisher.Mono;
+
+/**
+ * WebFlux handlers serving the same /api/v1/products contract as {@link ProductController}
+ * when the application runs with the reactive profile, including product ETags and If-Match.
+ */
+@Slf4j
+@Profile("reactive")
+@Component
+public class ProductHandler {
+    private static final ParameterizedTypeReference<PageResponse<Product>> PAGE_TYPE = new ParameterizedTypeReference<>() {
+    };
+    private static final ParameterizedTypeReference<List<Product>> PRODUCTS_TYPE = new ParameterizedTypeReference<>() {
+    };
+    private static final ParameterizedTypeReference<List<Long>> IDS_TYPE = new ParameterizedTypeReference<>() {
+    };
+    public static final MediaType TEXT_CSV = MediaType.parseMediaType("text/csv");
+
+    private final ReactiveProductService productService;
+    private final Validator validator;
+
+    public ProductHandler(ReactiveProductService productService, Validator validator) {
+        this.productService = productService;
+        this.validator = validator;
+    }
+
+    public Mono<ServerResponse> getAllProducts(ServerRequest request) {
+        log.info("Served a request to get all products");
+        return ServerResponse.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(productService.getAllProducts(), Product.class);
+    }
+
+    public Mono<ServerResponse> streamAllProducts(ServerRequest request) {
+        log.info("Served a request to stream all products");
+        return ServerResponse.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(productService.getAllProducts(), Product.class);
+    }
+
+    public Mono<ServerResponse> getProductsByPage(ServerRequest request) {
+        int page = intParam(request, "page", 0);
+        int size = intParam(request, "size", 5);
+        String after = request.queryParam("after").orElse(null);
+        if (after != null) {
+            boolean withTotal = request.queryParam("withTotal").map(Boolean::parseBoolean).orElse(false);
+            log.info("Served a request to get products after cursor {} with size {}", after, size);
+            return ServerResponse.ok().body(productService.getProductsAfter(after, size, withTotal), PAGE_TYPE);
+        }
+        log.info("Served a request to get products page {} with size {}", page, size);
+        return ServerResponse.ok().body(productService.getProductsByPage(page, size), PAGE_TYPE);
+    }
+
+    public Mono<ServerResponse> searchProducts(ServerRequest request) {
+        ProductSearchCriteria criteria = new ProductSearchCriteria();
+        criteria.setCategory(request.queryParam("category").orElse(null));
+        criteria.setMinPrice(doubleParam(request, "minPrice"));
+        criteria.setMaxPrice(doubleParam(request, "maxPrice"));
+        criteria.setNameStartsWith(request.queryParam("nameStartsWith").orElse(null));
+        String sort = request.queryParam("sort").orElse(null);
+        int page = intParam(request, "page", 0);
+        int size = intParam(request, "size", 5);
+        log.info("Served a request to search products by {} sorted by {}", criteria, sort);
+        return productService.searchProducts(criteria, sort, page, size)
+                .collectList()
+                .flatMap(products -> ServerResponse.ok().bodyValue(products));
+    }
+
+    public Mono<ServerResponse> searchProductsByText(ServerRequest request) {
+        String text = request.queryParam("q").orElse(null);
+        int page = intParam(request, "page", 0);
+        int size = intParam(request, "size", 5);
+        log.info("Served a request to search products by text: {}", text);
+        return productService.searchProductsByText(text, page, size)
+                .collectList()
+                .flatMap(products -> ServerResponse.ok().bodyValue(products));
+    }
+
+    public Mono<ServerResponse> getProductById(ServerRequest request) {
+        Long id = pathId(request);
+        log.info("Served a request to get a product with id: {}", id);
+        return productService.getByProductId(id)
+                .flatMap(product -> {
+                    String eTag = ProductController.eTag(product.getVersion());
+                    return request.checkNotModified(eTag)
+                            .switchIfEmpty(Mono.defer(() -> ServerResponse.ok().eTag(eTag).bodyValue(product)));
+                })
+                .switchIfEmpty(ServerResponse.notFound().build());
+    }
+
+    public Mono<ServerResponse> createProduct(ServerRequest request) {
+        return request.bodyToMono(Product.class)
+                .flatMap(validated((Product product) -> {
+                    log.info("Served a request to create a product: {}", product);
+                    return productService.createProduct(product)
+                            .flatMap(created -> ServerResponse.status(HttpStatus.CREATED).bodyValue(created));
+                }));
+    }
+
+    public Mono<ServerResponse> updateProduct(ServerRequest request) {
+        Long id = pathId(request);
+        Long expectedVersion = ProductController.expectedVersion(request.headers().firstHeader(HttpHeaders.IF_MATCH));
+        return request.bodyToMono(Product.class)
+                .flatMap(validated((Product product) -> {
+                    log.info("Served a request to update a product with id {}: {}", id, product);
+                    return productService.updateProduct(id, product, expectedVersion)
+                            .flatMap(updated -> ServerResponse.ok()
+                                    .eTag(ProductController.eTag(updated.getVersion()))
+                                    .bodyValue(updated));
+                }));
+    }
+
+    public Mono<ServerResponse> updateProductQuantity(ServerRequest request) {
+        Long id = pathId(request);
+        return request.bodyToMono(QuantityUpdate.class)
+                .flatMap(validated((QuantityUpdate update) -> {
+                    log.info("Served a request to update the quantity of a product with id {}: {}", id, update);
+                    return productService.updateQuantity(id, update)
+                            .flatMap(updated -> updated
+                                    ? ServerResponse.noContent().build()
+                                    : ServerResponse.notFound().build());
+                }));
+    }
+
+    public Mono<ServerResponse> deleteProduct(ServerRequest request) {
+        Long id = pathId(request);
+        Long expectedVersion = ProductController.expectedVersion(request.headers().firstHeader(HttpHeaders.IF_MATCH));
+        log.info("Served a request to delete a product with id : {}", id);
+        return productService.deleteProduct(id, expectedVersion)
+                .then(ServerResponse.noContent().build());
+    }
+
+    public Mono<ServerResponse> createProducts(ServerRequest request) {
+        return request.bodyToMono(PRODUCTS_TYPE)
+                .flatMap(products -> {
+                    log.info("Served a request to create a batch of {} products", products.size());
+                    return productService.createProducts(products);
+                })
+                .flatMap(response -> ServerResponse.status(HttpStatus.CREATED).bodyValue(response));
+    }
+
+    public Mono<ServerResponse> updateProducts(ServerRequest request) {
+        return request.bodyToMono(PRODUCTS_TYPE)
+                .flatMap(products -> {
+                    log.info("Served a request to update a batch of {} products", products.size());
+                    return productService.updateProducts(products);
+                })
+                .flatMap(response -> ServerResponse.ok().bodyValue(response));
+    }
+
+    public Mono<ServerResponse> deleteProducts(ServerRequest request) {
+        return request.bodyToMono(IDS_TYPE)
+                .flatMap(ids -> {
+                    log.info("Served a request to delete a batch of {} products", ids.size());
+                    return productService.deleteProducts(ids);
+                })
+                .flatMap(response -> ServerResponse.ok().bodyValue(response));
+    }
+
+    public Mono<ServerResponse> importProducts(ServerRequest request) {
+        MediaType mediaType = request.headers().contentType().orElse(MediaType.APPLICATION_NDJSON);
+        ProductCopyReader.Format format = TEXT_CSV.isCompatibleWith(mediaType)
+                ? ProductCopyReader.Format.CSV
+                : ProductCopyReader.Format.NDJSON;
+        Charset charset = mediaType.getCharset() != null ? mediaType.getCharset() : StandardCharsets.UTF_8;
+        log.info("Served a request to import products as {}", format);
+        return productService.importProducts(request.body(BodyExtractors.toDataBuffers()), charset, format)
+                .flatMap(response -> ServerResponse.status(HttpStatus.CREATED).bodyValue(response));
+    }
+
+    private static int intParam(ServerRequest request, String name, int defaultValue) {
+        String value = request.queryParam(name).orElse(null);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            throw new InvalidRequestException("Parameter " + name + " must be a whole number: " + value);
+        }
+    }
+
+    private static Double doubleParam(ServerRequest request, String name) {
+        String value = request.queryParam(name).orElse(null);
+        if (value == null) {
+            return null;
+        }
+        try {
+            return Double.valueOf(value.trim());
+        } catch (NumberFormatException e) {
+            throw new InvalidRequestException("Parameter " + name + " must be a number: " + value);
+        }
+    }
+
+    private static Long pathId(ServerRequest request) {
+        String value = request.pathVariable("id");
+        try {
+            return Long.valueOf(value);
+        } catch (NumberFormatException e) {
+            throw new InvalidRequestException("Product id must be a whole number: " + value);
+        }
+    }
+
+    private <T> Function<T, Mono<ServerResponse>> validated(Function<T, Mono<ServerResponse>> handler) {
+        return body -> {
+            Map<String, String> errors = new HashMap<>();
+            validator.validate(body).forEach(violation ->
+                    errors.put(violation.getPropertyPath().toString(), violation.getMessage()));
+            if (!errors.isEmpty()) {
+                log.warn("Validation errors: {}", errors);
+                return ServerResponse.badRequest().bodyValue(errors);
+            }
+            return handler.apply(body);
+        };
+    }
+}
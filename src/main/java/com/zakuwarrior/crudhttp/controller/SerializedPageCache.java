@@ -0,0 +1,176 @@
+package com.zakuwarrior.crudhttp.controller;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.zakuwarrior.crudhttp.config.ProductProperties;
+import com.zakuwarrior.crudhttp.config.ProtobufJacksonHttpMessageConverter;
+import com.zakuwarrior.crudhttp.model.PageResponse;
+import com.zakuwarrior.crudhttp.model.Product;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.ResolvableType;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.GenericHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.stereotype.Component;
+import org.springframework.util.DigestUtils;
+import org.springframework.web.accept.ContentNegotiationManager;
+import org.springframework.web.HttpMediaTypeNotAcceptableException;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerAdapter;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Type;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.function.Supplier;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Keeps the encoded bytes of the first pages, per page, size and format, with a gzip copy
+ * when it pays off. Entries are keyed by the {@code ProductService} write generation, so a
+ * write makes every older entry unreachable and it simply ages out.
+ */
+@Slf4j
+@Profile("!reactive")
+@Component
+public class SerializedPageCache {
+    private static final Type PAGE_TYPE = ResolvableType.forClassWithGenerics(PageResponse.class, Product.class).getType();
+    private static final List<MediaType> FORMATS = List.of(
+            MediaType.APPLICATION_JSON,
+            MediaType.APPLICATION_CBOR,
+            new MediaType("application", "x-jackson-smile"),
+            ProtobufJacksonHttpMessageConverter.APPLICATION_X_PROTOBUF);
+
+    public record Entry(byte[] body, byte[] gzipBody, MediaType contentType, String eTag) {
+    }
+
+    private record Key(int page, int size, MediaType format, long generation) {
+    }
+
+    private final ProductProperties.PageCache properties;
+    private final ObjectProvider<RequestMappingHandlerAdapter> handlerAdapter;
+    private final ContentNegotiationManager contentNegotiationManager;
+    private final Cache<Key, Entry> cache;
+
+    public SerializedPageCache(ProductProperties properties,
+                               ObjectProvider<RequestMappingHandlerAdapter> handlerAdapter,
+                               ContentNegotiationManager contentNegotiationManager) {
+        this.properties = properties.getPageCache();
+        this.handlerAdapter = handlerAdapter;
+        this.contentNegotiationManager = contentNegotiationManager;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(this.properties.getMaximumSize())
+                .expireAfterWrite(this.properties.getTimeToLive())
+                .build();
+    }
+
+    public boolean covers(int page, int size) {
+        return properties.isEnabled() && page >= 0 && page <= properties.getMaxPage()
+                && size > 0 && size <= properties.getMaxPageSize();
+    }
+
+    /**
+     * Picks the cached format the request accepts best, or null to leave negotiation to Spring.
+     */
+    public MediaType negotiate(NativeWebRequest request) {
+        try {
+            // already ordered by quality and specificity
+            for (MediaType acceptedType : contentNegotiationManager.resolveMediaTypes(request)) {
+                for (MediaType format : FORMATS) {
+                    if (acceptedType.isCompatibleWith(format)) {
+                        return format;
+                    }
+                }
+            }
+        } catch (HttpMediaTypeNotAcceptableException e) {
+            log.debug("Unresolvable Accept header, skipping the page cache", e);
+        }
+        return null;
+    }
+
+    public Entry get(int page, int size, MediaType format, long generation, Supplier<PageResponse<Product>> loader) {
+        return cache.get(new Key(page, size, format, generation), key -> encode(loader.get(), format));
+    }
+
+    /**
+     * Hashes what identifies the page contents together with its encoding, so the tag changes whenever
+     * any product on it does and JSON, CBOR, Smile and Protobuf bytes never share a strong tag.
+     */
+    static String pageETag(PageResponse<Product> page, MediaType contentType) {
+        return "\"" + digest(page, contentType.toString().getBytes(StandardCharsets.UTF_8)) + "\"";
+    }
+
+    /**
+     * A weak tag for pages whose format Spring negotiates after the tag is set; it matches every
+     * encoding of the same page, which is all a weak comparison promises.
+     */
+    public static String weakPageETag(PageResponse<Product> page) {
+        return "W/\"" + digest(page, new byte[0]) + "\"";
+    }
+
+    private static String digest(PageResponse<Product> page, byte[] format) {
+        ByteBuffer buffer = ByteBuffer.allocate(Long.BYTES * (3 + 2 * page.getContent().size()) + format.length);
+        buffer.putLong(page.getCurrentPage()).putLong(page.getPageSize()).putLong(page.getTotalItems());
+        for (Product product : page.getContent()) {
+            buffer.putLong(product.getId()).putLong(product.getVersion());
+        }
+        buffer.put(format);
+        return DigestUtils.md5DigestAsHex(buffer.array());
+    }
+
+    @SuppressWarnings("unchecked")
+    private Entry encode(PageResponse<Product> page, MediaType format) {
+        for (HttpMessageConverter<?> converter : handlerAdapter.getObject().getMessageConverters()) {
+            if (converter instanceof GenericHttpMessageConverter<?> genericConverter
+                    && genericConverter.canWrite(PAGE_TYPE, PageResponse.class, format)) {
+                BufferedOutputMessage outputMessage = new BufferedOutputMessage();
+                try {
+                    ((GenericHttpMessageConverter<Object>) genericConverter).write(page, PAGE_TYPE, format, outputMessage);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                byte[] body = outputMessage.body.toByteArray();
+                MediaType contentType = outputMessage.headers.getContentType() != null
+                        ? outputMessage.headers.getContentType()
+                        : format;
+                return new Entry(body, gzip(body), contentType, pageETag(page, contentType));
+            }
+        }
+        throw new IllegalStateException("No message converter writes pages as " + format);
+    }
+
+    private byte[] gzip(byte[] body) {
+        if (!properties.isGzip() || body.length < properties.getGzipMinBytes()) {
+            return null;
+        }
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(body.length / 2);
+        try (GZIPOutputStream gzipStream = new GZIPOutputStream(compressed)) {
+            gzipStream.write(body);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return compressed.toByteArray();
+    }
+
+    private static final class BufferedOutputMessage implements HttpOutputMessage {
+        private final HttpHeaders headers = new HttpHeaders();
+        private final ByteArrayOutputStream body = new ByteArrayOutputStream();
+
+        @Override
+        public HttpHeaders getHeaders() {
+            return headers;
+        }
+
+        @Override
+        public ByteArrayOutputStream getBody() {
+            return body;
+        }
+    }
+}
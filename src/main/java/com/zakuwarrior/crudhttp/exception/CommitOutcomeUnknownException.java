@@ -0,0 +1,11 @@
+package com.zakuwarrior.crudhttp.exception;
+
+/**
+ * Thrown when the commit of a write failed, so the server may or may not have applied it.
+ * Retrying is only safe for writes that leave the same result when applied twice.
+ */
+public class CommitOutcomeUnknownException extends DatabaseException {
+    public CommitOutcomeUnknownException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,19 @@
+package com.zakuwarrior.crudhttp.exception;
+
+import java.time.Duration;
+
+/**
+ * Thrown instead of queueing for the database when it is already taking all the load it can.
+ */
+public class DatabaseOverloadedException extends DatabaseException {
+    private final Duration retryAfter;
+
+    public DatabaseOverloadedException(String message, Duration retryAfter) {
+        super(message);
+        this.retryAfter = retryAfter;
+    }
+
+    public Duration getRetryAfter() {
+        return retryAfter;
+    }
+}
@@ -0,0 +1,14 @@
+package com.zakuwarrior.crudhttp.exception;
+
+/**
+ * Thrown when request input such as a cursor, sort or lookup cannot be acted on; answered with 400.
+ */
+public class InvalidRequestException extends RuntimeException {
+    public InvalidRequestException(String message) {
+        super(message);
+    }
+
+    public InvalidRequestException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
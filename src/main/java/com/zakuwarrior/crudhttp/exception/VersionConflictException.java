@@ -0,0 +1,7 @@
+package com.zakuwarrior.crudhttp.exception;
+
+public class VersionConflictException extends RuntimeException {
+    public VersionConflictException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,28 @@
+package com.zakuwarrior.crudhttp.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+import java.util.Map;
+
+@Schema(description = "Outcome of a batch operation")
+@Data
+@AllArgsConstructor
+public class BatchResponse {
+    @Schema(description = "Product ids in request order, null where the item failed")
+    private List<Long> ids;
+
+    @Schema(description = "Field errors keyed by the zero-based index of the failed item")
+    private Map<Integer, Map<String, String>> errors;
+
+    @Schema(description = "Row versions in request order, null where the item failed; usable in If-Match")
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private List<Long> versions;
+
+    public BatchResponse(List<Long> ids, Map<Integer, Map<String, String>> errors) {
+        this(ids, errors, null);
+    }
+}
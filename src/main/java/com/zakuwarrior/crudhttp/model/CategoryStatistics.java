@@ -0,0 +1,30 @@
+package com.zakuwarrior.crudhttp.model;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Schema(description = "Aggregates of the products in one category")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CategoryStatistics {
+    @Schema(description = "Product category", example = "Smartphone")
+    private String category;
+
+    @Schema(description = "Number of products in the category", example = "2")
+    private long count;
+
+    @Schema(description = "Sum of the quantities in stock", example = "20")
+    private long totalQuantity;
+
+    @Schema(description = "Lowest price", example = "150.99")
+    private double minPrice;
+
+    @Schema(description = "Average price", example = "300.5")
+    private double avgPrice;
+
+    @Schema(description = "Highest price", example = "450.0")
+    private double maxPrice;
+}
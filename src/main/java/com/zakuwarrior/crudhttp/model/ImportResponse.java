@@ -0,0 +1,21 @@
+package com.zakuwarrior.crudhttp.model;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.Map;
+
+@Schema(description = "Outcome of a bulk import")
+@Data
+@AllArgsConstructor
+public class ImportResponse {
+    @Schema(description = "Number of rows copied into the database", example = "1000")
+    private long imported;
+
+    @Schema(description = "Number of rows skipped because they failed validation", example = "2")
+    private long rejected;
+
+    @Schema(description = "Field errors of the first rejected rows keyed by their line number")
+    private Map<Long, Map<String, String>> errors;
+}
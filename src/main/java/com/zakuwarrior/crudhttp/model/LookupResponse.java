@@ -0,0 +1,18 @@
+package com.zakuwarrior.crudhttp.model;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+
+@Schema(description = "Products found for a list of ids")
+@Data
+@AllArgsConstructor
+public class LookupResponse {
+    @Schema(description = "Products in the order their ids were requested, each once")
+    private List<Product> products;
+
+    @Schema(description = "Requested ids without a product, in request order")
+    private List<Long> missingIds;
+}
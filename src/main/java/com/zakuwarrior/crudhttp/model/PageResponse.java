@@ -1,11 +1,16 @@
 package com.zakuwarrior.crudhttp.model;
 
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
 import lombok.AllArgsConstructor;
 import lombok.Data;
+import lombok.NoArgsConstructor;
 
 import java.util.List;
 
+// the order also numbers the Protobuf fields, so new properties go at the end
+@JsonPropertyOrder({"content", "currentPage", "totalPages", "totalItems", "pageSize", "nextCursor"})
 @Data
+@NoArgsConstructor
 @AllArgsConstructor
 public class PageResponse<T> {
     private List<T> content;
@@ -13,4 +18,9 @@ public class PageResponse<T> {
     private int totalPages;
     private long totalItems;
     private int pageSize;
+    private String nextCursor;
+
+    public PageResponse(List<T> content, int currentPage, int totalPages, long totalItems, int pageSize) {
+        this(content, currentPage, totalPages, totalItems, pageSize, null);
+    }
 }
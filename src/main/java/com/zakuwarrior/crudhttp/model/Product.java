@@ -1,5 +1,6 @@
 package com.zakuwarrior.crudhttp.model;
 
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
 import io.swagger.v3.oas.annotations.media.Schema;
 import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotBlank;
@@ -10,6 +11,8 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 
 @Schema(description = "Product Model")
+// the order also numbers the Protobuf fields, so new properties go at the end
+@JsonPropertyOrder({"id", "name", "description", "price", "quantity", "category", "version"})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -37,4 +40,12 @@ public class Product {
     @Schema(description = "Product category", example = "Smartphone")
     @NotBlank(message = "Category cannot be blank")
     private String category;
+
+    @Schema(description = "Row version, bumped by every update and sent as the ETag",
+            example = "0", accessMode = Schema.AccessMode.READ_ONLY)
+    private long version;
+
+    public Product(Long id, String name, String description, double price, int quantity, String category) {
+        this(id, name, description, price, quantity, category, 0);
+    }
 }
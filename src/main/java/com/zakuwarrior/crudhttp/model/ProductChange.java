@@ -0,0 +1,27 @@
+package com.zakuwarrior.crudhttp.model;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Schema(description = "A row change of the products table as published by the database trigger")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductChange {
+    /**
+     * Sent instead of row changes when changes may have been missed, or a statement changed too many
+     * rows to list them, and clients should reload.
+     */
+    public static final String RESET = "RESET";
+
+    @Schema(description = "INSERT, UPDATE, DELETE or RESET", example = "UPDATE")
+    private String operation;
+
+    @Schema(description = "Id of the changed product, absent for RESET", example = "1")
+    private Long id;
+
+    @Schema(description = "Version of the product after the change, or before it for DELETE", example = "3")
+    private long version;
+}
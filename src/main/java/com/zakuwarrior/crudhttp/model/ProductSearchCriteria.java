@@ -0,0 +1,17 @@
+package com.zakuwarrior.crudhttp.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductSearchCriteria {
+    private String category;
+    private Double minPrice;
+    private Double maxPrice;
+    private String nameStartsWith;
+    private String sortBy = "id";
+    private boolean descending;
+}
@@ -0,0 +1,15 @@
+package com.zakuwarrior.crudhttp.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * A change of a product's quantity: either set it to {@code amount} or add {@code amount} to it.
+ */
+@Data
+@AllArgsConstructor
+public class QuantityChange {
+    private long id;
+    private boolean absolute;
+    private int amount;
+}
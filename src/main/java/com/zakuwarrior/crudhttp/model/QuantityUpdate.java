@@ -0,0 +1,32 @@
+package com.zakuwarrior.crudhttp.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.constraints.AssertTrue;
+import jakarta.validation.constraints.Min;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Schema(description = "Change of a product quantity, either relative or absolute")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class QuantityUpdate {
+    @Schema(description = "Amount to add to the current quantity, may be negative", example = "-2")
+    private Integer delta;
+
+    @Schema(description = "New quantity replacing the current one", example = "10")
+    @Min(value = 0, message = "Quantity cannot be negative")
+    private Integer quantity;
+
+    @JsonIgnore
+    @AssertTrue(message = "Exactly one of delta and quantity must be given")
+    public boolean isSingleChange() {
+        return (delta == null) != (quantity == null);
+    }
+
+    public QuantityChange toChange(long id) {
+        return quantity != null ? new QuantityChange(id, true, quantity) : new QuantityChange(id, false, delta);
+    }
+}
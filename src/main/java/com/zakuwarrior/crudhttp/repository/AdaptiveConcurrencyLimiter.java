@@ -0,0 +1,147 @@
+package com.zakuwarrior.crudhttp.repository;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Admission control for the database with a limit that follows the observed query latency,
+ * in the spirit of the gradient algorithm of Netflix' concurrency-limits.
+ *
+ * <p>A short and a long moving average of the latency are kept. While the short one stays within
+ * {@value #TOLERANCE} times the long one the database is keeping up, and the limit grows by about
+ * its square root per sample; once queries get slower the limit shrinks in proportion, down to half
+ * per sample. Timeouts getting a connection shrink it right away. The limit only grows while it is
+ * actually used, so a quiet period does not leave it far above what the database can take.
+ *
+ * <p>Callers over the limit wait for a slot, but at most as many as the limit and no longer than the
+ * given timeout; everyone else is turned away at once, so an overload is answered early instead of
+ * queueing up to the connection timeout.
+ */
+public class AdaptiveConcurrencyLimiter {
+    private static final double LONG_SMOOTHING = 2.0 / (600 + 1);
+    private static final double SHORT_SMOOTHING = 2.0 / (10 + 1);
+    private static final double TOLERANCE = 1.5;
+    private static final double MIN_GRADIENT = 0.5;
+    private static final double LIMIT_SMOOTHING = 0.2;
+    private static final double BACKOFF_RATIO = 0.9;
+
+    private final boolean adaptive;
+    private final int minLimit;
+    private final int maxLimit;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition released = lock.newCondition();
+    private double limit;
+    private int inFlight;
+    private int waiting;
+    private double longLatency;
+    private double shortLatency;
+
+    public AdaptiveConcurrencyLimiter(boolean adaptive, int minLimit, int maxLimit) {
+        if (minLimit < 1 || maxLimit < minLimit) {
+            throw new IllegalArgumentException("Expected 1 <= min-concurrency <= max-concurrency");
+        }
+        this.adaptive = adaptive;
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.limit = maxLimit;
+    }
+
+    /**
+     * @return false if the caller should be turned away
+     */
+    public boolean acquire(long timeout, TimeUnit unit) throws InterruptedException {
+        lock.lock();
+        try {
+            if (inFlight < currentLimit()) {
+                inFlight++;
+                return true;
+            }
+            if (waiting >= currentLimit()) {
+                return false;
+            }
+            waiting++;
+            try {
+                long remaining = unit.toNanos(timeout);
+                while (inFlight >= currentLimit()) {
+                    if (remaining <= 0) {
+                        return false;
+                    }
+                    remaining = released.awaitNanos(remaining);
+                }
+                inFlight++;
+                return true;
+            } finally {
+                waiting--;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @param latencyNanos how long the call took, or a negative value to leave it out of the latency,
+     *                     as for calls whose duration depends on how much they transfer
+     * @param dropped      whether the call failed because the database could not keep up
+     */
+    public void release(long latencyNanos, boolean dropped) {
+        lock.lock();
+        try {
+            int used = inFlight;
+            inFlight--;
+            if (adaptive) {
+                if (dropped) {
+                    limit = Math.max(minLimit, limit * BACKOFF_RATIO);
+                } else if (latencyNanos >= 0) {
+                    adjust(latencyNanos, used);
+                }
+            }
+            released.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getLimit() {
+        lock.lock();
+        try {
+            return currentLimit();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getInFlight() {
+        lock.lock();
+        try {
+            return inFlight;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void adjust(long latencyNanos, int used) {
+        if (longLatency == 0) {
+            longLatency = latencyNanos;
+            shortLatency = latencyNanos;
+            return;
+        }
+        shortLatency += (latencyNanos - shortLatency) * SHORT_SMOOTHING;
+        longLatency += (latencyNanos - longLatency) * LONG_SMOOTHING;
+        if (longLatency > shortLatency * 2) {
+            // latency dropped for good, e.g. after a slow spell; let the baseline catch up quickly
+            longLatency *= 0.95;
+        }
+
+        if (used < limit / 2) {
+            return;
+        }
+        double gradient = Math.max(MIN_GRADIENT, Math.min(1.0, TOLERANCE * longLatency / shortLatency));
+        double target = limit * gradient + Math.sqrt(limit);
+        limit = Math.max(minLimit, Math.min(maxLimit, limit * (1 - LIMIT_SMOOTHING) + target * LIMIT_SMOOTHING));
+    }
+
+    private int currentLimit() {
+        return (int) limit;
+    }
+}
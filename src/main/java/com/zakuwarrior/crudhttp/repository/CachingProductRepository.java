@@ -0,0 +1,180 @@
+package com.zakuwarrior.crudhttp.repository;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.zakuwarrior.crudhttp.config.ProductProperties;
+import com.zakuwarrior.crudhttp.model.Product;
+import com.zakuwarrior.crudhttp.model.QuantityChange;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.OptionalLong;
+
+/**
+ * Read-through cache for {@link #findById(long)} in front of another repository; cached
+ * products also answer {@link #findVersionById(long)} and the cached part of {@link #findAllById(long[])}.
+ * Entries are bounded in number, expire after a fixed time and are invalidated by every write
+ * that goes through this repository. Missing products are not cached.
+ */
+@Slf4j
+public class CachingProductRepository extends ForwardingProductRepository implements MeterBinder {
+    private final Cache<Long, Product> cache;
+
+    public CachingProductRepository(ProductRepository delegate, ProductProperties.Cache properties) {
+        super(delegate);
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(properties.getMaximumSize())
+                .expireAfterWrite(properties.getTimeToLive())
+                .recordStats()
+                .build();
+    }
+
+    public CacheStats stats() {
+        return cache.stats();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, cache, "products");
+    }
+
+    @Override
+    public Optional<Product> findById(long id) {
+        // loading under the cache's lock means a concurrent invalidate waits for it instead of being overwritten
+        Product product = cache.get(id, key -> delegate.findById(key).orElse(null));
+        return Optional.ofNullable(product).map(CachingProductRepository::copyOf);
+    }
+
+    /**
+     * Only the ids that are not cached go to the delegate. Those are not cached here, since putting
+     * them outside the cache's loading lock could undo an invalidation made meanwhile.
+     */
+    @Override
+    public List<Product> findAllById(long[] ids) {
+        List<Product> products = new ArrayList<>(ids.length);
+        long[] missing = new long[ids.length];
+        int missingCount = 0;
+        for (long id : ids) {
+            Product product = cache.getIfPresent(id);
+            if (product != null) {
+                products.add(copyOf(product));
+            } else {
+                missing[missingCount++] = id;
+            }
+        }
+        if (missingCount > 0) {
+            products.addAll(delegate.findAllById(Arrays.copyOf(missing, missingCount)));
+        }
+        return products;
+    }
+
+    @Override
+    public OptionalLong findVersionById(long id) {
+        Product product = cache.getIfPresent(id);
+        return product != null ? OptionalLong.of(product.getVersion()) : delegate.findVersionById(id);
+    }
+
+    @Override
+    public Product save(Product product) {
+        try {
+            return delegate.save(product);
+        } finally {
+            if (product.getId() != null) {
+                cache.invalidate(product.getId());
+            }
+        }
+    }
+
+    @Override
+    public void deleteById(long id) {
+        try {
+            delegate.deleteById(id);
+        } finally {
+            cache.invalidate(id);
+        }
+    }
+
+    @Override
+    public boolean updateIfVersion(Product product, long expectedVersion) {
+        try {
+            return delegate.updateIfVersion(product, expectedVersion);
+        } finally {
+            cache.invalidate(product.getId());
+        }
+    }
+
+    @Override
+    public boolean deleteByIdIfVersion(long id, long expectedVersion) {
+        try {
+            return delegate.deleteByIdIfVersion(id, expectedVersion);
+        } finally {
+            cache.invalidate(id);
+        }
+    }
+
+    @Override
+    public Optional<Product> updateReturningPrevious(Product product, Long expectedVersion) {
+        try {
+            return delegate.updateReturningPrevious(product, expectedVersion);
+        } finally {
+            cache.invalidate(product.getId());
+        }
+    }
+
+    @Override
+    public Optional<Product> deleteReturningPrevious(long id, Long expectedVersion) {
+        try {
+            return delegate.deleteReturningPrevious(id, expectedVersion);
+        } finally {
+            cache.invalidate(id);
+        }
+    }
+
+    @Override
+    public Optional<Product> updateQuantityReturningPrevious(QuantityChange change) {
+        try {
+            return delegate.updateQuantityReturningPrevious(change);
+        } finally {
+            cache.invalidate(change.getId());
+        }
+    }
+
+    @Override
+    public int[] updateAll(List<Product> products) {
+        try {
+            return delegate.updateAll(products);
+        } finally {
+            products.forEach(product -> cache.invalidate(product.getId()));
+        }
+    }
+
+    @Override
+    public int[] deleteAllById(List<Long> ids) {
+        try {
+            return delegate.deleteAllById(ids);
+        } finally {
+            cache.invalidateAll(ids);
+        }
+    }
+
+    @Override
+    public int[] updateQuantities(List<QuantityChange> changes) {
+        try {
+            return delegate.updateQuantities(changes);
+        } finally {
+            changes.forEach(change -> cache.invalidate(change.getId()));
+        }
+    }
+
+    private static Product copyOf(Product product) {
+        return new Product(product.getId(), product.getName(), product.getDescription(),
+                product.getPrice(), product.getQuantity(), product.getCategory(), product.getVersion());
+    }
+}
@@ -0,0 +1,392 @@
+package com.zakuwarrior.crudhttp.repository;
+
+import com.zakuwarrior.crudhttp.config.ProductProperties;
+import com.zakuwarrior.crudhttp.model.Product;
+import com.zakuwarrior.crudhttp.model.QuantityChange;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * In-process copy of the whole catalog in {@link ProductColumns}, answering reads by id or ids, by page,
+ * after a cursor and the count without a database round trip.
+ *
+ * <p>The copy is loaded in the background after startup, and reads go to the wrapped repository
+ * until it is ready. Writes through this repository are applied to it as soon as the database has
+ * accepted them; writes made elsewhere, by other instances or by hand, show up with the next
+ * periodic reload. Writes that happen while a reload is running are re-read once it is swapped in.
+ * Reloads stream the whole table, so they run on their own thread rather than the shared scheduler.
+ */
+@Slf4j
+public class CatalogSnapshotProductRepository extends ForwardingProductRepository implements MeterBinder {
+    private static final int STREAM_CHUNK_SIZE = 1000;
+
+    private final ProductProperties.Snapshot properties;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final ReentrantLock reloadLock = new ReentrantLock();
+    private ProductColumns columns;
+    private Set<Long> writtenDuringReload;
+    private final ScheduledExecutorService reloader = Executors.newSingleThreadScheduledExecutor(
+            Thread.ofPlatform().name("catalog-snapshot").daemon().factory());
+
+    public CatalogSnapshotProductRepository(ProductRepository delegate, ProductProperties.Snapshot properties) {
+        super(delegate);
+        this.properties = properties;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("products.snapshot.size", this, repository -> repository.read(ProductColumns::size, () -> 0))
+                .description("Products held by the in-process catalog snapshot")
+                .register(registry);
+        Gauge.builder("products.snapshot.off-heap", this, repository -> repository.read(ProductColumns::offHeapBytes, () -> 0L))
+                .description("Direct memory holding product names and descriptions")
+                .baseUnit("bytes")
+                .register(registry);
+    }
+
+    @PostConstruct
+    public void start() {
+        long interval = properties.getRefreshInterval().toNanos();
+        reloader.scheduleWithFixedDelay(this::reload, 0, interval, TimeUnit.NANOSECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        reloader.shutdownNow();
+    }
+
+    public void reload() {
+        reloadLock.lock();
+        try {
+            long started = System.nanoTime();
+            lock.writeLock().lock();
+            try {
+                writtenDuringReload = new HashSet<>();
+            } finally {
+                lock.writeLock().unlock();
+            }
+
+            ProductColumns loaded = new ProductColumns(Math.max(properties.getExpectedSize(), read(ProductColumns::size, () -> 0)));
+            Set<Long> written;
+            try {
+                delegate.streamAll(loaded::upsert);
+            } finally {
+                lock.writeLock().lock();
+                try {
+                    written = writtenDuringReload;
+                    writtenDuringReload = null;
+                } finally {
+                    lock.writeLock().unlock();
+                }
+            }
+
+            lock.writeLock().lock();
+            try {
+                columns = loaded;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            written.forEach(this::reread);
+            log.info("Loaded {} products into the catalog snapshot in {} ms",
+                    loaded.size(), (System.nanoTime() - started) / 1_000_000);
+        } catch (RuntimeException e) {
+            log.error("Failed to load the catalog snapshot, keeping the previous one", e);
+        } finally {
+            reloadLock.unlock();
+        }
+    }
+
+    @Override
+    public List<Product> findAll() {
+        return read(held -> held.page(0, Integer.MAX_VALUE), delegate::findAll);
+    }
+
+    @Override
+    public void streamAll(Consumer<Product> consumer) {
+        if (!isLoaded()) {
+            delegate.streamAll(consumer);
+            return;
+        }
+        // the lock is only held per chunk, so a slow consumer does not hold up writers
+        long lastId = 0;
+        List<Product> chunk;
+        do {
+            long after = lastId;
+            chunk = read(held -> held.after(after, STREAM_CHUNK_SIZE), () -> delegate.findAfterId(after, STREAM_CHUNK_SIZE));
+            chunk.forEach(consumer);
+            if (!chunk.isEmpty()) {
+                lastId = chunk.get(chunk.size() - 1).getId();
+            }
+        } while (chunk.size() == STREAM_CHUNK_SIZE);
+    }
+
+    @Override
+    public List<Product> findByPage(int offset, int limit) {
+        return read(held -> held.page(offset, limit), () -> delegate.findByPage(offset, limit));
+    }
+
+    @Override
+    public List<Product> findAfterId(long lastId, int limit) {
+        return read(held -> held.after(lastId, limit), () -> delegate.findAfterId(lastId, limit));
+    }
+
+    @Override
+    public long countAll() {
+        return read(held -> (long) held.size(), delegate::countAll);
+    }
+
+    @Override
+    public Optional<Product> findById(long id) {
+        return read(held -> Optional.ofNullable(held.get(id)), () -> delegate.findById(id));
+    }
+
+    @Override
+    public List<Product> findAllById(long[] ids) {
+        return read(held -> {
+            List<Product> products = new ArrayList<>(ids.length);
+            for (long id : ids) {
+                Product product = held.get(id);
+                if (product != null) {
+                    products.add(product);
+                }
+            }
+            return products;
+        }, () -> delegate.findAllById(ids));
+    }
+
+    @Override
+    public OptionalLong findVersionById(long id) {
+        return read(held -> {
+            long version = held.version(id);
+            return version < 0 ? OptionalLong.empty() : OptionalLong.of(version);
+        }, () -> delegate.findVersionById(id));
+    }
+
+    @Override
+    public Product save(Product product) {
+        try {
+            Product saved = delegate.save(product);
+            write(saved.getId(), held -> held.upsert(saved));
+            return saved;
+        } catch (RuntimeException e) {
+            if (product.getId() != null) {
+                reread(product.getId());
+            }
+            throw e;
+        }
+    }
+
+    @Override
+    public void deleteById(long id) {
+        try {
+            delegate.deleteById(id);
+            write(id, held -> held.remove(id));
+        } catch (RuntimeException e) {
+            reread(id);
+            throw e;
+        }
+    }
+
+    @Override
+    public boolean updateIfVersion(Product product, long expectedVersion) {
+        boolean updated = delegate.updateIfVersion(product, expectedVersion);
+        if (updated) {
+            write(product.getId(), held -> held.upsert(product));
+        } else {
+            // the held version was stale, or the product is gone
+            reread(product.getId());
+        }
+        return updated;
+    }
+
+    @Override
+    public boolean deleteByIdIfVersion(long id, long expectedVersion) {
+        boolean deleted = delegate.deleteByIdIfVersion(id, expectedVersion);
+        if (deleted) {
+            write(id, held -> held.remove(id));
+        } else {
+            reread(id);
+        }
+        return deleted;
+    }
+
+    @Override
+    public Optional<Product> updateReturningPrevious(Product product, Long expectedVersion) {
+        try {
+            Optional<Product> previous = delegate.updateReturningPrevious(product, expectedVersion);
+            if (previous.isPresent()) {
+                write(product.getId(), held -> held.upsert(product));
+            } else {
+                reread(product.getId());
+            }
+            return previous;
+        } catch (RuntimeException e) {
+            reread(product.getId());
+            throw e;
+        }
+    }
+
+    @Override
+    public Optional<Product> deleteReturningPrevious(long id, Long expectedVersion) {
+        try {
+            Optional<Product> previous = delegate.deleteReturningPrevious(id, expectedVersion);
+            if (previous.isPresent()) {
+                write(id, held -> held.remove(id));
+            } else {
+                reread(id);
+            }
+            return previous;
+        } catch (RuntimeException e) {
+            reread(id);
+            throw e;
+        }
+    }
+
+    @Override
+    public Optional<Product> updateQuantityReturningPrevious(QuantityChange change) {
+        Optional<Product> previous = delegate.updateQuantityReturningPrevious(change);
+        if (previous.isPresent()) {
+            write(change.getId(), held -> held.changeQuantity(change.getId(), change.isAbsolute(), change.getAmount()));
+        }
+        return previous;
+    }
+
+    @Override
+    public List<Long> insertAll(List<Product> products) {
+        List<Long> ids = delegate.insertAll(products);
+        for (Product product : products) {
+            write(product.getId(), held -> held.upsert(product));
+        }
+        return ids;
+    }
+
+    @Override
+    public int[] updateAll(List<Product> products) {
+        int[] rowsAffected = delegate.updateAll(products);
+        for (int i = 0; i < products.size(); i++) {
+            // the delegate has set the version each row was written at
+            Product product = products.get(i);
+            if (rowsAffected[i] > 0) {
+                write(product.getId(), held -> held.upsert(product));
+            }
+        }
+        return rowsAffected;
+    }
+
+    @Override
+    public int[] deleteAllById(List<Long> ids) {
+        int[] rowsAffected = delegate.deleteAllById(ids);
+        for (Long id : ids) {
+            write(id, held -> held.remove(id));
+        }
+        return rowsAffected;
+    }
+
+    @Override
+    public int[] updateQuantities(List<QuantityChange> changes) {
+        int[] rowsAffected = delegate.updateQuantities(changes);
+        for (int i = 0; i < changes.size(); i++) {
+            QuantityChange change = changes.get(i);
+            if (rowsAffected[i] > 0) {
+                write(change.getId(), held -> held.changeQuantity(change.getId(), change.isAbsolute(), change.getAmount()));
+            }
+        }
+        return rowsAffected;
+    }
+
+    /**
+     * The database assigns copied rows ids above every one held before the copy, so only the rows after
+     * those are read in. Rows copied before the first load is in place show up with the next reload.
+     */
+    @Override
+    public long copyFrom(Reader rows) {
+        long lastId = read(ProductColumns::lastId, () -> -1L);
+        long copied = delegate.copyFrom(rows);
+        if (lastId >= 0) {
+            readAfter(lastId);
+        }
+        return copied;
+    }
+
+    public boolean isLoaded() {
+        lock.readLock().lock();
+        try {
+            return columns != null;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void reread(long id) {
+        try {
+            Optional<Product> product = delegate.findById(id);
+            write(id, held -> product.map(held::upsert).orElseGet(() -> held.remove(id)));
+        } catch (RuntimeException e) {
+            log.warn("Failed to re-read product {} into the catalog snapshot, it may be stale until the next reload", id, e);
+        }
+    }
+
+    private void readAfter(long lastId) {
+        try {
+            List<Product> chunk;
+            do {
+                chunk = delegate.findAfterId(lastId, STREAM_CHUNK_SIZE);
+                for (Product product : chunk) {
+                    write(product.getId(), held -> held.upsert(product));
+                }
+                if (!chunk.isEmpty()) {
+                    lastId = chunk.get(chunk.size() - 1).getId();
+                }
+            } while (chunk.size() == STREAM_CHUNK_SIZE);
+        } catch (RuntimeException e) {
+            log.warn("Failed to read products after id {} into the catalog snapshot, they may be missing until the next reload",
+                    lastId, e);
+        }
+    }
+
+    private <T> T read(Function<ProductColumns, T> fromSnapshot, Supplier<T> fromDelegate) {
+        lock.readLock().lock();
+        try {
+            if (columns != null) {
+                return fromSnapshot.apply(columns);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return fromDelegate.get();
+    }
+
+    private void write(long id, Consumer<ProductColumns> change) {
+        lock.writeLock().lock();
+        try {
+            if (writtenDuringReload != null) {
+                writtenDuringReload.add(id);
+            }
+            if (columns != null) {
+                change.accept(columns);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+}
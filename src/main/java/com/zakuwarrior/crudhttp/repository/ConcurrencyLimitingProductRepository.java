@@ -0,0 +1,258 @@
+package com.zakuwarrior.crudhttp.repository;
+
+import com.zakuwarrior.crudhttp.config.ProductProperties;
+import com.zakuwarrior.crudhttp.exception.DatabaseException;
+import com.zakuwarrior.crudhttp.exception.DatabaseOverloadedException;
+import com.zakuwarrior.crudhttp.model.CategoryStatistics;
+import com.zakuwarrior.crudhttp.model.Product;
+import com.zakuwarrior.crudhttp.model.ProductSearchCriteria;
+import com.zakuwarrior.crudhttp.model.QuantityChange;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Reader;
+import java.sql.SQLTransientException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Caps the number of callers inside the wrapped repository at once, with a limit that adapts to
+ * the query latency (see {@link AdaptiveConcurrencyLimiter}). Callers that cannot get in soon are
+ * turned away with a {@link DatabaseOverloadedException} rather than left waiting on the connection
+ * pool; with virtual threads there is no request thread pool, so thousands could pile up there.
+ *
+ * <p>Calls that transfer the whole table hold their connection for seconds or minutes, which would
+ * starve short queries of permits, so they are admitted against a small fixed cap of their own instead.
+ */
+@Slf4j
+public class ConcurrencyLimitingProductRepository implements ProductRepository, MeterBinder {
+    private final ProductRepository delegate;
+    private final AdaptiveConcurrencyLimiter limiter;
+    private final Semaphore transfers;
+    private final int maxTransfers;
+    private final long acquireTimeoutMillis;
+    private final Duration retryAfter;
+    private Counter rejected;
+
+    public ConcurrencyLimitingProductRepository(ProductRepository delegate, ProductProperties.Database properties) {
+        this.delegate = delegate;
+        this.limiter = new AdaptiveConcurrencyLimiter(properties.isAdaptive(),
+                properties.getMinConcurrency(), properties.getMaxConcurrency());
+        this.maxTransfers = properties.getMaxTransfers();
+        this.transfers = new Semaphore(maxTransfers);
+        this.acquireTimeoutMillis = properties.getAcquireTimeout().toMillis();
+        this.retryAfter = properties.getRetryAfter();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("products.database.concurrency.limit", limiter, AdaptiveConcurrencyLimiter::getLimit)
+                .description("Callers currently allowed into the database at once")
+                .register(registry);
+        Gauge.builder("products.database.concurrency.in-flight", limiter, AdaptiveConcurrencyLimiter::getInFlight)
+                .description("Callers currently inside the database")
+                .register(registry);
+        Gauge.builder("products.database.transfers.in-flight", transfers, permits -> maxTransfers - permits.availablePermits())
+                .description("Whole-table transfers currently holding a connection")
+                .register(registry);
+        rejected = Counter.builder("products.database.concurrency.rejected")
+                .description("Callers turned away because the database was at its limit")
+                .register(registry);
+    }
+
+    public int getLimit() {
+        return limiter.getLimit();
+    }
+
+    @Override
+    public List<Product> findAll() {
+        return transfer(delegate::findAll);
+    }
+
+    @Override
+    public void streamAll(Consumer<Product> consumer) {
+        transfer(() -> {
+            delegate.streamAll(consumer);
+            return null;
+        });
+    }
+
+    @Override
+    public List<Product> findByPage(int offset, int limit) {
+        return limited(() -> delegate.findByPage(offset, limit));
+    }
+
+    @Override
+    public List<Product> findAfterId(long lastId, int limit) {
+        return limited(() -> delegate.findAfterId(lastId, limit));
+    }
+
+    @Override
+    public List<Product> search(ProductSearchCriteria criteria, int offset, int limit) {
+        return limited(() -> delegate.search(criteria, offset, limit));
+    }
+
+    @Override
+    public List<Product> searchText(String text, int offset, int limit) {
+        return limited(() -> delegate.searchText(text, offset, limit));
+    }
+
+    @Override
+    public long countAll() {
+        return limited(delegate::countAll);
+    }
+
+    @Override
+    public List<CategoryStatistics> aggregateByCategory(String category) {
+        return limited(() -> delegate.aggregateByCategory(category));
+    }
+
+    @Override
+    public Optional<Product> findById(long id) {
+        return limited(() -> delegate.findById(id));
+    }
+
+    @Override
+    public List<Product> findAllById(long[] ids) {
+        return limited(() -> delegate.findAllById(ids));
+    }
+
+    @Override
+    public OptionalLong findVersionById(long id) {
+        return limited(() -> delegate.findVersionById(id));
+    }
+
+    @Override
+    public Product save(Product product) {
+        return limited(() -> delegate.save(product));
+    }
+
+    @Override
+    public void deleteById(long id) {
+        limited(() -> {
+            delegate.deleteById(id);
+            return null;
+        });
+    }
+
+    @Override
+    public boolean updateIfVersion(Product product, long expectedVersion) {
+        return limited(() -> delegate.updateIfVersion(product, expectedVersion));
+    }
+
+    @Override
+    public boolean deleteByIdIfVersion(long id, long expectedVersion) {
+        return limited(() -> delegate.deleteByIdIfVersion(id, expectedVersion));
+    }
+
+    @Override
+    public Optional<Product> updateReturningPrevious(Product product, Long expectedVersion) {
+        return limited(() -> delegate.updateReturningPrevious(product, expectedVersion));
+    }
+
+    @Override
+    public Optional<Product> deleteReturningPrevious(long id, Long expectedVersion) {
+        return limited(() -> delegate.deleteReturningPrevious(id, expectedVersion));
+    }
+
+    @Override
+    public Optional<Product> updateQuantityReturningPrevious(QuantityChange change) {
+        return limited(() -> delegate.updateQuantityReturningPrevious(change));
+    }
+
+    @Override
+    public List<Long> insertAll(List<Product> products) {
+        return limited(() -> delegate.insertAll(products));
+    }
+
+    @Override
+    public int[] updateAll(List<Product> products) {
+        return limited(() -> delegate.updateAll(products));
+    }
+
+    @Override
+    public int[] deleteAllById(List<Long> ids) {
+        return limited(() -> delegate.deleteAllById(ids));
+    }
+
+    @Override
+    public int[] updateQuantities(List<QuantityChange> changes) {
+        return limited(() -> delegate.updateQuantities(changes));
+    }
+
+    @Override
+    public long copyFrom(Reader rows) {
+        return transfer(() -> delegate.copyFrom(rows));
+    }
+
+    private <T> T limited(Supplier<T> call) {
+        try {
+            if (!limiter.acquire(acquireTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                if (rejected != null) {
+                    rejected.increment();
+                }
+                log.warn("Turned away a database call at the limit of {} concurrent calls", limiter.getLimit());
+                throw new DatabaseOverloadedException("Database is at its concurrency limit", retryAfter);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new DatabaseException("Interrupted while waiting for a database permit", e);
+        }
+        long started = System.nanoTime();
+        boolean dropped = false;
+        long latency = -1;
+        try {
+            T result = call.get();
+            latency = System.nanoTime() - started;
+            return result;
+        } catch (RuntimeException e) {
+            dropped = isOverload(e);
+            throw e;
+        } finally {
+            limiter.release(latency, dropped);
+        }
+    }
+
+    /**
+     * Admits a whole-table transfer against the transfer cap. Its latency says nothing about the
+     * database's load, so it is not sampled by the adaptive limit either.
+     */
+    private <T> T transfer(Supplier<T> call) {
+        try {
+            if (!transfers.tryAcquire(acquireTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                if (rejected != null) {
+                    rejected.increment();
+                }
+                log.warn("Turned away a transfer at the limit of {} concurrent transfers", maxTransfers);
+                throw new DatabaseOverloadedException("Database is at its transfer limit", retryAfter);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new DatabaseException("Interrupted while waiting for a transfer permit", e);
+        }
+        try {
+            return call.get();
+        } finally {
+            transfers.release();
+        }
+    }
+
+    /** Timeouts getting a connection or running a query, as opposed to errors about the call itself. */
+    private static boolean isOverload(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof SQLTransientException) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
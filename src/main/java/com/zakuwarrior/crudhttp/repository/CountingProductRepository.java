@@ -0,0 +1,83 @@
+package com.zakuwarrior.crudhttp.repository;
+
+import com.zakuwarrior.crudhttp.model.Product;
+
+import java.io.Reader;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Serves countAll from a {@link ProductCounter} and reports every insert and delete to it.
+ */
+public class CountingProductRepository extends ForwardingProductRepository {
+    private final ProductCounter counter;
+
+    public CountingProductRepository(ProductRepository delegate, ProductCounter counter) {
+        super(delegate);
+        this.counter = counter;
+    }
+
+    @Override
+    public long countAll() {
+        return counter.count();
+    }
+
+    @Override
+    public Product save(Product product) {
+        boolean inserting = product.getId() == null;
+        Product savedProduct = delegate.save(product);
+        if (inserting) {
+            counter.adjust(1);
+        }
+        return savedProduct;
+    }
+
+    @Override
+    public void deleteById(long id) {
+        delegate.deleteById(id);
+        counter.adjust(-1);
+    }
+
+    @Override
+    public boolean deleteByIdIfVersion(long id, long expectedVersion) {
+        boolean deleted = delegate.deleteByIdIfVersion(id, expectedVersion);
+        if (deleted) {
+            counter.adjust(-1);
+        }
+        return deleted;
+    }
+
+    @Override
+    public Optional<Product> deleteReturningPrevious(long id, Long expectedVersion) {
+        Optional<Product> deleted = delegate.deleteReturningPrevious(id, expectedVersion);
+        if (deleted.isPresent()) {
+            counter.adjust(-1);
+        }
+        return deleted;
+    }
+
+    @Override
+    public List<Long> insertAll(List<Product> products) {
+        List<Long> ids = delegate.insertAll(products);
+        counter.adjust(ids.size());
+        return ids;
+    }
+
+    @Override
+    public int[] deleteAllById(List<Long> ids) {
+        int[] rowsAffected = delegate.deleteAllById(ids);
+        long deleted = 0;
+        for (int rows : rowsAffected) {
+            deleted += rows;
+        }
+        counter.adjust(-deleted);
+        return rowsAffected;
+    }
+
+    @Override
+    public long copyFrom(Reader rows) {
+        long copied = delegate.copyFrom(rows);
+        counter.adjust(copied);
+        return copied;
+    }
+}
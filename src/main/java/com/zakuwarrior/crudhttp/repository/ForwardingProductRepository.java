@@ -0,0 +1,139 @@
+package com.zakuwarrior.crudhttp.repository;
+
+import com.zakuwarrior.crudhttp.model.CategoryStatistics;
+import com.zakuwarrior.crudhttp.model.Product;
+import com.zakuwarrior.crudhttp.model.ProductSearchCriteria;
+import com.zakuwarrior.crudhttp.model.QuantityChange;
+
+import java.io.Reader;
+import java.util.List;
+import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.function.Consumer;
+
+/**
+ * Base for {@link ProductRepository} decorators: forwards every call to the wrapped repository
+ * so subclasses only override the methods they change.
+ */
+public abstract class ForwardingProductRepository implements ProductRepository {
+    protected final ProductRepository delegate;
+
+    protected ForwardingProductRepository(ProductRepository delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public List<Product> findAll() {
+        return delegate.findAll();
+    }
+
+    @Override
+    public void streamAll(Consumer<Product> consumer) {
+        delegate.streamAll(consumer);
+    }
+
+    @Override
+    public List<Product> findByPage(int offset, int limit) {
+        return delegate.findByPage(offset, limit);
+    }
+
+    @Override
+    public List<Product> findAfterId(long lastId, int limit) {
+        return delegate.findAfterId(lastId, limit);
+    }
+
+    @Override
+    public List<Product> search(ProductSearchCriteria criteria, int offset, int limit) {
+        return delegate.search(criteria, offset, limit);
+    }
+
+    @Override
+    public List<Product> searchText(String text, int offset, int limit) {
+        return delegate.searchText(text, offset, limit);
+    }
+
+    @Override
+    public long countAll() {
+        return delegate.countAll();
+    }
+
+    @Override
+    public List<CategoryStatistics> aggregateByCategory(String category) {
+        return delegate.aggregateByCategory(category);
+    }
+
+    @Override
+    public Optional<Product> findById(long id) {
+        return delegate.findById(id);
+    }
+
+    @Override
+    public List<Product> findAllById(long[] ids) {
+        return delegate.findAllById(ids);
+    }
+
+    @Override
+    public OptionalLong findVersionById(long id) {
+        return delegate.findVersionById(id);
+    }
+
+    @Override
+    public Product save(Product product) {
+        return delegate.save(product);
+    }
+
+    @Override
+    public void deleteById(long id) {
+        delegate.deleteById(id);
+    }
+
+    @Override
+    public boolean updateIfVersion(Product product, long expectedVersion) {
+        return delegate.updateIfVersion(product, expectedVersion);
+    }
+
+    @Override
+    public boolean deleteByIdIfVersion(long id, long expectedVersion) {
+        return delegate.deleteByIdIfVersion(id, expectedVersion);
+    }
+
+    @Override
+    public Optional<Product> updateReturningPrevious(Product product, Long expectedVersion) {
+        return delegate.updateReturningPrevious(product, expectedVersion);
+    }
+
+    @Override
+    public Optional<Product> deleteReturningPrevious(long id, Long expectedVersion) {
+        return delegate.deleteReturningPrevious(id, expectedVersion);
+    }
+
+    @Override
+    public Optional<Product> updateQuantityReturningPrevious(QuantityChange change) {
+        return delegate.updateQuantityReturningPrevious(change);
+    }
+
+    @Override
+    public List<Long> insertAll(List<Product> products) {
+        return delegate.insertAll(products);
+    }
+
+    @Override
+    public int[] updateAll(List<Product> products) {
+        return delegate.updateAll(products);
+    }
+
+    @Override
+    public int[] deleteAllById(List<Long> ids) {
+        return delegate.deleteAllById(ids);
+    }
+
+    @Override
+    public int[] updateQuantities(List<QuantityChange> changes) {
+        return delegate.updateQuantities(changes);
+    }
+
+    @Override
+    public long copyFrom(Reader rows) {
+        return delegate.copyFrom(rows);
+    }
+}
@@ -1,33 +1,114 @@
 package com.zakuwarrior.crudhttp.repository;
 
+import com.zakuwarrior.crudhttp.config.ProductProperties;
+import com.zakuwarrior.crudhttp.config.ReadWriteRoutingDataSource;
+import com.zakuwarrior.crudhttp.exception.CommitOutcomeUnknownException;
 import com.zakuwarrior.crudhttp.exception.DatabaseException;
+import com.zakuwarrior.crudhttp.exception.InvalidRequestException;
+import com.zakuwarrior.crudhttp.model.CategoryStatistics;
 import com.zakuwarrior.crudhttp.model.Product;
+import com.zakuwarrior.crudhttp.model.ProductSearchCriteria;
+import com.zakuwarrior.crudhttp.model.QuantityChange;
 import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.springframework.context.annotation.Profile;
 import org.springframework.stereotype.Repository;
 
 import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.Reader;
+import java.math.BigDecimal;
 import java.sql.*;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.StringJoiner;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
 
 @Slf4j
+@Profile("!reactive")
 @Repository
 public class JdbcProductRepository implements ProductRepository {
+    static final Map<String, String> SORTABLE_COLUMNS = Map.of(
+            "id", "id",
+            "name", "name",
+            "price", "price",
+            "quantity", "quantity",
+            "category", "category");
+
+    /** Selected in this order everywhere, so rows are mapped by position instead of by label. */
+    private static final String COLUMNS = "id, name, description, price, quantity, category, version";
+    private static final String FIND_ALL_SQL = "SELECT " + COLUMNS + " FROM products";
+    private static final String STREAM_ALL_SQL = "SELECT " + COLUMNS + " FROM products ORDER BY id";
+    private static final String FIND_PAGE_SQL = "SELECT " + COLUMNS + " FROM products ORDER BY id LIMIT ? OFFSET ?";
+    private static final String FIND_AFTER_ID_SQL = "SELECT " + COLUMNS + " FROM products WHERE id > ? ORDER BY id LIMIT ?";
+    private static final String SEARCH_SQL = "SELECT " + COLUMNS + " FROM products";
+    // the query is a parameter, so ts_rank_cd and @@ share it without it being parsed twice
+    private static final String SEARCH_TEXT_SQL = "SELECT " + COLUMNS + " FROM products, to_tsquery('simple', ?) query "
+            + "WHERE search_vector @@ query ORDER BY ts_rank_cd(search_vector, query) DESC, id LIMIT ? OFFSET ?";
+    private static final Pattern NON_WORD = Pattern.compile("[^\\p{L}\\p{N}]+");
+    // a shorter prefix matches most words in the index, and every match has to be ranked
+    static final int MIN_PREFIX_LENGTH = 3;
+    private static final String COUNT_SQL = "SELECT COUNT(*) FROM products";
+    private static final String ESTIMATE_COUNT_SQL = "SELECT reltuples::bigint FROM pg_class WHERE oid = 'products'::regclass";
+    private static final String CATEGORY_STATS_SQL = "SELECT category, COUNT(*), SUM(quantity), MIN(price), AVG(price), MAX(price) "
+            + "FROM products GROUP BY category ORDER BY category";
+    private static final String ONE_CATEGORY_STATS_SQL = "SELECT category, COUNT(*), SUM(quantity), MIN(price), AVG(price), MAX(price) "
+            + "FROM products WHERE category = ? GROUP BY category";
+    private static final String FIND_BY_ID_SQL = "SELECT " + COLUMNS + " FROM products WHERE id = ?";
+    private static final String FIND_ALL_BY_ID_SQL = "SELECT " + COLUMNS + " FROM products WHERE id = ANY(?)";
+    private static final String FIND_VERSION_SQL = "SELECT version FROM products WHERE id = ?";
+    private static final String INSERT_SQL = "INSERT INTO products (name, description, price, quantity, category) VALUES (?, ?, ?, ?, ?)";
+    private static final String UPDATE_SQL = "UPDATE products SET name = ?, description = ?, price = ?, quantity = ?, category = ?, "
+            + "version = version + 1 WHERE id = ?";
+    private static final String UPDATE_RETURNING_SQL = UPDATE_SQL + " RETURNING version";
+    private static final String UPDATE_IF_VERSION_SQL = UPDATE_SQL + " AND version = ? RETURNING version";
+    private static final String DELETE_SQL = "DELETE FROM products WHERE id = ?";
+    private static final String DELETE_IF_VERSION_SQL = "DELETE FROM products WHERE id = ? AND version = ?";
+    // changes that would make the quantity negative leave the row untouched and report 0 rows
+    private static final String UPDATE_QUANTITY_SQL = "UPDATE products SET quantity = CASE WHEN ? THEN ? ELSE quantity + ? END, "
+            + "version = version + 1 WHERE id = ? AND CASE WHEN ? THEN ? ELSE quantity + ? END >= 0";
+    // the locked subquery reads the row the update replaces, so its old values come back from the same statement
+    private static final String PREVIOUS_COLUMNS = "previous.id, previous.name, previous.description, previous.price, "
+            + "previous.quantity, previous.category, previous.version";
+    private static final String PREVIOUS_ROW = " FROM (SELECT " + COLUMNS + " FROM products WHERE id = ? FOR UPDATE) previous "
+            + "WHERE products.id = previous.id";
+    private static final String UPDATE_RETURNING_PREVIOUS_SQL = "UPDATE products SET name = ?, description = ?, price = ?, "
+            + "quantity = ?, category = ?, version = previous.version + 1" + PREVIOUS_ROW + " RETURNING " + PREVIOUS_COLUMNS;
+    private static final String UPDATE_IF_VERSION_RETURNING_PREVIOUS_SQL = "UPDATE products SET name = ?, description = ?, "
+            + "price = ?, quantity = ?, category = ?, version = previous.version + 1" + PREVIOUS_ROW
+            + " AND previous.version = ? RETURNING " + PREVIOUS_COLUMNS;
+    private static final String DELETE_RETURNING_SQL = DELETE_SQL + " RETURNING " + COLUMNS;
+    private static final String DELETE_IF_VERSION_RETURNING_SQL = DELETE_IF_VERSION_SQL + " RETURNING " + COLUMNS;
+    private static final String UPDATE_QUANTITY_RETURNING_PREVIOUS_SQL = "UPDATE products SET quantity = "
+            + "CASE WHEN ? THEN ? ELSE previous.quantity + ? END, version = previous.version + 1" + PREVIOUS_ROW
+            + " AND CASE WHEN ? THEN ? ELSE previous.quantity + ? END >= 0 RETURNING " + PREVIOUS_COLUMNS;
+    private static final String COPY_SQL = "COPY products (name, description, price, quantity, category) FROM STDIN";
+    /** Batches larger than the notify_product_change trigger's row limit ask it for one RESET instead. */
+    static final int BULK_WRITE_ROWS = 100;
+    static final String BULK_WRITE_SQL = "SET LOCAL products.bulk_write = 'on'";
+
     private final DataSource dataSource;
+    private final ProductProperties properties;
+    private final RecentWrites recentWrites;
 
-    public JdbcProductRepository(DataSource dataSource) {
+    public JdbcProductRepository(DataSource dataSource, ProductProperties properties) {
         this.dataSource = dataSource;
+        this.properties = properties;
+        this.recentWrites = new RecentWrites(properties.getDatabase().getReplica());
     }
 
     @Override
     public List<Product> findAll() {
         List<Product> products = new ArrayList<>();
         String errorMessage = "Failed to fetch all products";
-        String sql = "SELECT * FROM products";
-        try (Connection connection = dataSource.getConnection();
-             Statement statement = connection.createStatement();
-             ResultSet resultSet = statement.executeQuery(sql)) {
+        try (Connection connection = getReadConnection();
+             PreparedStatement preparedStatement = connection.prepareStatement(FIND_ALL_SQL);
+             ResultSet resultSet = preparedStatement.executeQuery()) {
             while (resultSet.next()) {
                 products.add(mapRowToProduct(resultSet));
             }
@@ -38,13 +119,38 @@ public class JdbcProductRepository implements ProductRepository {
         return products;
     }
 
+    @Override
+    public void streamAll(Consumer<Product> consumer) {
+        String errorMessage = "Failed to stream all products";
+        try (Connection connection = getReadConnection()) {
+            boolean autoCommit = connection.getAutoCommit();
+            // PostgreSQL only uses a server-side cursor for the fetch size inside a transaction
+            connection.setAutoCommit(false);
+            try (PreparedStatement preparedStatement = connection.prepareStatement(STREAM_ALL_SQL,
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+                preparedStatement.setFetchSize(properties.getExport().getFetchSize());
+
+                try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                    while (resultSet.next()) {
+                        consumer.accept(mapRowToProduct(resultSet));
+                    }
+                }
+            } finally {
+                connection.rollback();
+                connection.setAutoCommit(autoCommit);
+            }
+        } catch (SQLException e) {
+            log.error(errorMessage, e);
+            throw new DatabaseException(errorMessage, e);
+        }
+    }
+
     @Override
     public List<Product> findByPage(int offset, int limit) {
-        List<Product> products = new ArrayList<>();
+        List<Product> products = new ArrayList<>(limit);
         String errorMessage = "Failed to fetch products by page";
-        String sql = "SELECT * FROM products ORDER BY id LIMIT ? OFFSET ?";
-        try (Connection connection = dataSource.getConnection();
-             PreparedStatement preparedStatement = connection.prepareStatement(sql)) {
+        try (Connection connection = getReadConnection();
+             PreparedStatement preparedStatement = connection.prepareStatement(FIND_PAGE_SQL)) {
             preparedStatement.setInt(1, limit);
             preparedStatement.setInt(2, offset);
 
@@ -63,13 +169,123 @@ public class JdbcProductRepository implements ProductRepository {
         return products;
     }
 
+    @Override
+    public List<Product> findAfterId(long lastId, int limit) {
+        List<Product> products = new ArrayList<>(limit);
+        String errorMessage = "Failed to fetch products after id";
+        try (Connection connection = getReadConnection();
+             PreparedStatement preparedStatement = connection.prepareStatement(FIND_AFTER_ID_SQL)) {
+            preparedStatement.setLong(1, lastId);
+            preparedStatement.setInt(2, limit);
+
+            try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                while (resultSet.next()) {
+                    products.add(mapRowToProduct(resultSet));
+                }
+            }
+        } catch (SQLException e) {
+            log.error("Failed to fetch products after id: {}", lastId, e);
+            throw new DatabaseException(errorMessage, e);
+        }
+        return products;
+    }
+
+    @Override
+    public List<Product> search(ProductSearchCriteria criteria, int offset, int limit) {
+        List<Product> products = new ArrayList<>(limit);
+        String errorMessage = "Failed to search products";
+        List<String> conditions = new ArrayList<>();
+        List<Object> parameters = new ArrayList<>();
+        if (criteria.getCategory() != null) {
+            conditions.add("category = ?");
+            parameters.add(criteria.getCategory());
+        }
+        if (criteria.getMinPrice() != null) {
+            conditions.add("price >= ?");
+            // bound as numeric so the comparison can use the index on the DECIMAL column
+            parameters.add(BigDecimal.valueOf(criteria.getMinPrice()));
+        }
+        if (criteria.getMaxPrice() != null) {
+            conditions.add("price <= ?");
+            parameters.add(BigDecimal.valueOf(criteria.getMaxPrice()));
+        }
+        if (criteria.getNameStartsWith() != null) {
+            conditions.add("name LIKE ?");
+            parameters.add(escapeLikePattern(criteria.getNameStartsWith()) + "%");
+        }
+
+        String sortColumn = SORTABLE_COLUMNS.get(criteria.getSortBy());
+        if (sortColumn == null) {
+            throw new InvalidRequestException("Cannot sort products by: " + criteria.getSortBy());
+        }
+        String direction = criteria.isDescending() ? "DESC" : "ASC";
+
+        StringBuilder sql = new StringBuilder(SEARCH_SQL);
+        if (!conditions.isEmpty()) {
+            sql.append(" WHERE ").append(String.join(" AND ", conditions));
+        }
+        sql.append(" ORDER BY ").append(sortColumn).append(' ').append(direction);
+        if (!sortColumn.equals("id")) {
+            sql.append(", id ").append(direction);
+        }
+        sql.append(" LIMIT ? OFFSET ?");
+        parameters.add(limit);
+        parameters.add(offset);
+
+        try (Connection connection = getReadConnection();
+             PreparedStatement preparedStatement = connection.prepareStatement(sql.toString())) {
+            for (int i = 0; i < parameters.size(); i++) {
+                preparedStatement.setObject(i + 1, parameters.get(i));
+            }
+
+            try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                while (resultSet.next()) {
+                    products.add(mapRowToProduct(resultSet));
+                }
+            }
+        } catch (SQLException e) {
+            log.error("Failed to search products by: {}", criteria, e);
+            throw new DatabaseException(errorMessage, e);
+        }
+        return products;
+    }
+
+    /**
+     * Matches through the GIN index on the generated search_vector column. Every word of the text
+     * becomes a prefix term, so a query typed so far finds what it will find once complete.
+     */
+    @Override
+    public List<Product> searchText(String text, int offset, int limit) {
+        String query = toPrefixQuery(text);
+        if (query.isEmpty()) {
+            return List.of();
+        }
+        List<Product> products = new ArrayList<>(limit);
+        String errorMessage = "Failed to search products by text";
+        try (Connection connection = getReadConnection();
+             PreparedStatement preparedStatement = connection.prepareStatement(SEARCH_TEXT_SQL)) {
+            preparedStatement.setString(1, query);
+            preparedStatement.setInt(2, limit);
+            preparedStatement.setInt(3, offset);
+
+            try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                while (resultSet.next()) {
+                    products.add(mapRowToProduct(resultSet));
+                }
+            }
+        } catch (SQLException e) {
+            log.error("Failed to search products by text: {}", text, e);
+            throw new DatabaseException(errorMessage, e);
+        }
+        return products;
+    }
+
     @Override
     public long countAll() {
         String errorMessage = "Failed to count products";
-        String sql = "SELECT COUNT(*) FROM products";
-        try (Connection connection = dataSource.getConnection();
-             Statement statement = connection.createStatement();
-             ResultSet resultSet = statement.executeQuery(sql)) {
+        try (Connection connection = getReadConnection();
+             PreparedStatement preparedStatement = connection.prepareStatement(COUNT_SQL);
+             ResultSet resultSet = preparedStatement.executeQuery()) {
             if (resultSet.next()) {
                 return resultSet.getLong(1);
             }
@@ -80,12 +296,53 @@ public class JdbcProductRepository implements ProductRepository {
         return 0;
     }
 
+    /**
+     * Aggregates every category, or just the given one. Both are read from the primary, since the
+     * aggregates kept in memory are adjusted from there by the before-images writes return.
+     */
+    @Override
+    public List<CategoryStatistics> aggregateByCategory(String category) {
+        List<CategoryStatistics> statistics = new ArrayList<>();
+        String errorMessage = "Failed to aggregate products by category";
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement preparedStatement = connection.prepareStatement(
+                     category == null ? CATEGORY_STATS_SQL : ONE_CATEGORY_STATS_SQL)) {
+            if (category != null) {
+                preparedStatement.setString(1, category);
+            }
+            try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                while (resultSet.next()) {
+                    statistics.add(new CategoryStatistics(resultSet.getString(1), resultSet.getLong(2),
+                            resultSet.getLong(3), resultSet.getDouble(4), resultSet.getDouble(5), resultSet.getDouble(6)));
+                }
+            }
+        } catch (SQLException e) {
+            log.error("Failed to aggregate products of category: {}", category, e);
+            throw new DatabaseException(errorMessage, e);
+        }
+        return statistics;
+    }
+
+    public long estimateCount() {
+        String errorMessage = "Failed to estimate products count";
+        try (Connection connection = getReadConnection();
+             PreparedStatement preparedStatement = connection.prepareStatement(ESTIMATE_COUNT_SQL);
+             ResultSet resultSet = preparedStatement.executeQuery()) {
+            if (resultSet.next()) {
+                return resultSet.getLong(1);
+            }
+        } catch (SQLException e) {
+            log.error(errorMessage, e);
+            throw new DatabaseException(errorMessage, e);
+        }
+        return -1;
+    }
+
     @Override
     public Optional<Product> findById(long id) {
         String errorMessage = "Failed to fetch a product";
-        String sql = "SELECT * FROM products WHERE id = ?";
-        try (Connection connection = dataSource.getConnection();
-             PreparedStatement preparedStatement = connection.prepareStatement(sql)) {
+        try (Connection connection = getReadConnection(recentWrites.writtenAt(id));
+             PreparedStatement preparedStatement = connection.prepareStatement(FIND_BY_ID_SQL)) {
             preparedStatement.setLong(1, id);
 
             try (ResultSet resultSet = preparedStatement.executeQuery()) {
@@ -103,6 +360,48 @@ public class JdbcProductRepository implements ProductRepository {
         return Optional.empty();
     }
 
+    /** Resolves all ids with one array-bound query, so the statement is the same however many there are. */
+    @Override
+    public List<Product> findAllById(long[] ids) {
+        List<Product> products = new ArrayList<>(ids.length);
+        String errorMessage = "Failed to fetch products by id";
+        try (Connection connection = getReadConnection(recentWrites.writtenAt(ids));
+             PreparedStatement preparedStatement = connection.prepareStatement(FIND_ALL_BY_ID_SQL)) {
+            // the driver binds a primitive array directly, without boxing every id
+            Array idArray = connection.unwrap(PGConnection.class).createArrayOf("bigint", ids);
+            try {
+                preparedStatement.setArray(1, idArray);
+                try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                    while (resultSet.next()) {
+                        products.add(mapRowToProduct(resultSet));
+                    }
+                }
+            } finally {
+                idArray.free();
+            }
+        } catch (SQLException e) {
+            log.error("Failed to fetch {} products by id", ids.length, e);
+            throw new DatabaseException(errorMessage, e);
+        }
+        return products;
+    }
+
+    @Override
+    public OptionalLong findVersionById(long id) {
+        String errorMessage = "Failed to fetch a product version";
+        try (Connection connection = getReadConnection(recentWrites.writtenAt(id));
+             PreparedStatement preparedStatement = connection.prepareStatement(FIND_VERSION_SQL)) {
+            preparedStatement.setLong(1, id);
+
+            try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                return resultSet.next() ? OptionalLong.of(resultSet.getLong(1)) : OptionalLong.empty();
+            }
+        } catch (SQLException e) {
+            log.error("Failed to fetch the version of a product with id: {}", id, e);
+            throw new DatabaseException(errorMessage, e);
+        }
+    }
+
     @Override
     public Product save(Product product) {
         if (product.getId() == null) {
@@ -114,11 +413,11 @@ public class JdbcProductRepository implements ProductRepository {
     @Override
     public void deleteById(long id) {
         String errorMessage = "Failed to delete a product";
-        String sql = "DELETE FROM products WHERE id = ?";
         try (Connection connection = dataSource.getConnection();
-             PreparedStatement preparedStatement = connection.prepareStatement(sql)) {
+             PreparedStatement preparedStatement = connection.prepareStatement(DELETE_SQL)) {
             preparedStatement.setLong(1, id);
             int rowsAffected = preparedStatement.executeUpdate();
+            recentWrites.record(id);
             if (rowsAffected == 0) {
                 throw new SQLException("no rows affected after updating a table");
             }
@@ -128,16 +427,324 @@ public class JdbcProductRepository implements ProductRepository {
         }
     }
 
+    @Override
+    public boolean updateIfVersion(Product product, long expectedVersion) {
+        String errorMessage = "Failed to update a product";
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement preparedStatement = connection.prepareStatement(UPDATE_IF_VERSION_SQL)) {
+            bindProduct(preparedStatement, product);
+            preparedStatement.setLong(6, product.getId());
+            preparedStatement.setLong(7, expectedVersion);
+
+            try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                if (!resultSet.next()) {
+                    return false;
+                }
+                product.setVersion(resultSet.getLong(1));
+            }
+            recentWrites.record(product.getId());
+            return true;
+        } catch (SQLException e) {
+            log.error("Failed to update a product at version {}: {}", expectedVersion, product, e);
+            throw new DatabaseException(errorMessage, e);
+        }
+    }
+
+    @Override
+    public boolean deleteByIdIfVersion(long id, long expectedVersion) {
+        String errorMessage = "Failed to delete a product";
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement preparedStatement = connection.prepareStatement(DELETE_IF_VERSION_SQL)) {
+            preparedStatement.setLong(1, id);
+            preparedStatement.setLong(2, expectedVersion);
+            int rowsAffected = preparedStatement.executeUpdate();
+            recentWrites.record(id);
+            return rowsAffected > 0;
+        } catch (SQLException e) {
+            log.error("Failed to delete a product with id {} at version {}", id, expectedVersion, e);
+            throw new DatabaseException(errorMessage, e);
+        }
+    }
+
+    @Override
+    public Optional<Product> updateReturningPrevious(Product product, Long expectedVersion) {
+        String errorMessage = "Failed to update a product";
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement preparedStatement = connection.prepareStatement(expectedVersion == null
+                     ? UPDATE_RETURNING_PREVIOUS_SQL
+                     : UPDATE_IF_VERSION_RETURNING_PREVIOUS_SQL)) {
+            bindProduct(preparedStatement, product);
+            preparedStatement.setLong(6, product.getId());
+            if (expectedVersion != null) {
+                preparedStatement.setLong(7, expectedVersion);
+            }
+
+            try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                recentWrites.record(product.getId());
+                if (!resultSet.next()) {
+                    if (expectedVersion == null) {
+                        throw new SQLException("no rows affected after updating a table");
+                    }
+                    return Optional.empty();
+                }
+                Product previous = mapRowToProduct(resultSet);
+                product.setVersion(previous.getVersion() + 1);
+                return Optional.of(previous);
+            }
+        } catch (SQLException e) {
+            log.error("Failed to update a product at version {}: {}", expectedVersion, product, e);
+            throw new DatabaseException(errorMessage, e);
+        }
+    }
+
+    @Override
+    public Optional<Product> deleteReturningPrevious(long id, Long expectedVersion) {
+        String errorMessage = "Failed to delete a product";
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement preparedStatement = connection.prepareStatement(expectedVersion == null
+                     ? DELETE_RETURNING_SQL
+                     : DELETE_IF_VERSION_RETURNING_SQL)) {
+            preparedStatement.setLong(1, id);
+            if (expectedVersion != null) {
+                preparedStatement.setLong(2, expectedVersion);
+            }
+
+            try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                recentWrites.record(id);
+                if (!resultSet.next()) {
+                    if (expectedVersion == null) {
+                        throw new SQLException("no rows affected after updating a table");
+                    }
+                    return Optional.empty();
+                }
+                return Optional.of(mapRowToProduct(resultSet));
+            }
+        } catch (SQLException e) {
+            log.error("Failed to delete a product with id {} at version {}", id, expectedVersion, e);
+            throw new DatabaseException(errorMessage, e);
+        }
+    }
+
+    @Override
+    public Optional<Product> updateQuantityReturningPrevious(QuantityChange change) {
+        String errorMessage = "Failed to update a product quantity";
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement preparedStatement = connection.prepareStatement(UPDATE_QUANTITY_RETURNING_PREVIOUS_SQL)) {
+            preparedStatement.setBoolean(1, change.isAbsolute());
+            preparedStatement.setInt(2, change.getAmount());
+            preparedStatement.setInt(3, change.getAmount());
+            preparedStatement.setLong(4, change.getId());
+            preparedStatement.setBoolean(5, change.isAbsolute());
+            preparedStatement.setInt(6, change.getAmount());
+            preparedStatement.setInt(7, change.getAmount());
+
+            try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                recentWrites.record(change.getId());
+                return resultSet.next() ? Optional.of(mapRowToProduct(resultSet)) : Optional.empty();
+            }
+        } catch (SQLException e) {
+            log.error("Failed to update the quantity of a product: {}", change, e);
+            throw new DatabaseException(errorMessage, e);
+        }
+    }
+
+    @Override
+    public List<Long> insertAll(List<Product> products) {
+        List<Long> ids = new ArrayList<>(products.size());
+        String errorMessage = "Failed to insert a batch of products";
+        int chunkSize = properties.getBatch().getChunkSize();
+        try (Connection connection = dataSource.getConnection()) {
+            boolean autoCommit = connection.getAutoCommit();
+            connection.setAutoCommit(false);
+            try (PreparedStatement preparedStatement = connection.prepareStatement(INSERT_SQL, Statement.RETURN_GENERATED_KEYS)) {
+                markBulkWrite(connection, products.size());
+                for (int start = 0; start < products.size(); start += chunkSize) {
+                    for (Product product : products.subList(start, Math.min(start + chunkSize, products.size()))) {
+                        bindProduct(preparedStatement, product);
+                        preparedStatement.addBatch();
+                    }
+                    preparedStatement.executeBatch();
+
+                    try (ResultSet generatedKeys = preparedStatement.getGeneratedKeys()) {
+                        while (generatedKeys.next()) {
+                            ids.add(generatedKeys.getLong(1));
+                        }
+                    }
+                }
+                if (ids.size() != products.size()) {
+                    throw new SQLException("expected " + products.size() + " keys but got " + ids.size());
+                }
+                connection.commit();
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(autoCommit);
+            }
+        } catch (SQLException e) {
+            log.error("Failed to insert a batch of {} products", products.size(), e);
+            throw new DatabaseException(errorMessage, e);
+        }
+
+        for (int i = 0; i < products.size(); i++) {
+            products.get(i).setId(ids.get(i));
+            products.get(i).setVersion(0);
+        }
+        recentWrites.recordAll(ids);
+        return ids;
+    }
+
+    @Override
+    public int[] updateAll(List<Product> products) {
+        int[] rowsAffected = new int[products.size()];
+        String errorMessage = "Failed to update a batch of products";
+        int chunkSize = properties.getBatch().getChunkSize();
+        try (Connection connection = dataSource.getConnection()) {
+            boolean autoCommit = connection.getAutoCommit();
+            connection.setAutoCommit(false);
+            // the driver appends RETURNING version, and hands back one row per updated product in batch order
+            try (PreparedStatement preparedStatement = connection.prepareStatement(UPDATE_SQL, new String[]{"version"})) {
+                markBulkWrite(connection, products.size());
+                for (int start = 0; start < products.size(); start += chunkSize) {
+                    for (Product product : products.subList(start, Math.min(start + chunkSize, products.size()))) {
+                        bindProduct(preparedStatement, product);
+                        preparedStatement.setLong(6, product.getId());
+                        preparedStatement.addBatch();
+                    }
+                    int[] chunkRowsAffected = preparedStatement.executeBatch();
+                    System.arraycopy(chunkRowsAffected, 0, rowsAffected, start, chunkRowsAffected.length);
+
+                    try (ResultSet versions = preparedStatement.getGeneratedKeys()) {
+                        for (int i = start; i < start + chunkRowsAffected.length; i++) {
+                            if (rowsAffected[i] > 0) {
+                                if (!versions.next()) {
+                                    throw new SQLException("expected a version for every updated product");
+                                }
+                                products.get(i).setVersion(versions.getLong(1));
+                            }
+                        }
+                    }
+                }
+                connection.commit();
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(autoCommit);
+            }
+        } catch (SQLException e) {
+            log.error("Failed to update a batch of {} products", products.size(), e);
+            throw new DatabaseException(errorMessage, e);
+        }
+        products.forEach(product -> recentWrites.record(product.getId()));
+        return rowsAffected;
+    }
+
+    @Override
+    public int[] deleteAllById(List<Long> ids) {
+        int[] rowsAffected = new int[ids.size()];
+        String errorMessage = "Failed to delete a batch of products";
+        int chunkSize = properties.getBatch().getChunkSize();
+        try (Connection connection = dataSource.getConnection()) {
+            boolean autoCommit = connection.getAutoCommit();
+            connection.setAutoCommit(false);
+            try (PreparedStatement preparedStatement = connection.prepareStatement(DELETE_SQL)) {
+                markBulkWrite(connection, ids.size());
+                for (int start = 0; start < ids.size(); start += chunkSize) {
+                    for (Long id : ids.subList(start, Math.min(start + chunkSize, ids.size()))) {
+                        preparedStatement.setLong(1, id);
+                        preparedStatement.addBatch();
+                    }
+                    int[] chunkRowsAffected = preparedStatement.executeBatch();
+                    System.arraycopy(chunkRowsAffected, 0, rowsAffected, start, chunkRowsAffected.length);
+                }
+                connection.commit();
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(autoCommit);
+            }
+        } catch (SQLException e) {
+            log.error("Failed to delete a batch of {} products", ids.size(), e);
+            throw new DatabaseException(errorMessage, e);
+        }
+        recentWrites.recordAll(ids);
+        return rowsAffected;
+    }
+
+    @Override
+    public int[] updateQuantities(List<QuantityChange> changes) {
+        int[] rowsAffected = new int[changes.size()];
+        String errorMessage = "Failed to update product quantities";
+        int chunkSize = properties.getBatch().getChunkSize();
+        boolean commitSent = false;
+        try (Connection connection = dataSource.getConnection()) {
+            boolean autoCommit = connection.getAutoCommit();
+            connection.setAutoCommit(false);
+            try (PreparedStatement preparedStatement = connection.prepareStatement(UPDATE_QUANTITY_SQL)) {
+                markBulkWrite(connection, changes.size());
+                for (int start = 0; start < changes.size(); start += chunkSize) {
+                    for (QuantityChange change : changes.subList(start, Math.min(start + chunkSize, changes.size()))) {
+                        preparedStatement.setBoolean(1, change.isAbsolute());
+                        preparedStatement.setInt(2, change.getAmount());
+                        preparedStatement.setInt(3, change.getAmount());
+                        preparedStatement.setLong(4, change.getId());
+                        preparedStatement.setBoolean(5, change.isAbsolute());
+                        preparedStatement.setInt(6, change.getAmount());
+                        preparedStatement.setInt(7, change.getAmount());
+                        preparedStatement.addBatch();
+                    }
+                    int[] chunkRowsAffected = preparedStatement.executeBatch();
+                    System.arraycopy(chunkRowsAffected, 0, rowsAffected, start, chunkRowsAffected.length);
+                }
+                commitSent = true;
+                connection.commit();
+            } catch (SQLException e) {
+                if (!commitSent) {
+                    connection.rollback();
+                }
+                throw e;
+            } finally {
+                connection.setAutoCommit(autoCommit);
+            }
+        } catch (SQLException e) {
+            log.error("Failed to update quantities of {} products", changes.size(), e);
+            // deltas are not safe to retry once the commit may have reached the server
+            throw commitSent ? new CommitOutcomeUnknownException(errorMessage, e) : new DatabaseException(errorMessage, e);
+        }
+        changes.forEach(change -> recentWrites.record(change.getId()));
+        return rowsAffected;
+    }
+
+    @Override
+    public long copyFrom(Reader rows) {
+        String errorMessage = "Failed to copy products";
+        try (Connection connection = dataSource.getConnection()) {
+            long copied = connection.unwrap(PGConnection.class).getCopyAPI()
+                    .copyIn(COPY_SQL, rows, properties.getIngest().getBufferSize());
+            recentWrites.recordUnknown();
+            return copied;
+        } catch (SQLException | IOException e) {
+            log.error(errorMessage, e);
+            throw new DatabaseException(errorMessage, e);
+        }
+    }
+
+    /** Makes the change trigger send one RESET for the transaction rather than a notification per row. */
+    private static void markBulkWrite(Connection connection, int rows) throws SQLException {
+        if (rows > BULK_WRITE_ROWS) {
+            try (Statement statement = connection.createStatement()) {
+                statement.execute(BULK_WRITE_SQL);
+            }
+        }
+    }
+
     private Product insert(Product product) {
         String errorMessage = "Failed to insert a product";
-        String sql = "INSERT INTO products (name, description, price, quantity, category) VALUES (?, ?, ?, ?, ?)";
         try (Connection connection = dataSource.getConnection();
-             PreparedStatement preparedStatement = connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
-            preparedStatement.setString(1, product.getName());
-            preparedStatement.setString(2, product.getDescription());
-            preparedStatement.setDouble(3, product.getPrice());
-            preparedStatement.setInt(4, product.getQuantity());
-            preparedStatement.setString(5, product.getCategory());
+             PreparedStatement preparedStatement = connection.prepareStatement(INSERT_SQL, Statement.RETURN_GENERATED_KEYS)) {
+            bindProduct(preparedStatement, product);
 
             int rowsAffected = preparedStatement.executeUpdate();
             if (rowsAffected == 0) {
@@ -147,6 +754,8 @@ public class JdbcProductRepository implements ProductRepository {
             try (ResultSet generatedKeys = preparedStatement.getGeneratedKeys()) {
                 if (generatedKeys.next()) {
                     product.setId(generatedKeys.getLong(1));
+                    product.setVersion(0);
+                    recentWrites.record(product.getId());
                     return product;
                 }
                 throw new SQLException("no keys returned after updating a table");
@@ -163,19 +772,17 @@ public class JdbcProductRepository implements ProductRepository {
 
     private Product update(Product product) {
         String errorMessage = "Failed to update a product";
-        String sql = "UPDATE products SET name = ?, description = ?, price = ?, quantity = ?, category = ? WHERE id = ?";
         try (Connection connection = dataSource.getConnection();
-             PreparedStatement preparedStatement = connection.prepareStatement(sql)) {
-            preparedStatement.setString(1, product.getName());
-            preparedStatement.setString(2, product.getDescription());
-            preparedStatement.setDouble(3, product.getPrice());
-            preparedStatement.setInt(4, product.getQuantity());
-            preparedStatement.setString(5, product.getCategory());
+             PreparedStatement preparedStatement = connection.prepareStatement(UPDATE_RETURNING_SQL)) {
+            bindProduct(preparedStatement, product);
             preparedStatement.setLong(6, product.getId());
 
-            int rowsAffected = preparedStatement.executeUpdate();
-            if (rowsAffected == 0) {
-                throw new SQLException("no rows affected after updating a table");
+            try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                recentWrites.record(product.getId());
+                if (!resultSet.next()) {
+                    throw new SQLException("no rows affected after updating a table");
+                }
+                product.setVersion(resultSet.getLong(1));
             }
         } catch (SQLException e) {
             log.error("Failed to update a product: {}", product, e);
@@ -184,16 +791,56 @@ public class JdbcProductRepository implements ProductRepository {
         return product;
     }
 
-    private Product mapRowToProduct(ResultSet resultSet) throws SQLException {
-        Product product = new Product();
+    /** Connection for a read of any products, which has to see every write this instance made. */
+    private Connection getReadConnection() throws SQLException {
+        return getReadConnection(recentWrites.lastWrite());
+    }
 
-        product.setId(resultSet.getLong("id"));
-        product.setName(resultSet.getString("name"));
-        product.setDescription(resultSet.getString("description"));
-        product.setPrice(resultSet.getDouble("price"));
-        product.setQuantity(resultSet.getInt("quantity"));
-        product.setCategory(resultSet.getString("category"));
+    /** Connection from the replica if it has replayed what was written at writtenAt, else from the primary. */
+    private Connection getReadConnection(long writtenAt) throws SQLException {
+        return ReadWriteRoutingDataSource.getReplicaConnection(dataSource, writtenAt);
+    }
 
-        return product;
+    private void bindProduct(PreparedStatement preparedStatement, Product product) throws SQLException {
+        preparedStatement.setString(1, product.getName());
+        preparedStatement.setString(2, product.getDescription());
+        preparedStatement.setDouble(3, product.getPrice());
+        preparedStatement.setInt(4, product.getQuantity());
+        preparedStatement.setString(5, product.getCategory());
+    }
+
+    /**
+     * Keeps letters and digits only, so nothing in the text is read as tsquery syntax.
+     *
+     * @throws InvalidRequestException if a word is shorter than {@link #MIN_PREFIX_LENGTH}
+     */
+    static String toPrefixQuery(String text) {
+        StringJoiner query = new StringJoiner(" & ");
+        for (String word : NON_WORD.split(text.toLowerCase(Locale.ROOT))) {
+            if (word.isEmpty()) {
+                continue;
+            }
+            if (word.codePointCount(0, word.length()) < MIN_PREFIX_LENGTH) {
+                throw new InvalidRequestException("Search words must have at least " + MIN_PREFIX_LENGTH + " characters: " + word);
+            }
+            query.add(word + ":*");
+        }
+        return query.toString();
+    }
+
+    static String escapeLikePattern(String value) {
+        return value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+
+    /** Maps a row selected with {@link #COLUMNS}; primitive getters avoid boxing and BigDecimal per row. */
+    Product mapRowToProduct(ResultSet resultSet) throws SQLException {
+        return new Product(
+                resultSet.getLong(1),
+                resultSet.getString(2),
+                resultSet.getString(3),
+                resultSet.getDouble(4),
+                resultSet.getInt(5),
+                resultSet.getString(6),
+                resultSet.getLong(7));
     }
 }
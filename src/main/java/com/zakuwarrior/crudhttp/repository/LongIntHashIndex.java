@@ -0,0 +1,112 @@
+package com.zakuwarrior.crudhttp.repository;
+
+/**
+ * Open-addressing map from positive {@code long} keys to {@code int} values, kept in two primitive
+ * arrays so lookups neither box nor allocate. Removal shifts the rest of the probe chain back
+ * instead of leaving tombstones, so lookups stay short however many keys come and go.
+ */
+final class LongIntHashIndex {
+    private static final long EMPTY = 0;
+    static final int ABSENT = -1;
+
+    private long[] keys;
+    private int[] values;
+    private int mask;
+    private int size;
+
+    LongIntHashIndex(int expectedSize) {
+        allocate(tableSizeFor(Math.max(16, expectedSize * 2)));
+    }
+
+    int get(long key) {
+        for (int i = home(key); ; i = (i + 1) & mask) {
+            long candidate = keys[i];
+            if (candidate == key) {
+                return values[i];
+            }
+            if (candidate == EMPTY) {
+                return ABSENT;
+            }
+        }
+    }
+
+    void put(long key, int value) {
+        if (key == EMPTY) {
+            throw new IllegalArgumentException("Key must not be " + EMPTY);
+        }
+        if ((size + 1) * 2 > keys.length) {
+            resize(keys.length * 2);
+        }
+        for (int i = home(key); ; i = (i + 1) & mask) {
+            if (keys[i] == key) {
+                values[i] = value;
+                return;
+            }
+            if (keys[i] == EMPTY) {
+                keys[i] = key;
+                values[i] = value;
+                size++;
+                return;
+            }
+        }
+    }
+
+    int remove(long key) {
+        int i = home(key);
+        while (keys[i] != key) {
+            if (keys[i] == EMPTY) {
+                return ABSENT;
+            }
+            i = (i + 1) & mask;
+        }
+        int removed = values[i];
+
+        int gap = i;
+        for (int j = (i + 1) & mask; keys[j] != EMPTY; j = (j + 1) & mask) {
+            // an entry may fill the gap only if the gap lies between its home slot and where it sits now
+            if (((j - home(keys[j])) & mask) >= ((j - gap) & mask)) {
+                keys[gap] = keys[j];
+                values[gap] = values[j];
+                gap = j;
+            }
+        }
+        keys[gap] = EMPTY;
+        size--;
+        return removed;
+    }
+
+    int size() {
+        return size;
+    }
+
+    private int home(long key) {
+        long hash = key * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+
+    private void resize(int capacity) {
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        allocate(capacity);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != EMPTY) {
+                int j = home(oldKeys[i]);
+                while (keys[j] != EMPTY) {
+                    j = (j + 1) & mask;
+                }
+                keys[j] = oldKeys[i];
+                values[j] = oldValues[i];
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = new int[capacity];
+        mask = capacity - 1;
+    }
+
+    private static int tableSizeFor(int capacity) {
+        return Integer.highestOneBit(capacity - 1) << 1;
+    }
+}
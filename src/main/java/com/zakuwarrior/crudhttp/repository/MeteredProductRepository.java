@@ -0,0 +1,232 @@
+package com.zakuwarrior.crudhttp.repository;
+
+import com.zakuwarrior.crudhttp.model.CategoryStatistics;
+import com.zakuwarrior.crudhttp.model.Product;
+import com.zakuwarrior.crudhttp.model.ProductSearchCriteria;
+import com.zakuwarrior.crudhttp.model.QuantityChange;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.io.Reader;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+import java.util.function.ToLongFunction;
+
+/**
+ * Records latency, row counts and errors of every call to the wrapped repository.
+ * Meters are tagged with the repository method, so percentiles can be compared per query,
+ * and registered on a method's first call.
+ */
+public class MeteredProductRepository implements ProductRepository {
+    private final ProductRepository delegate;
+    private final MeterRegistry registry;
+    private final Map<String, MethodMeters> meters = new ConcurrentHashMap<>();
+
+    public MeteredProductRepository(ProductRepository delegate, MeterRegistry registry) {
+        this.delegate = delegate;
+        this.registry = registry;
+    }
+
+    @Override
+    public List<Product> findAll() {
+        return record("findAll", delegate::findAll, List::size);
+    }
+
+    @Override
+    public void streamAll(Consumer<Product> consumer) {
+        long[] rows = {0};
+        long[] consumerNanos = {0};
+        // the consumer writes to the client, so only the time spent fetching rows counts as query latency
+        record("streamAll", () -> {
+            delegate.streamAll(product -> {
+                rows[0]++;
+                long start = System.nanoTime();
+                try {
+                    consumer.accept(product);
+                } finally {
+                    consumerNanos[0] += System.nanoTime() - start;
+                }
+            });
+            return rows[0];
+        }, Long::longValue, () -> consumerNanos[0]);
+    }
+
+    @Override
+    public List<Product> findByPage(int offset, int limit) {
+        return record("findByPage", () -> delegate.findByPage(offset, limit), List::size);
+    }
+
+    @Override
+    public List<Product> findAfterId(long lastId, int limit) {
+        return record("findAfterId", () -> delegate.findAfterId(lastId, limit), List::size);
+    }
+
+    @Override
+    public List<Product> search(ProductSearchCriteria criteria, int offset, int limit) {
+        return record("search", () -> delegate.search(criteria, offset, limit), List::size);
+    }
+
+    @Override
+    public List<Product> searchText(String text, int offset, int limit) {
+        return record("searchText", () -> delegate.searchText(text, offset, limit), List::size);
+    }
+
+    @Override
+    public long countAll() {
+        return record("countAll", delegate::countAll, count -> 1);
+    }
+
+    @Override
+    public List<CategoryStatistics> aggregateByCategory(String category) {
+        return record("aggregateByCategory", () -> delegate.aggregateByCategory(category), List::size);
+    }
+
+    @Override
+    public Optional<Product> findById(long id) {
+        return record("findById", () -> delegate.findById(id), product -> product.isPresent() ? 1 : 0);
+    }
+
+    @Override
+    public List<Product> findAllById(long[] ids) {
+        return record("findAllById", () -> delegate.findAllById(ids), List::size);
+    }
+
+    @Override
+    public OptionalLong findVersionById(long id) {
+        return record("findVersionById", () -> delegate.findVersionById(id), version -> version.isPresent() ? 1 : 0);
+    }
+
+    @Override
+    public Product save(Product product) {
+        return record("save", () -> delegate.save(product), savedProduct -> 1);
+    }
+
+    @Override
+    public void deleteById(long id) {
+        record("deleteById", () -> {
+            delegate.deleteById(id);
+            return null;
+        }, nothing -> 1);
+    }
+
+    @Override
+    public boolean updateIfVersion(Product product, long expectedVersion) {
+        return record("updateIfVersion", () -> delegate.updateIfVersion(product, expectedVersion), updated -> updated ? 1 : 0);
+    }
+
+    @Override
+    public boolean deleteByIdIfVersion(long id, long expectedVersion) {
+        return record("deleteByIdIfVersion", () -> delegate.deleteByIdIfVersion(id, expectedVersion), deleted -> deleted ? 1 : 0);
+    }
+
+    @Override
+    public Optional<Product> updateReturningPrevious(Product product, Long expectedVersion) {
+        return record("updateReturningPrevious", () -> delegate.updateReturningPrevious(product, expectedVersion),
+                previous -> previous.isPresent() ? 1 : 0);
+    }
+
+    @Override
+    public Optional<Product> deleteReturningPrevious(long id, Long expectedVersion) {
+        return record("deleteReturningPrevious", () -> delegate.deleteReturningPrevious(id, expectedVersion),
+                previous -> previous.isPresent() ? 1 : 0);
+    }
+
+    @Override
+    public Optional<Product> updateQuantityReturningPrevious(QuantityChange change) {
+        return record("updateQuantityReturningPrevious", () -> delegate.updateQuantityReturningPrevious(change),
+                previous -> previous.isPresent() ? 1 : 0);
+    }
+
+    @Override
+    public List<Long> insertAll(List<Product> products) {
+        return record("insertAll", () -> delegate.insertAll(products), List::size);
+    }
+
+    @Override
+    public int[] updateAll(List<Product> products) {
+        return record("updateAll", () -> delegate.updateAll(products), MeteredProductRepository::sum);
+    }
+
+    @Override
+    public int[] deleteAllById(List<Long> ids) {
+        return record("deleteAllById", () -> delegate.deleteAllById(ids), MeteredProductRepository::sum);
+    }
+
+    @Override
+    public int[] updateQuantities(List<QuantityChange> changes) {
+        return record("updateQuantities", () -> delegate.updateQuantities(changes), MeteredProductRepository::sum);
+    }
+
+    @Override
+    public long copyFrom(Reader rows) {
+        return record("copyFrom", () -> delegate.copyFrom(rows), Long::longValue);
+    }
+
+    private <T> T record(String method, Supplier<T> call, ToLongFunction<T> rowCount) {
+        return record(method, call, rowCount, () -> 0);
+    }
+
+    /**
+     * @param excludedNanos time spent outside the database during the call, such as in a row consumer
+     */
+    private <T> T record(String method, Supplier<T> call, ToLongFunction<T> rowCount, LongSupplier excludedNanos) {
+        MethodMeters methodMeters = meters.computeIfAbsent(method, name -> new MethodMeters(name, registry));
+        long start = System.nanoTime();
+        try {
+            T result = call.get();
+            methodMeters.success.record(System.nanoTime() - start - excludedNanos.getAsLong(), TimeUnit.NANOSECONDS);
+            methodMeters.rows.record(rowCount.applyAsLong(result));
+            return result;
+        } catch (RuntimeException e) {
+            methodMeters.failure.record(System.nanoTime() - start - excludedNanos.getAsLong(), TimeUnit.NANOSECONDS);
+            methodMeters.errors.increment();
+            throw e;
+        }
+    }
+
+    private static long sum(int[] rowsAffected) {
+        long sum = 0;
+        for (int rows : rowsAffected) {
+            sum += rows;
+        }
+        return sum;
+    }
+
+    private static final class MethodMeters {
+        private final Timer success;
+        private final Timer failure;
+        private final DistributionSummary rows;
+        private final Counter errors;
+
+        private MethodMeters(String method, MeterRegistry registry) {
+            this.success = Timer.builder("products.repository")
+                    .description("Latency of product repository calls")
+                    .tag("method", method)
+                    .tag("outcome", "success")
+                    .register(registry);
+            this.failure = Timer.builder("products.repository")
+                    .description("Latency of product repository calls")
+                    .tag("method", method)
+                    .tag("outcome", "error")
+                    .register(registry);
+            this.rows = DistributionSummary.builder("products.repository.rows")
+                    .description("Rows read or written by product repository calls")
+                    .baseUnit("rows")
+                    .tag("method", method)
+                    .register(registry);
+            this.errors = Counter.builder("products.repository.errors")
+                    .description("Failed product repository calls")
+                    .tag("method", method)
+                    .register(registry);
+        }
+    }
+}
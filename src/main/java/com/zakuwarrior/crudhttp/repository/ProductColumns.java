@@ -0,0 +1,320 @@
+package com.zakuwarrior.crudhttp.repository;
+
+import com.zakuwarrior.crudhttp.model.Product;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The products table held column by column: ids, versions, prices and quantities in primitive arrays,
+ * categories as codes into a dictionary, and names and descriptions as UTF-8 in one off-heap buffer.
+ * Rows are kept in id order, like the repository returns them, and found by id through a
+ * {@link LongIntHashIndex}. Products are only materialised for the rows a read returns.
+ *
+ * <p>Deleted rows leave a hole and replaced text leaves garbage in the buffer; both are compacted
+ * away once they make up a noticeable share. Not thread-safe: callers guard it with a lock.
+ */
+public final class ProductColumns {
+    private static final long NO_TEXT = -1;
+    private static final int MIN_HOLES_TO_COMPACT = 64;
+    private static final int MIN_GARBAGE_TO_COMPACT = 1 << 20;
+
+    private long[] ids;
+    private long[] versions;
+    private double[] prices;
+    private int[] quantities;
+    private int[] categories;
+    private long[] names;
+    private long[] descriptions;
+    private boolean[] deleted;
+    private int slots;
+    private int holes;
+
+    private final List<String> categoryDictionary = new ArrayList<>();
+    private final Map<String, Integer> categoryCodes = new HashMap<>();
+    private ByteBuffer text;
+    private int textUsed;
+    private long textGarbage;
+    private final LongIntHashIndex index;
+
+    public ProductColumns(int expectedSize) {
+        int capacity = Math.max(16, expectedSize);
+        allocate(capacity);
+        text = ByteBuffer.allocateDirect(capacity * 32);
+        index = new LongIntHashIndex(capacity);
+    }
+
+    public int size() {
+        return slots - holes;
+    }
+
+    public long offHeapBytes() {
+        return text.capacity();
+    }
+
+    public Product get(long id) {
+        int slot = index.get(id);
+        return slot == LongIntHashIndex.ABSENT ? null : read(slot);
+    }
+
+    /** Version of the product, or -1 when it is not held. */
+    public long version(long id) {
+        int slot = index.get(id);
+        return slot == LongIntHashIndex.ABSENT ? -1 : versions[slot];
+    }
+
+    /** The highest id ever held, deleted or not, or 0 when nothing was. */
+    public long lastId() {
+        return slots == 0 ? 0 : ids[slots - 1];
+    }
+
+    public List<Product> page(int offset, int limit) {
+        return readFrom(holes == 0 ? Math.min(offset, slots) : skipLive(offset), limit);
+    }
+
+    public List<Product> after(long lastId, int limit) {
+        int low = 0;
+        int high = slots;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (ids[middle] <= lastId) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return readFrom(low, limit);
+    }
+
+    /**
+     * Inserts or replaces a product, unless the held row already has a newer version,
+     * which happens when concurrent writes to one product are applied out of order.
+     */
+    public boolean upsert(Product product) {
+        long id = product.getId();
+        int slot = index.get(id);
+        if (slot != LongIntHashIndex.ABSENT) {
+            if (product.getVersion() < versions[slot]) {
+                return false;
+            }
+            write(slot, product);
+            compactIfWasteful();
+            return true;
+        }
+
+        int position = slots == 0 || id > ids[slots - 1] ? slots : insertionPoint(id);
+        if (position < slots && ids[position] == id) {
+            // the product was deleted here and has come back
+            deleted[position] = false;
+            holes--;
+        } else {
+            ensureCapacity(slots + 1);
+            if (position < slots) {
+                shiftRight(position);
+            }
+            slots++;
+            ids[position] = id;
+            deleted[position] = false;
+            names[position] = NO_TEXT;
+            descriptions[position] = NO_TEXT;
+        }
+        write(position, product);
+        index.put(id, position);
+        return true;
+    }
+
+    public boolean remove(long id) {
+        int slot = index.remove(id);
+        if (slot == LongIntHashIndex.ABSENT) {
+            return false;
+        }
+        deleted[slot] = true;
+        holes++;
+        textGarbage += length(names[slot]) + length(descriptions[slot]);
+        names[slot] = NO_TEXT;
+        descriptions[slot] = NO_TEXT;
+        compactIfWasteful();
+        return true;
+    }
+
+    /**
+     * Applies a quantity change the database has accepted, bumping the version as the UPDATE did.
+     * Returns false when the product is not held.
+     */
+    public boolean changeQuantity(long id, boolean absolute, int amount) {
+        int slot = index.get(id);
+        if (slot == LongIntHashIndex.ABSENT) {
+            return false;
+        }
+        quantities[slot] = absolute ? amount : quantities[slot] + amount;
+        versions[slot]++;
+        return true;
+    }
+
+    private List<Product> readFrom(int slot, int limit) {
+        List<Product> products = new ArrayList<>(Math.max(0, Math.min(limit, slots - slot)));
+        for (; slot < slots && products.size() < limit; slot++) {
+            if (!deleted[slot]) {
+                products.add(read(slot));
+            }
+        }
+        return products;
+    }
+
+    private int skipLive(int count) {
+        int slot = 0;
+        for (int skipped = 0; slot < slots && skipped < count; slot++) {
+            if (!deleted[slot]) {
+                skipped++;
+            }
+        }
+        while (slot < slots && deleted[slot]) {
+            slot++;
+        }
+        return slot;
+    }
+
+    private Product read(int slot) {
+        return new Product(ids[slot], readText(names[slot]), readText(descriptions[slot]),
+                prices[slot], quantities[slot], categoryDictionary.get(categories[slot]), versions[slot]);
+    }
+
+    private void write(int slot, Product product) {
+        versions[slot] = product.getVersion();
+        prices[slot] = product.getPrice();
+        quantities[slot] = product.getQuantity();
+        categories[slot] = categoryCodes.computeIfAbsent(product.getCategory(), category -> {
+            categoryDictionary.add(category);
+            return categoryDictionary.size() - 1;
+        });
+        names[slot] = writeText(product.getName(), names[slot]);
+        descriptions[slot] = writeText(product.getDescription(), descriptions[slot]);
+    }
+
+    private long writeText(String value, long previous) {
+        textGarbage += length(previous);
+        if (value == null) {
+            return NO_TEXT;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        if (textUsed + bytes.length > text.capacity()) {
+            ByteBuffer grown = ByteBuffer.allocateDirect(Math.max(text.capacity() * 2, textUsed + bytes.length));
+            grown.put(0, text, 0, textUsed);
+            text = grown;
+        }
+        text.put(textUsed, bytes);
+        long reference = (long) textUsed << 32 | bytes.length;
+        textUsed += bytes.length;
+        return reference;
+    }
+
+    private String readText(long reference) {
+        if (reference == NO_TEXT) {
+            return null;
+        }
+        byte[] bytes = new byte[length(reference)];
+        text.get((int) (reference >>> 32), bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static int length(long reference) {
+        return reference == NO_TEXT ? 0 : (int) reference;
+    }
+
+    private int insertionPoint(long id) {
+        int position = Arrays.binarySearch(ids, 0, slots, id);
+        return position >= 0 ? position : -position - 1;
+    }
+
+    private void shiftRight(int position) {
+        int count = slots - position;
+        System.arraycopy(ids, position, ids, position + 1, count);
+        System.arraycopy(versions, position, versions, position + 1, count);
+        System.arraycopy(prices, position, prices, position + 1, count);
+        System.arraycopy(quantities, position, quantities, position + 1, count);
+        System.arraycopy(categories, position, categories, position + 1, count);
+        System.arraycopy(names, position, names, position + 1, count);
+        System.arraycopy(descriptions, position, descriptions, position + 1, count);
+        System.arraycopy(deleted, position, deleted, position + 1, count);
+        for (int slot = position + 1; slot <= slots; slot++) {
+            if (!deleted[slot]) {
+                index.put(ids[slot], slot);
+            }
+        }
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity <= ids.length) {
+            return;
+        }
+        int grown = Math.max(capacity, ids.length + (ids.length >> 1));
+        ids = Arrays.copyOf(ids, grown);
+        versions = Arrays.copyOf(versions, grown);
+        prices = Arrays.copyOf(prices, grown);
+        quantities = Arrays.copyOf(quantities, grown);
+        categories = Arrays.copyOf(categories, grown);
+        names = Arrays.copyOf(names, grown);
+        descriptions = Arrays.copyOf(descriptions, grown);
+        deleted = Arrays.copyOf(deleted, grown);
+    }
+
+    private void compactIfWasteful() {
+        if ((holes >= MIN_HOLES_TO_COMPACT && holes > slots / 8)
+                || (textGarbage >= MIN_GARBAGE_TO_COMPACT && textGarbage > textUsed / 2)) {
+            compact();
+        }
+    }
+
+    private void compact() {
+        ByteBuffer compacted = ByteBuffer.allocateDirect(Math.max(1024, textUsed - (int) textGarbage));
+        int used = 0;
+        int live = 0;
+        for (int slot = 0; slot < slots; slot++) {
+            if (deleted[slot]) {
+                continue;
+            }
+            ids[live] = ids[slot];
+            versions[live] = versions[slot];
+            prices[live] = prices[slot];
+            quantities[live] = quantities[slot];
+            categories[live] = categories[slot];
+            names[live] = moveText(names[slot], compacted, used);
+            used += length(names[live]);
+            descriptions[live] = moveText(descriptions[slot], compacted, used);
+            used += length(descriptions[live]);
+            deleted[live] = false;
+            index.put(ids[live], live);
+            live++;
+        }
+        Arrays.fill(deleted, live, slots, false);
+        slots = live;
+        holes = 0;
+        text = compacted;
+        textUsed = used;
+        textGarbage = 0;
+    }
+
+    private long moveText(long reference, ByteBuffer target, int position) {
+        if (reference == NO_TEXT) {
+            return NO_TEXT;
+        }
+        target.put(position, text, (int) (reference >>> 32), length(reference));
+        return (long) position << 32 | length(reference);
+    }
+
+    private void allocate(int capacity) {
+        ids = new long[capacity];
+        versions = new long[capacity];
+        prices = new double[capacity];
+        quantities = new int[capacity];
+        categories = new int[capacity];
+        names = new long[capacity];
+        descriptions = new long[capacity];
+        deleted = new boolean[capacity];
+    }
+}
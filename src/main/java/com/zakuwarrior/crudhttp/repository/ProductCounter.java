@@ -0,0 +1,65 @@
+package com.zakuwarrior.crudhttp.repository;
+
+import com.zakuwarrior.crudhttp.config.ProductProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Profile;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Answers countAll according to the configured {@link ProductProperties.Count.Strategy}.
+ * The CACHED counter is adjusted by {@link CountingProductRepository} on every write and
+ * periodically reset from an exact count to undo drift from writes made elsewhere.
+ */
+@Slf4j
+@Profile("!reactive")
+@Component
+public class ProductCounter {
+    private static final long UNKNOWN = -1;
+
+    private final JdbcProductRepository jdbcProductRepository;
+    private final ProductProperties.Count properties;
+    private final AtomicLong count = new AtomicLong(UNKNOWN);
+
+    public ProductCounter(JdbcProductRepository jdbcProductRepository, ProductProperties properties) {
+        this.jdbcProductRepository = jdbcProductRepository;
+        this.properties = properties.getCount();
+    }
+
+    public long count() {
+        return switch (properties.getStrategy()) {
+            case EXACT -> jdbcProductRepository.countAll();
+            case CACHED -> {
+                long cached = count.get();
+                yield cached == UNKNOWN ? reconcile() : cached;
+            }
+            case ESTIMATED -> {
+                long estimate = jdbcProductRepository.estimateCount();
+                // the table has not been analyzed yet, so the planner has no estimate
+                yield estimate < 0 ? jdbcProductRepository.countAll() : estimate;
+            }
+        };
+    }
+
+    public void adjust(long delta) {
+        count.getAndUpdate(current -> current == UNKNOWN ? UNKNOWN : Math.max(0, current + delta));
+    }
+
+    @Scheduled(fixedDelayString = "${products.count.reconcile-interval:PT1M}")
+    public void scheduledReconcile() {
+        if (properties.getStrategy() == ProductProperties.Count.Strategy.CACHED) {
+            reconcile();
+        }
+    }
+
+    private long reconcile() {
+        long exact = jdbcProductRepository.countAll();
+        long previous = count.getAndSet(exact);
+        if (previous != UNKNOWN && previous != exact) {
+            log.debug("Reconciled products count from {} to {}", previous, exact);
+        }
+        return exact;
+    }
+}
@@ -1,15 +1,49 @@
 package com.zakuwarrior.crudhttp.repository;
 
+import com.zakuwarrior.crudhttp.model.CategoryStatistics;
 import com.zakuwarrior.crudhttp.model.Product;
+import com.zakuwarrior.crudhttp.model.ProductSearchCriteria;
+import com.zakuwarrior.crudhttp.model.QuantityChange;
 
+import java.io.Reader;
 import java.util.List;
 import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.function.Consumer;
 
 public interface ProductRepository {
     List<Product> findAll();
+    void streamAll(Consumer<Product> consumer);
     List<Product> findByPage(int offset, int limit);
+    List<Product> findAfterId(long lastId, int limit);
+    List<Product> search(ProductSearchCriteria criteria, int offset, int limit);
+    /** Products whose name or description has words starting with every word of the text, best matches first. */
+    List<Product> searchText(String text, int offset, int limit);
     long countAll();
+    List<CategoryStatistics> aggregateByCategory(String category);
     Optional<Product> findById(long id);
+    /** Products with any of the given ids, in no particular order; ids without a product are left out. */
+    List<Product> findAllById(long[] ids);
+    OptionalLong findVersionById(long id);
     Product save(Product product);
     void deleteById(long id);
+    boolean updateIfVersion(Product product, long expectedVersion);
+    boolean deleteByIdIfVersion(long id, long expectedVersion);
+    /**
+     * Updates the product like {@link #save}, or like {@link #updateIfVersion} unless expectedVersion is null,
+     * and returns the row as the same statement replaced it; empty if it was not at expectedVersion.
+     */
+    Optional<Product> updateReturningPrevious(Product product, Long expectedVersion);
+    /**
+     * Deletes the product like {@link #deleteById}, or like {@link #deleteByIdIfVersion} unless expectedVersion
+     * is null, and returns the deleted row; empty if it was not at expectedVersion.
+     */
+    Optional<Product> deleteReturningPrevious(long id, Long expectedVersion);
+    /** Applies one quantity change and returns the row as it was before; empty if the change was not applied. */
+    Optional<Product> updateQuantityReturningPrevious(QuantityChange change);
+    List<Long> insertAll(List<Product> products);
+    int[] updateAll(List<Product> products);
+    int[] deleteAllById(List<Long> ids);
+    int[] updateQuantities(List<QuantityChange> changes);
+    long copyFrom(Reader rows);
 }
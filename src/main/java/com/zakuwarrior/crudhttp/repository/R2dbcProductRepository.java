@@ -0,0 +1,421 @@
+package com.zakuwarrior.crudhttp.repository;
+
+import com.zakuwarrior.crudhttp.config.ProductProperties;
+import com.zakuwarrior.crudhttp.exception.DatabaseException;
+import com.zakuwarrior.crudhttp.exception.InvalidRequestException;
+import com.zakuwarrior.crudhttp.model.Product;
+import com.zakuwarrior.crudhttp.model.ProductSearchCriteria;
+import com.zakuwarrior.crudhttp.model.QuantityChange;
+import io.netty.buffer.Unpooled;
+import io.r2dbc.postgresql.api.PostgresqlConnection;
+import io.r2dbc.spi.Connection;
+import io.r2dbc.spi.Readable;
+import io.r2dbc.spi.Result;
+import io.r2dbc.spi.Statement;
+import io.r2dbc.spi.Wrapped;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Profile;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+@Slf4j
+@Profile("reactive")
+@Repository
+public class R2dbcProductRepository implements ReactiveProductRepository {
+    private final DatabaseClient databaseClient;
+    private final TransactionalOperator transactionalOperator;
+    private final ProductProperties properties;
+
+    public R2dbcProductRepository(DatabaseClient databaseClient, TransactionalOperator transactionalOperator,
+                                  ProductProperties properties) {
+        this.databaseClient = databaseClient;
+        this.transactionalOperator = transactionalOperator;
+        this.properties = properties;
+    }
+
+    @Override
+    public Flux<Product> findAll() {
+        String errorMessage = "Failed to fetch all products";
+        String sql = "SELECT * FROM products ORDER BY id";
+        // rows are requested from the server as the subscriber demands them, a fetch size at a time
+        return databaseClient.sql(sql)
+                .filter(statement -> statement.fetchSize(properties.getExport().getFetchSize()))
+                .map(this::mapRowToProduct)
+                .all()
+                .onErrorMap(e -> !(e instanceof DatabaseException), e -> failure(errorMessage, e));
+    }
+
+    @Override
+    public Flux<Product> findByPage(int offset, int limit) {
+        String errorMessage = "Failed to fetch products by page";
+        String sql = "SELECT * FROM products ORDER BY id LIMIT :limit OFFSET :offset";
+        return databaseClient.sql(sql)
+                .bind("limit", limit)
+                .bind("offset", offset)
+                .map(this::mapRowToProduct)
+                .all()
+                .onErrorMap(e -> !(e instanceof DatabaseException), e -> failure(errorMessage, e));
+    }
+
+    @Override
+    public Flux<Product> findAfterId(long lastId, int limit) {
+        String errorMessage = "Failed to fetch products after an id";
+        String sql = "SELECT * FROM products WHERE id > :lastId ORDER BY id LIMIT :limit";
+        return databaseClient.sql(sql)
+                .bind("lastId", lastId)
+                .bind("limit", limit)
+                .map(this::mapRowToProduct)
+                .all()
+                .onErrorMap(e -> !(e instanceof DatabaseException), e -> failure(errorMessage, e));
+    }
+
+    @Override
+    public Flux<Product> search(ProductSearchCriteria criteria, int offset, int limit) {
+        String errorMessage = "Failed to search products";
+        List<String> conditions = new ArrayList<>();
+        Map<String, Object> parameters = new LinkedHashMap<>();
+        if (criteria.getCategory() != null) {
+            conditions.add("category = :category");
+            parameters.put("category", criteria.getCategory());
+        }
+        if (criteria.getMinPrice() != null) {
+            conditions.add("price >= :minPrice");
+            parameters.put("minPrice", BigDecimal.valueOf(criteria.getMinPrice()));
+        }
+        if (criteria.getMaxPrice() != null) {
+            conditions.add("price <= :maxPrice");
+            parameters.put("maxPrice", BigDecimal.valueOf(criteria.getMaxPrice()));
+        }
+        if (criteria.getNameStartsWith() != null) {
+            conditions.add("name LIKE :namePattern");
+            parameters.put("namePattern", JdbcProductRepository.escapeLikePattern(criteria.getNameStartsWith()) + "%");
+        }
+
+        String sortColumn = JdbcProductRepository.SORTABLE_COLUMNS.get(criteria.getSortBy());
+        if (sortColumn == null) {
+            return Flux.error(new InvalidRequestException("Cannot sort products by: " + criteria.getSortBy()));
+        }
+        String direction = criteria.isDescending() ? "DESC" : "ASC";
+
+        StringBuilder sql = new StringBuilder("SELECT * FROM products");
+        if (!conditions.isEmpty()) {
+            sql.append(" WHERE ").append(String.join(" AND ", conditions));
+        }
+        sql.append(" ORDER BY ").append(sortColumn).append(' ').append(direction);
+        if (!sortColumn.equals("id")) {
+            sql.append(", id ").append(direction);
+        }
+        sql.append(" LIMIT :limit OFFSET :offset");
+        parameters.put("limit", limit);
+        parameters.put("offset", offset);
+
+        return databaseClient.sql(sql.toString())
+                .bindValues(parameters)
+                .map(this::mapRowToProduct)
+                .all()
+                .onErrorMap(e -> !(e instanceof DatabaseException), e -> failure(errorMessage, e));
+    }
+
+    @Override
+    public Flux<Product> searchText(String text, int offset, int limit) {
+        String errorMessage = "Failed to search products by text";
+        String query;
+        try {
+            query = JdbcProductRepository.toPrefixQuery(text);
+        } catch (InvalidRequestException e) {
+            return Flux.error(e);
+        }
+        if (query.isEmpty()) {
+            return Flux.empty();
+        }
+        String sql = "SELECT products.* FROM products, to_tsquery('simple', :query) query "
+                + "WHERE search_vector @@ query ORDER BY ts_rank_cd(search_vector, query) DESC, id LIMIT :limit OFFSET :offset";
+        return databaseClient.sql(sql)
+                .bind("query", query)
+                .bind("limit", limit)
+                .bind("offset", offset)
+                .map(this::mapRowToProduct)
+                .all()
+                .onErrorMap(e -> !(e instanceof DatabaseException), e -> failure(errorMessage, e));
+    }
+
+    @Override
+    public Mono<Long> countAll() {
+        String errorMessage = "Failed to count products";
+        String sql = "SELECT COUNT(*) FROM products";
+        return databaseClient.sql(sql)
+                .map(row -> row.get(0, Long.class))
+                .one()
+                .defaultIfEmpty(0L)
+                .onErrorMap(e -> !(e instanceof DatabaseException), e -> failure(errorMessage, e));
+    }
+
+    @Override
+    public Mono<Product> findById(long id) {
+        String errorMessage = "Failed to fetch a product";
+        String sql = "SELECT * FROM products WHERE id = :id";
+        return databaseClient.sql(sql)
+                .bind("id", id)
+                .map(this::mapRowToProduct)
+                .one()
+                .onErrorMap(e -> !(e instanceof DatabaseException), e -> failure(errorMessage, e));
+    }
+
+    @Override
+    public Mono<Product> save(Product product) {
+        if (product.getId() == null) {
+            return insert(product);
+        }
+        return update(product);
+    }
+
+    @Override
+    public Mono<Void> deleteById(long id) {
+        String errorMessage = "Failed to delete a product";
+        String sql = "DELETE FROM products WHERE id = :id";
+        return databaseClient.sql(sql)
+                .bind("id", id)
+                .fetch()
+                .rowsUpdated()
+                .flatMap(rowsAffected -> rowsAffected == 0
+                        ? Mono.<Void>error(failure(errorMessage, new IllegalStateException("no rows affected after updating a table")))
+                        : Mono.<Void>empty())
+                .onErrorMap(e -> !(e instanceof DatabaseException), e -> failure(errorMessage, e));
+    }
+
+    @Override
+    public Mono<Boolean> updateIfVersion(Product product, long expectedVersion) {
+        String errorMessage = "Failed to update a product at a version";
+        String sql = "UPDATE products SET name = :name, description = :description, price = :price, quantity = :quantity, "
+                + "category = :category, version = version + 1 WHERE id = :id AND version = :expectedVersion RETURNING version";
+        return bindProduct(databaseClient.sql(sql), product)
+                .bind("id", product.getId())
+                .bind("expectedVersion", expectedVersion)
+                .map(row -> row.get("version", Long.class))
+                .one()
+                .map(version -> {
+                    product.setVersion(version);
+                    return true;
+                })
+                .defaultIfEmpty(false)
+                .onErrorMap(e -> !(e instanceof DatabaseException), e -> failure(errorMessage, e));
+    }
+
+    @Override
+    public Mono<Boolean> deleteByIdIfVersion(long id, long expectedVersion) {
+        String errorMessage = "Failed to delete a product at a version";
+        String sql = "DELETE FROM products WHERE id = :id AND version = :expectedVersion";
+        return databaseClient.sql(sql)
+                .bind("id", id)
+                .bind("expectedVersion", expectedVersion)
+                .fetch()
+                .rowsUpdated()
+                .map(rowsAffected -> rowsAffected > 0)
+                .onErrorMap(e -> !(e instanceof DatabaseException), e -> failure(errorMessage, e));
+    }
+
+    @Override
+    public Mono<List<Long>> insertAll(List<Product> products) {
+        String errorMessage = "Failed to insert a batch of products";
+        String sql = "INSERT INTO products (name, description, price, quantity, category) "
+                + "VALUES ($1, $2, $3, $4, $5) RETURNING id";
+        return executeBatch(sql, products, this::bindProduct, row -> row.get("id", Long.class))
+                .flatMap(returned -> {
+                    List<Long> ids = new ArrayList<>(products.size());
+                    for (List<Long> id : returned) {
+                        if (id.size() != 1) {
+                            return Mono.<List<Long>>error(new IllegalStateException("expected " + products.size() + " keys"));
+                        }
+                        ids.add(id.get(0));
+                    }
+                    for (int i = 0; i < products.size(); i++) {
+                        products.get(i).setId(ids.get(i));
+                        products.get(i).setVersion(0);
+                    }
+                    return Mono.just(ids);
+                })
+                .onErrorMap(e -> !(e instanceof DatabaseException), e -> failure(errorMessage, e));
+    }
+
+    @Override
+    public Mono<int[]> updateAll(List<Product> products) {
+        String errorMessage = "Failed to update a batch of products";
+        String sql = "UPDATE products SET name = $1, description = $2, price = $3, quantity = $4, category = $5, "
+                + "version = version + 1 WHERE id = $6 RETURNING version";
+        return executeBatch(sql, products, (statement, product) -> {
+                    bindProduct(statement, product);
+                    statement.bind(5, product.getId());
+                }, row -> row.get("version", Long.class))
+                .map(returned -> {
+                    int[] rowsAffected = new int[products.size()];
+                    for (int i = 0; i < products.size(); i++) {
+                        rowsAffected[i] = returned.get(i).size();
+                        if (rowsAffected[i] > 0) {
+                            products.get(i).setVersion(returned.get(i).get(0));
+                        }
+                    }
+                    return rowsAffected;
+                })
+                .onErrorMap(e -> !(e instanceof DatabaseException), e -> failure(errorMessage, e));
+    }
+
+    @Override
+    public Mono<int[]> deleteAllById(List<Long> ids) {
+        String errorMessage = "Failed to delete a batch of products";
+        String sql = "DELETE FROM products WHERE id = $1 RETURNING id";
+        return executeBatch(sql, ids, (statement, id) -> statement.bind(0, id), row -> row.get("id", Long.class))
+                .map(returned -> returned.stream().mapToInt(List::size).toArray())
+                .onErrorMap(e -> !(e instanceof DatabaseException), e -> failure(errorMessage, e));
+    }
+
+    @Override
+    public Mono<Boolean> updateQuantity(QuantityChange change) {
+        String errorMessage = "Failed to update a product quantity";
+        // a change that would make the quantity negative leaves the row untouched and reports no row
+        String sql = "UPDATE products SET quantity = CASE WHEN :absolute THEN :amount ELSE quantity + :amount END, "
+                + "version = version + 1 WHERE id = :id AND CASE WHEN :absolute THEN :amount ELSE quantity + :amount END >= 0";
+        return databaseClient.sql(sql)
+                .bind("absolute", change.isAbsolute())
+                .bind("amount", change.getAmount())
+                .bind("id", change.getId())
+                .fetch()
+                .rowsUpdated()
+                .map(rowsAffected -> rowsAffected > 0)
+                .onErrorMap(e -> !(e instanceof DatabaseException), e -> failure(errorMessage, e));
+    }
+
+    @Override
+    public Mono<Long> copyFrom(Flux<String> rows) {
+        String errorMessage = "Failed to copy products";
+        String sql = "COPY products (name, description, price, quantity, category) FROM STDIN";
+        return databaseClient.inConnection(connection -> postgresqlConnection(connection)
+                        .copyIn(sql, rows.map(chunk -> Unpooled.wrappedBuffer(chunk.getBytes(StandardCharsets.UTF_8)))))
+                // a malformed header is the client's mistake, not the database's
+                .onErrorMap(e -> !(e instanceof DatabaseException) && !(e instanceof InvalidRequestException),
+                        e -> failure(errorMessage, e));
+    }
+
+    /**
+     * Runs the statement once per item, all bindings sent in one round trip and in one transaction.
+     *
+     * @return the rows each binding returned, in item order
+     */
+    private <T, R> Mono<List<List<R>>> executeBatch(String sql, List<T> items, BiConsumer<Statement, T> binder,
+                                                   Function<Readable, R> mapper) {
+        Flux<List<R>> results = databaseClient.inConnectionMany(connection -> {
+            Statement statement = connection.createStatement(sql);
+            for (int i = 0; i < items.size(); i++) {
+                if (i > 0) {
+                    statement.add();
+                }
+                binder.accept(statement, items.get(i));
+            }
+            Flux<List<R>> rows = Flux.from(statement.execute())
+                    .concatMap(result -> Flux.from(result.map(mapper)).collectList());
+            if (items.size() <= JdbcProductRepository.BULK_WRITE_ROWS) {
+                return rows;
+            }
+            // one RESET from the change trigger rather than a notification per row
+            return Flux.from(connection.createStatement(JdbcProductRepository.BULK_WRITE_SQL).execute())
+                    .concatMap(Result::getRowsUpdated)
+                    .thenMany(rows);
+        });
+        return results.collectList().as(transactionalOperator::transactional);
+    }
+
+    /** The driver connection behind the pool, which is the one that speaks the COPY sub-protocol. */
+    private static PostgresqlConnection postgresqlConnection(Connection connection) {
+        Object unwrapped = connection;
+        while (!(unwrapped instanceof PostgresqlConnection) && unwrapped instanceof Wrapped<?> wrapped) {
+            unwrapped = wrapped.unwrap();
+        }
+        if (unwrapped instanceof PostgresqlConnection postgresqlConnection) {
+            return postgresqlConnection;
+        }
+        throw new IllegalStateException("Not a PostgreSQL connection: " + connection);
+    }
+
+    private Mono<Product> insert(Product product) {
+        String errorMessage = "Failed to insert a product";
+        String sql = "INSERT INTO products (name, description, price, quantity, category) "
+                + "VALUES (:name, :description, :price, :quantity, :category) RETURNING id";
+        return bindProduct(databaseClient.sql(sql), product)
+                .map(row -> row.get("id", Long.class))
+                .one()
+                .map(id -> {
+                    product.setId(id);
+                    product.setVersion(0);
+                    return product;
+                })
+                .onErrorMap(e -> !(e instanceof DatabaseException), e -> failure(errorMessage, e));
+    }
+
+    private Mono<Product> update(Product product) {
+        String errorMessage = "Failed to update a product";
+        String sql = "UPDATE products SET name = :name, description = :description, price = :price, "
+                + "quantity = :quantity, category = :category, version = version + 1 WHERE id = :id RETURNING version";
+        return bindProduct(databaseClient.sql(sql), product)
+                .bind("id", product.getId())
+                .map(row -> row.get("version", Long.class))
+                .one()
+                .switchIfEmpty(Mono.error(() -> failure(errorMessage, new IllegalStateException("no rows affected after updating a table"))))
+                .map(version -> {
+                    product.setVersion(version);
+                    return product;
+                })
+                .onErrorMap(e -> !(e instanceof DatabaseException), e -> failure(errorMessage, e));
+    }
+
+    private void bindProduct(Statement statement, Product product) {
+        statement.bind(0, product.getName())
+                .bind(2, BigDecimal.valueOf(product.getPrice()))
+                .bind(3, product.getQuantity())
+                .bind(4, product.getCategory());
+        if (product.getDescription() == null) {
+            statement.bindNull(1, String.class);
+        } else {
+            statement.bind(1, product.getDescription());
+        }
+    }
+
+    private DatabaseClient.GenericExecuteSpec bindProduct(DatabaseClient.GenericExecuteSpec spec, Product product) {
+        spec = spec.bind("name", product.getName())
+                .bind("price", BigDecimal.valueOf(product.getPrice()))
+                .bind("quantity", product.getQuantity())
+                .bind("category", product.getCategory());
+        return product.getDescription() == null
+                ? spec.bindNull("description", String.class)
+                : spec.bind("description", product.getDescription());
+    }
+
+    private Product mapRowToProduct(Readable row) {
+        Product product = new Product();
+
+        product.setId(row.get("id", Long.class));
+        product.setName(row.get("name", String.class));
+        product.setDescription(row.get("description", String.class));
+        product.setPrice(row.get("price", BigDecimal.class).doubleValue());
+        product.setQuantity(row.get("quantity", Integer.class));
+        product.setCategory(row.get("category", String.class));
+        product.setVersion(row.get("version", Long.class));
+
+        return product;
+    }
+
+    private static DatabaseException failure(String errorMessage, Throwable e) {
+        log.error(errorMessage, e);
+        return new DatabaseException(errorMessage, e);
+    }
+}
@@ -0,0 +1,36 @@
+package com.zakuwarrior.crudhttp.repository;
+
+import com.zakuwarrior.crudhttp.model.Product;
+import com.zakuwarrior.crudhttp.model.ProductSearchCriteria;
+import com.zakuwarrior.crudhttp.model.QuantityChange;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+public interface ReactiveProductRepository {
+    Flux<Product> findAll();
+    Flux<Product> findByPage(int offset, int limit);
+    Flux<Product> findAfterId(long lastId, int limit);
+    Flux<Product> search(ProductSearchCriteria criteria, int offset, int limit);
+    Flux<Product> searchText(String text, int offset, int limit);
+    Mono<Long> countAll();
+    Mono<Product> findById(long id);
+    Mono<Product> save(Product product);
+    Mono<Void> deleteById(long id);
+    /** Updates the product only if it is still at expectedVersion; false if it is missing or at another one. */
+    Mono<Boolean> updateIfVersion(Product product, long expectedVersion);
+    /** Deletes the product only if it is still at expectedVersion; false if it is missing or at another one. */
+    Mono<Boolean> deleteByIdIfVersion(long id, long expectedVersion);
+    Mono<List<Long>> insertAll(List<Product> products);
+    Mono<int[]> updateAll(List<Product> products);
+    Mono<int[]> deleteAllById(List<Long> ids);
+    Mono<Boolean> updateQuantity(QuantityChange change);
+
+    /**
+     * Streams rows already in PostgreSQL COPY text format into the products table.
+     *
+     * @return number of rows copied
+     */
+    Mono<Long> copyFrom(Flux<String> rows);
+}
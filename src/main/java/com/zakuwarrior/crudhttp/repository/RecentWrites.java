@@ -0,0 +1,67 @@
+package com.zakuwarrior.crudhttp.repository;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.zakuwarrior.crudhttp.config.ProductProperties;
+import com.zakuwarrior.crudhttp.config.ReadWriteRoutingDataSource;
+
+import java.util.Collection;
+
+/**
+ * Remembers when this instance last wrote each id, and when it last wrote at all, for as long as
+ * the replica may lag behind. Reads compare those times with the measured replica lag, so they go to
+ * the primary until the replica has replayed the write. Does nothing when no replica is configured.
+ * Times are {@link System#nanoTime()} values taken after the commit, or
+ * {@link ReadWriteRoutingDataSource#NEVER}.
+ */
+class RecentWrites {
+    private final Cache<Long, Long> writtenAt;
+    private volatile long lastWrite = ReadWriteRoutingDataSource.NEVER;
+
+    RecentWrites(ProductProperties.Database.Replica replica) {
+        this.writtenAt = replica.getUrl() == null ? null : Caffeine.newBuilder()
+                .expireAfterWrite(replica.getMaxStaleness())
+                .maximumSize(replica.getTrackedWrites())
+                .build();
+    }
+
+    void record(long id) {
+        if (writtenAt != null) {
+            long now = System.nanoTime();
+            writtenAt.put(id, now);
+            lastWrite = now;
+        }
+    }
+
+    void recordAll(Collection<Long> written) {
+        if (writtenAt != null) {
+            written.forEach(this::record);
+        }
+    }
+
+    /** A write whose ids are not known, such as a COPY, which only list reads can be routed around. */
+    void recordUnknown() {
+        if (writtenAt != null) {
+            lastWrite = System.nanoTime();
+        }
+    }
+
+    long writtenAt(long id) {
+        Long at = writtenAt == null ? null : writtenAt.getIfPresent(id);
+        return at == null ? ReadWriteRoutingDataSource.NEVER : at;
+    }
+
+    /** The latest write of any of the ids. */
+    long writtenAt(long[] ids) {
+        long latest = ReadWriteRoutingDataSource.NEVER;
+        for (long id : ids) {
+            latest = Math.max(latest, writtenAt(id));
+        }
+        return latest;
+    }
+
+    /** The latest write of any product, which any list read may include. */
+    long lastWrite() {
+        return lastWrite;
+    }
+}
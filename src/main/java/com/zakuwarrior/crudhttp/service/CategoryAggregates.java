@@ -0,0 +1,193 @@
+package com.zakuwarrior.crudhttp.service;
+
+import com.zakuwarrior.crudhttp.model.CategoryStatistics;
+import com.zakuwarrior.crudhttp.model.Product;
+import com.zakuwarrior.crudhttp.repository.ProductRepository;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Profile;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Per-category count, stock and price range, kept up to date by {@link ProductService} on every
+ * write so reading them costs O(categories) instead of a pass over the table.
+ *
+ * <p>Nothing is tracked until the aggregates are first asked for; the first read loads them with a
+ * GROUP BY, and from then on they are adjusted per write, from the rows the writes themselves return,
+ * and periodically reset from a fresh GROUP BY to undo drift from writes made elsewhere (other instances)
+ * or racing a reset. Writes whose effect is not known here (imports, batches, write-behind quantity
+ * flushes) start that GROUP BY in the background instead of making the next read wait for it. Every
+ * GROUP BY reads the primary. Removing a product at the current minimum or maximum price leaves the
+ * range unknown, so that category alone is aggregated again on the next read.
+ */
+@Slf4j
+@Profile("!reactive")
+@Component
+public class CategoryAggregates {
+    private final ProductRepository productRepository;
+    private final Map<String, Aggregate> aggregates = new TreeMap<>();
+    private final ExecutorService rebuilder = Executors.newSingleThreadExecutor(
+            Thread.ofPlatform().name("category-aggregates").daemon().factory());
+    private boolean tracking;
+    private boolean rebuildPending;
+
+    private static final class Aggregate {
+        private long count;
+        private long quantity;
+        // in cents, so adding and removing prices does not accumulate rounding errors
+        private long priceSum;
+        private double minPrice;
+        private double maxPrice;
+        private boolean rangeUnknown;
+
+        private static Aggregate of(CategoryStatistics statistics) {
+            Aggregate aggregate = new Aggregate();
+            aggregate.count = statistics.getCount();
+            aggregate.quantity = statistics.getTotalQuantity();
+            aggregate.priceSum = Math.round(statistics.getAvgPrice() * statistics.getCount() * 100);
+            aggregate.minPrice = statistics.getMinPrice();
+            aggregate.maxPrice = statistics.getMaxPrice();
+            return aggregate;
+        }
+
+        private CategoryStatistics toStatistics(String category) {
+            return new CategoryStatistics(category, count, quantity, minPrice, priceSum / 100.0 / count, maxPrice);
+        }
+    }
+
+    public CategoryAggregates(ProductRepository productRepository) {
+        this.productRepository = productRepository;
+    }
+
+    private synchronized boolean isTracking() {
+        return tracking;
+    }
+
+    public synchronized void added(Product product) {
+        if (!tracking) {
+            return;
+        }
+        Aggregate aggregate = aggregates.computeIfAbsent(product.getCategory(), category -> new Aggregate());
+        aggregate.count++;
+        aggregate.quantity += product.getQuantity();
+        aggregate.priceSum += cents(product.getPrice());
+        if (aggregate.count == 1) {
+            aggregate.minPrice = product.getPrice();
+            aggregate.maxPrice = product.getPrice();
+        } else {
+            aggregate.minPrice = Math.min(aggregate.minPrice, product.getPrice());
+            aggregate.maxPrice = Math.max(aggregate.maxPrice, product.getPrice());
+        }
+    }
+
+    public synchronized void removed(Product product) {
+        if (!tracking) {
+            return;
+        }
+        Aggregate aggregate = aggregates.get(product.getCategory());
+        if (aggregate == null) {
+            return;
+        }
+        aggregate.count--;
+        aggregate.quantity -= product.getQuantity();
+        aggregate.priceSum -= cents(product.getPrice());
+        if (aggregate.count <= 0) {
+            aggregates.remove(product.getCategory());
+        } else if (product.getPrice() <= aggregate.minPrice || product.getPrice() >= aggregate.maxPrice) {
+            aggregate.rangeUnknown = true;
+        }
+    }
+
+    public synchronized void replaced(Product before, Product after) {
+        removed(before);
+        added(after);
+    }
+
+    /**
+     * Rebuilds the aggregates in the background after writes whose effect is not known here; reads keep
+     * getting the current ones until the rebuild is swapped in.
+     */
+    public synchronized void invalidate() {
+        if (tracking && !rebuildPending) {
+            rebuildPending = true;
+            rebuilder.execute(this::rebuild);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        rebuilder.shutdownNow();
+    }
+
+    public List<CategoryStatistics> byCategory() {
+        if (!isTracking()) {
+            reconcile();
+        }
+        List<String> rangeUnknown = new ArrayList<>();
+        synchronized (this) {
+            aggregates.forEach((category, aggregate) -> {
+                if (aggregate.rangeUnknown) {
+                    rangeUnknown.add(category);
+                }
+            });
+        }
+        for (String category : rangeUnknown) {
+            List<CategoryStatistics> exact = productRepository.aggregateByCategory(category);
+            synchronized (this) {
+                if (exact.isEmpty()) {
+                    aggregates.remove(category);
+                } else {
+                    aggregates.put(category, Aggregate.of(exact.get(0)));
+                }
+            }
+        }
+
+        synchronized (this) {
+            List<CategoryStatistics> statistics = new ArrayList<>(aggregates.size());
+            aggregates.forEach((category, aggregate) -> statistics.add(aggregate.toStatistics(category)));
+            return statistics;
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${products.stats.reconcile-interval:PT1M}")
+    public void scheduledReconcile() {
+        if (isTracking()) {
+            reconcile();
+        }
+    }
+
+    private void rebuild() {
+        synchronized (this) {
+            // writes invalidating from here on may be missed by this GROUP BY, so they queue another
+            rebuildPending = false;
+        }
+        try {
+            reconcile();
+        } catch (RuntimeException e) {
+            log.warn("Failed to rebuild the category aggregates, keeping them until the next reconcile", e);
+        }
+    }
+
+    private void reconcile() {
+        List<CategoryStatistics> exact = productRepository.aggregateByCategory(null);
+        synchronized (this) {
+            aggregates.clear();
+            exact.forEach(statistics -> aggregates.put(statistics.getCategory(), Aggregate.of(statistics)));
+            tracking = true;
+        }
+        log.debug("Reconciled aggregates of {} categories", exact.size());
+    }
+
+    private static long cents(double price) {
+        return Math.round(price * 100);
+    }
+}
@@ -0,0 +1,154 @@
+package com.zakuwarrior.crudhttp.service;
+
+import com.zakuwarrior.crudhttp.config.ProductProperties;
+import com.zakuwarrior.crudhttp.model.ProductChange;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Numbers product changes and fans them out to subscribers.
+ *
+ * <p>Event ids are {@code <epoch>-<sequence>}, where the epoch changes with every start of the
+ * application, so an id handed out by another instance or before a restart is recognised as unknown.
+ * A subscriber resuming from a known id gets the retained changes after it replayed first; one resuming
+ * from an unknown or evicted id gets a {@link ProductChange#RESET} event instead.
+ *
+ * <p>Publishing never blocks on a subscriber: each one has a bounded queue, and a subscriber whose
+ * queue is full is marked overflowed and dropped, expecting the client to reconnect and resume.
+ */
+@Slf4j
+@Profile("!reactive")
+@Component
+public class ProductChangeFeed {
+    private final ProductProperties.Changes properties;
+    private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+    private final Deque<Event> history = new ArrayDeque<>();
+    private final Set<Subscription> subscribers = ConcurrentHashMap.newKeySet();
+    private long sequence;
+
+    public record Event(String id, long sequence, ProductChange change) {
+    }
+
+    public ProductChangeFeed(ProductProperties properties) {
+        this.properties = properties.getChanges();
+    }
+
+    public synchronized void publish(ProductChange change) {
+        Event event = new Event(eventId(++sequence), sequence, change);
+        history.addLast(event);
+        if (history.size() > properties.getHistorySize()) {
+            history.removeFirst();
+        }
+        for (Subscription subscription : subscribers) {
+            subscription.offer(event);
+        }
+    }
+
+    /**
+     * Tells subscribers that changes may have been missed, for example while the listener was reconnecting.
+     */
+    public void publishReset() {
+        publish(new ProductChange(ProductChange.RESET, null, 0));
+    }
+
+    /**
+     * Starts a subscription; replay and registration happen under the publishing lock so no change
+     * falls between the retained history and the live queue.
+     */
+    public synchronized Subscription subscribe(String lastEventId) {
+        Deque<Event> replay = new ArrayDeque<>();
+        if (lastEventId != null && !lastEventId.isBlank()) {
+            long last = parseSequence(lastEventId.trim());
+            long firstRetained = history.isEmpty() ? sequence + 1 : history.getFirst().sequence();
+            if (last < 0 || last > sequence || last < firstRetained - 1) {
+                replay.add(new Event(eventId(sequence), sequence, new ProductChange(ProductChange.RESET, null, 0)));
+            } else {
+                for (Event event : history) {
+                    if (event.sequence() > last) {
+                        replay.add(event);
+                    }
+                }
+            }
+        }
+        Subscription subscription = new Subscription(replay, properties.getSubscriberBuffer());
+        subscribers.add(subscription);
+        return subscription;
+    }
+
+    public int subscriberCount() {
+        return subscribers.size();
+    }
+
+    private String eventId(long eventSequence) {
+        return epoch + "-" + eventSequence;
+    }
+
+    private long parseSequence(String eventId) {
+        int separator = eventId.lastIndexOf('-');
+        if (separator < 0 || !eventId.substring(0, separator).equals(epoch)) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(eventId.substring(separator + 1));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    public class Subscription implements AutoCloseable {
+        private final Deque<Event> replay;
+        private final BlockingQueue<Event> queue;
+        private volatile boolean overflowed;
+        private volatile boolean closed;
+
+        private Subscription(Deque<Event> replay, int capacity) {
+            this.replay = replay;
+            this.queue = new ArrayBlockingQueue<>(capacity);
+        }
+
+        private void offer(Event event) {
+            if (!queue.offer(event)) {
+                overflowed = true;
+                subscribers.remove(this);
+                queue.clear();
+                log.warn("Dropped a product change subscriber that fell {} changes behind", properties.getSubscriberBuffer());
+            }
+        }
+
+        /**
+         * Returns the next change, or {@code null} if none arrived within {@code timeout}.
+         */
+        public Event next(Duration timeout) throws InterruptedException {
+            Event replayed = replay.poll();
+            if (replayed != null) {
+                return replayed;
+            }
+            return queue.poll(timeout.toMillis(), TimeUnit.MILLISECONDS);
+        }
+
+        public boolean isOverflowed() {
+            return overflowed;
+        }
+
+        public boolean isOpen() {
+            return !closed && !overflowed;
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+            subscribers.remove(this);
+        }
+    }
+}
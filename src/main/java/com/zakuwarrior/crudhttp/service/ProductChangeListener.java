@@ -0,0 +1,129 @@
+package com.zakuwarrior.crudhttp.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.zakuwarrior.crudhttp.config.ProductProperties;
+import com.zakuwarrior.crudhttp.model.ProductChange;
+
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Consumes the notifications sent by the {@code notify_product_change} trigger and publishes them
+ * to the {@link ProductChangeFeed}.
+ *
+ * <p>The listener holds one dedicated connection to the primary opened outside the pool, since a
+ * LISTEN session has to stay open for the lifetime of the application. Notifications sent while
+ * that connection is down are lost, so a {@link ProductChange#RESET} is published after reconnecting.
+ * Every change is also reported to {@link ProductService#changedElsewhere}, since it may come from
+ * another instance or a bulk load that this one's caches know nothing about.
+ * Only the servlet stack streams changes, so the reactive profile does not listen.
+ */
+@Slf4j
+@Profile("!reactive")
+@Component
+public class ProductChangeListener implements SmartLifecycle {
+    public static final String CHANNEL = "product_changes";
+    private static final int POLL_MILLIS = 1000;
+
+    private final DataSourceProperties dataSourceProperties;
+    private final ObjectMapper objectMapper;
+    private final ProductChangeFeed feed;
+    private final ProductService productService;
+    private final ProductProperties.Changes properties;
+    private volatile boolean running;
+    private Thread thread;
+
+    public ProductChangeListener(DataSourceProperties dataSourceProperties, ObjectMapper objectMapper,
+                                 ProductChangeFeed feed, ProductService productService,
+                                 ProductProperties properties) {
+        this.dataSourceProperties = dataSourceProperties;
+        this.objectMapper = objectMapper;
+        this.feed = feed;
+        this.productService = productService;
+        this.properties = properties.getChanges();
+    }
+
+    @Override
+    public void start() {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        running = true;
+        thread = Thread.ofPlatform().name("product-change-listener").daemon().start(this::listen);
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        if (thread != null) {
+            thread.interrupt();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    private void listen() {
+        boolean reconnecting = false;
+        while (running) {
+            try (Connection connection = DriverManager.getConnection(dataSourceProperties.determineUrl(),
+                    dataSourceProperties.determineUsername(), dataSourceProperties.determinePassword())) {
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("LISTEN " + CHANNEL);
+                }
+                log.info("Listening for product changes on channel {}", CHANNEL);
+                if (reconnecting) {
+                    feed.publishReset();
+                    productService.changedElsewhere(null);
+                }
+                reconnecting = true;
+
+                PGConnection pgConnection = connection.unwrap(PGConnection.class);
+                while (running) {
+                    PGNotification[] notifications = pgConnection.getNotifications(POLL_MILLIS);
+                    if (notifications == null) {
+                        continue;
+                    }
+                    for (PGNotification notification : notifications) {
+                        publish(notification.getParameter());
+                    }
+                }
+            } catch (SQLException e) {
+                if (!running) {
+                    return;
+                }
+                log.warn("Product change listener lost its connection, reconnecting in {}",
+                        properties.getReconnectDelay(), e);
+                try {
+                    Thread.sleep(properties.getReconnectDelay());
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    private void publish(String payload) {
+        try {
+            ProductChange change = objectMapper.readValue(payload, ProductChange.class);
+            feed.publish(change);
+            productService.changedElsewhere(change.getId());
+        } catch (JsonProcessingException e) {
+            log.error("Skipped malformed product change notification: {}", payload, e);
+        }
+    }
+}
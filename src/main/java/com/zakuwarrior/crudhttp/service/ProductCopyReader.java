@@ -0,0 +1,274 @@
+package com.zakuwarrior.crudhttp.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.zakuwarrior.crudhttp.exception.InvalidRequestException;
+import com.zakuwarrior.crudhttp.model.Product;
+
+import jakarta.validation.Validator;
+import lombok.Getter;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Turns CSV or NDJSON product rows into PostgreSQL COPY text format one row at a time,
+ * so the driver can stream them into the table without holding the whole load in memory.
+ * Rows violating the {@link Product} constraints are skipped and reported instead of copied.
+ */
+public class ProductCopyReader extends Reader {
+    public enum Format { CSV, NDJSON }
+
+    private static final String[] COLUMNS = {"name", "description", "price", "quantity", "category"};
+
+    private final BufferedReader source;
+    private final Format format;
+    private final ObjectMapper objectMapper;
+    private final Validator validator;
+    private final int maxReportedErrors;
+
+    private final StringBuilder row = new StringBuilder();
+    private int rowPosition;
+    private int[] csvColumnIndexes;
+    private long lineNumber;
+
+    @Getter
+    private long rejected;
+    @Getter
+    private final Map<Long, Map<String, String>> errors = new LinkedHashMap<>();
+
+    public ProductCopyReader(Reader source, Format format, ObjectMapper objectMapper,
+                             Validator validator, int maxReportedErrors) {
+        this.source = source instanceof BufferedReader bufferedReader ? bufferedReader : new BufferedReader(source);
+        this.format = format;
+        this.objectMapper = objectMapper;
+        this.validator = validator;
+        this.maxReportedErrors = maxReportedErrors;
+    }
+
+    @Override
+    public int read(char[] buffer, int offset, int length) throws IOException {
+        int copied = 0;
+        while (copied < length) {
+            if (rowPosition == row.length() && !nextRow()) {
+                break;
+            }
+            int count = Math.min(length - copied, row.length() - rowPosition);
+            row.getChars(rowPosition, rowPosition + count, buffer, offset + copied);
+            rowPosition += count;
+            copied += count;
+        }
+        return copied == 0 && length > 0 ? -1 : copied;
+    }
+
+    @Override
+    public void close() throws IOException {
+        source.close();
+    }
+
+    private boolean nextRow() throws IOException {
+        String line;
+        while ((line = source.readLine()) != null) {
+            long rowLineNumber = ++lineNumber;
+            if (line.isBlank()) {
+                continue;
+            }
+
+            String[] values;
+            Map<String, String> violations = new HashMap<>();
+            if (format == Format.CSV) {
+                List<String> fields = readCsvRecord(line);
+                if (csvColumnIndexes == null) {
+                    csvColumnIndexes = resolveHeader(fields);
+                    continue;
+                }
+                values = new String[COLUMNS.length];
+                for (int i = 0; i < COLUMNS.length; i++) {
+                    int index = csvColumnIndexes[i];
+                    values[i] = index < fields.size() ? fields.get(index) : null;
+                }
+            } else {
+                values = readJsonRecord(line, violations);
+            }
+
+            if (values != null && appendRow(values, violations)) {
+                return true;
+            }
+            reject(rowLineNumber, violations);
+        }
+        return false;
+    }
+
+    private boolean appendRow(String[] values, Map<String, String> violations) {
+        String name = values[0];
+        String description = values[1] == null || values[1].isEmpty() ? null : values[1];
+        String category = values[4];
+        validateValue("name", name, violations);
+        validateValue("description", description, violations);
+        validateValue("category", category, violations);
+
+        BigDecimal price = parseDecimal(values[2]);
+        if (price == null) {
+            violations.put("price", "Price must be a number");
+        } else {
+            validateValue("price", price.doubleValue(), violations);
+        }
+
+        Integer quantity = parseInteger(values[3]);
+        if (quantity == null) {
+            violations.put("quantity", "Quantity must be an integer");
+        } else {
+            validateValue("quantity", quantity, violations);
+        }
+
+        if (!violations.isEmpty()) {
+            return false;
+        }
+
+        row.setLength(0);
+        rowPosition = 0;
+        appendEscaped(name).append('\t');
+        if (description == null) {
+            row.append("\\N");
+        } else {
+            appendEscaped(description);
+        }
+        row.append('\t').append(price.toPlainString())
+                .append('\t').append(quantity)
+                .append('\t');
+        appendEscaped(category).append('\n');
+        return true;
+    }
+
+    private static BigDecimal parseDecimal(String value) {
+        try {
+            return value == null ? null : new BigDecimal(value.trim());
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static Integer parseInteger(String value) {
+        try {
+            return value == null ? null : Integer.valueOf(value.trim());
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private void validateValue(String property, Object value, Map<String, String> violations) {
+        validator.validateValue(Product.class, property, value)
+                .forEach(violation -> violations.put(property, violation.getMessage()));
+    }
+
+    private StringBuilder appendEscaped(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '\\' -> row.append("\\\\");
+                case '\t' -> row.append("\\t");
+                case '\n' -> row.append("\\n");
+                case '\r' -> row.append("\\r");
+                default -> row.append(c);
+            }
+        }
+        return row;
+    }
+
+    private void reject(long rowLineNumber, Map<String, String> violations) {
+        rejected++;
+        if (errors.size() < maxReportedErrors) {
+            errors.put(rowLineNumber, violations);
+        }
+    }
+
+    private String[] readJsonRecord(String line, Map<String, String> violations) {
+        JsonNode node;
+        try {
+            node = objectMapper.readTree(line);
+        } catch (IOException e) {
+            violations.put("row", "Malformed JSON");
+            return null;
+        }
+        if (!node.isObject()) {
+            violations.put("row", "Expected a JSON object");
+            return null;
+        }
+        String[] values = new String[COLUMNS.length];
+        for (int i = 0; i < COLUMNS.length; i++) {
+            JsonNode value = node.get(COLUMNS[i]);
+            values[i] = value == null || value.isNull() ? null : value.asText();
+        }
+        return values;
+    }
+
+    private int[] resolveHeader(List<String> header) {
+        int[] indexes = new int[COLUMNS.length];
+        for (int i = 0; i < COLUMNS.length; i++) {
+            indexes[i] = -1;
+            for (int j = 0; j < header.size(); j++) {
+                if (COLUMNS[i].equalsIgnoreCase(header.get(j).trim())) {
+                    indexes[i] = j;
+                }
+            }
+            if (indexes[i] < 0 && i != 1) {
+                throw new InvalidRequestException("CSV header is missing column: " + COLUMNS[i]);
+            }
+        }
+        if (indexes[1] < 0) {
+            indexes[1] = Integer.MAX_VALUE;
+        }
+        return indexes;
+    }
+
+    private List<String> readCsvRecord(String firstLine) throws IOException {
+        List<String> fields = new ArrayList<>(COLUMNS.length);
+        StringBuilder field = new StringBuilder();
+        String line = firstLine;
+        boolean quoted = false;
+        int i = 0;
+        while (true) {
+            if (i == line.length()) {
+                if (!quoted) {
+                    break;
+                }
+                // a quoted field continues on the next physical line
+                line = source.readLine();
+                lineNumber++;
+                if (line == null) {
+                    break;
+                }
+                field.append('\n');
+                i = 0;
+                continue;
+            }
+            char c = line.charAt(i++);
+            if (quoted) {
+                if (c == '"' && i < line.length() && line.charAt(i) == '"') {
+                    field.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+}
@@ -0,0 +1,53 @@
+package com.zakuwarrior.crudhttp.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.zakuwarrior.crudhttp.config.ProductProperties;
+import com.zakuwarrior.crudhttp.model.ImportResponse;
+import com.zakuwarrior.crudhttp.repository.ProductRepository;
+
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+
+import jakarta.validation.Validator;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Service;
+
+@Slf4j
+@Profile("!reactive")
+@Service
+public class ProductImportService {
+    private final ProductRepository productRepository;
+    private final ObjectMapper objectMapper;
+    private final Validator validator;
+    private final ProductProperties properties;
+    private final CategoryAggregates categoryAggregates;
+    private final ProductService productService;
+
+    public ProductImportService(ProductRepository productRepository, ObjectMapper objectMapper,
+                                Validator validator, ProductProperties properties,
+                                CategoryAggregates categoryAggregates, ProductService productService) {
+        this.productRepository = productRepository;
+        this.objectMapper = objectMapper;
+        this.validator = validator;
+        this.properties = properties;
+        this.categoryAggregates = categoryAggregates;
+        this.productService = productService;
+    }
+
+    public ImportResponse importProducts(InputStream input, Charset charset, ProductCopyReader.Format format) {
+        log.debug("Importing products from {}", format);
+        ProductCopyReader rows = new ProductCopyReader(new InputStreamReader(input, charset), format,
+                objectMapper, validator, properties.getIngest().getMaxReportedErrors());
+        long imported;
+        try {
+            imported = productRepository.copyFrom(rows);
+        } finally {
+            categoryAggregates.invalidate();
+            productService.changedElsewhere(null);
+        }
+        log.info("Imported {} products, rejected {}", imported, rows.getRejected());
+        return new ImportResponse(imported, rows.getRejected(), rows.getErrors());
+    }
+}
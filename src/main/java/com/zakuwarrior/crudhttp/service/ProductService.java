@@ -1,22 +1,72 @@
 package com.zakuwarrior.crudhttp.service;
 
+import com.zakuwarrior.crudhttp.config.ProductProperties;
+import com.zakuwarrior.crudhttp.exception.DatabaseException;
+import com.zakuwarrior.crudhttp.exception.InvalidRequestException;
+import com.zakuwarrior.crudhttp.exception.VersionConflictException;
+import com.zakuwarrior.crudhttp.model.BatchResponse;
+import com.zakuwarrior.crudhttp.model.CategoryStatistics;
+import com.zakuwarrior.crudhttp.model.LookupResponse;
+import com.zakuwarrior.crudhttp.model.ProductSearchCriteria;
+import com.zakuwarrior.crudhttp.model.QuantityChange;
+import com.zakuwarrior.crudhttp.model.QuantityUpdate;
 import com.zakuwarrior.crudhttp.repository.ProductRepository;
 import com.zakuwarrior.crudhttp.model.Product;
 import com.zakuwarrior.crudhttp.model.PageResponse;
 
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.validation.Validator;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Profile;
 import org.springframework.stereotype.Service;
 
 @Slf4j
+@Profile("!reactive")
 @Service
 public class ProductService {
     private final ProductRepository productRepository;
+    private final Validator validator;
+    private final QuantityWriteBehindBuffer quantityBuffer;
+    private final CategoryAggregates categoryAggregates;
+    private final ProductProperties.Lookup lookup;
+    private final boolean singleFlightEnabled;
+    private final SingleFlight<Long, Optional<Product>> productFlights;
+    private final SingleFlight<PageKey, PageResponse<Product>> pageFlights;
+    private final AtomicLong writeGeneration = new AtomicLong();
 
-    public ProductService(ProductRepository productRepository) {
+    public ProductService(ProductRepository productRepository, Validator validator,
+                          QuantityWriteBehindBuffer quantityBuffer, CategoryAggregates categoryAggregates,
+                          ProductProperties properties, MeterRegistry meterRegistry) {
         this.productRepository = productRepository;
+        this.validator = validator;
+        this.quantityBuffer = quantityBuffer;
+        this.categoryAggregates = categoryAggregates;
+        this.lookup = properties.getLookup();
+        ProductProperties.SingleFlight singleFlight = properties.getSingleFlight();
+        this.singleFlightEnabled = singleFlight.isEnabled();
+        this.productFlights = new SingleFlight<>("findById", singleFlight.getMaxWait(), meterRegistry);
+        this.pageFlights = new SingleFlight<>("findByPage", singleFlight.getMaxWait(), meterRegistry);
+        quantityBuffer.onFlushed(this::quantitiesFlushed);
     }
 
     public List<Product> getAllProducts() {
@@ -24,34 +74,453 @@ public class ProductService {
         return productRepository.findAll();
     }
 
+    public void streamAllProducts(Consumer<Product> consumer) {
+        log.debug("Streaming all products");
+        productRepository.streamAll(consumer);
+    }
+
     public PageResponse<Product> getProductsByPage(int page, int size) {
         log.debug("Fetching products for page {} with size {}", page, size);
+        return coalesce(pageFlights, new PageKey(page, size), () -> loadPage(page, size));
+    }
+
+    private PageResponse<Product> loadPage(int page, int size) {
         int offset = page * size;
         List<Product> products = productRepository.findByPage(offset, size);
         long totalItems = productRepository.countAll();
         int totalPages = (int) Math.ceil((double) totalItems / size);
 
-        return new PageResponse<>(products, page, totalPages, totalItems, size);
+        return new PageResponse<>(products, page, totalPages, totalItems, size, nextCursor(products, size));
+    }
+
+    /**
+     * @param withTotal whether to count the products for totalItems and totalPages, which are -1 otherwise;
+     *                  under the exact count strategy that is a full count, costing more than the page itself
+     */
+    public PageResponse<Product> getProductsAfter(String cursor, int size, boolean withTotal) {
+        log.debug("Fetching products after cursor {} with size {}", cursor, size);
+        long lastId = decodeCursor(cursor);
+        List<Product> products = productRepository.findAfterId(lastId, size);
+        long totalItems = -1;
+        int totalPages = -1;
+        if (withTotal) {
+            totalItems = productRepository.countAll();
+            totalPages = (int) Math.ceil((double) totalItems / size);
+        }
+
+        return new PageResponse<>(products, -1, totalPages, totalItems, size, nextCursor(products, size));
+    }
+
+    public List<Product> searchProducts(ProductSearchCriteria criteria, String sort, int page, int size) {
+        log.debug("Searching products by {} sorted by {} for page {} with size {}", criteria, sort, page, size);
+        applySort(criteria, sort);
+        return productRepository.search(criteria, page * size, size);
+    }
+
+    /** Reads a "column[,asc|desc]" sort into the criteria; the column itself is checked by the repository. */
+    static void applySort(ProductSearchCriteria criteria, String sort) {
+        if (sort == null) {
+            return;
+        }
+        String[] sortParts = sort.split(",");
+        String direction = sortParts.length == 2 ? sortParts[1].trim() : "asc";
+        if (sortParts.length > 2 || (!direction.equalsIgnoreCase("asc") && !direction.equalsIgnoreCase("desc"))) {
+            throw new InvalidRequestException("Invalid sort: " + sort);
+        }
+        criteria.setSortBy(sortParts[0].trim());
+        criteria.setDescending(direction.equalsIgnoreCase("desc"));
+    }
+
+    public List<Product> searchProductsByText(String text, int page, int size) {
+        log.debug("Searching products by text '{}' for page {} with size {}", text, page, size);
+        if (text == null || text.isBlank()) {
+            throw new InvalidRequestException("Search text must not be blank");
+        }
+        return productRepository.searchText(text, page * size, size);
     }
 
     public Optional<Product> getByProductId(Long id) {
         log.debug("Fetching product with id: {}", id);
-        return productRepository.findById(id);
+        return coalesce(productFlights, id, () -> productRepository.findById(id));
+    }
+
+    /**
+     * Resolves many ids at once. Large lookups are split into chunks that are queried in parallel,
+     * up to the configured parallelism, each through the repository's admission control.
+     *
+     * @return products in the order of their first requested id, and the ids that have none
+     */
+    public LookupResponse getProductsByIds(List<Long> ids) {
+        log.debug("Fetching {} products by id", ids.size());
+        if (ids.size() > lookup.getMaxIds()) {
+            throw new InvalidRequestException("Cannot look up more than " + lookup.getMaxIds() + " ids at once");
+        }
+        if (ids.contains(null)) {
+            throw new InvalidRequestException("Product ids must not be null");
+        }
+        long[] uniqueIds = ids.stream().mapToLong(Long::longValue).distinct().toArray();
+        Map<Long, Product> found = findAllById(uniqueIds);
+
+        List<Product> products = new ArrayList<>(found.size());
+        List<Long> missingIds = new ArrayList<>();
+        for (long id : uniqueIds) {
+            Product product = found.get(id);
+            if (product != null) {
+                products.add(product);
+            } else {
+                missingIds.add(id);
+            }
+        }
+        return new LookupResponse(products, missingIds);
+    }
+
+    private Map<Long, Product> findAllById(long[] ids) {
+        Map<Long, Product> found = new ConcurrentHashMap<>(ids.length * 2);
+        int chunkSize = lookup.getChunkSize();
+        int chunks = (ids.length + chunkSize - 1) / chunkSize;
+        if (chunks <= 1) {
+            productRepository.findAllById(ids).forEach(product -> found.put(product.getId(), product));
+            return found;
+        }
+
+        AtomicInteger nextChunk = new AtomicInteger();
+        Runnable worker = () -> {
+            try {
+                for (int chunk = nextChunk.getAndIncrement(); chunk < chunks; chunk = nextChunk.getAndIncrement()) {
+                    int from = chunk * chunkSize;
+                    productRepository.findAllById(Arrays.copyOfRange(ids, from, Math.min(from + chunkSize, ids.length)))
+                            .forEach(product -> found.put(product.getId(), product));
+                }
+            } catch (RuntimeException e) {
+                // the lookup has failed, so the other workers need not start further chunks
+                nextChunk.set(chunks);
+                throw e;
+            }
+        };
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<?>> workers = new ArrayList<>();
+            for (int i = 0; i < Math.min(lookup.getParallelism(), chunks); i++) {
+                workers.add(executor.submit(worker));
+            }
+            for (Future<?> future : workers) {
+                future.get();
+            }
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new DatabaseException("Failed to fetch products by id", e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new DatabaseException("Interrupted while fetching products by id", e);
+        }
+        return found;
+    }
+
+    /**
+     * Grows with every write through this service and every one reported by {@link #changedElsewhere};
+     * anything derived from reads taken at an older generation may be stale. Read it before the data
+     * it is meant to guard.
+     */
+    public long getWriteGeneration() {
+        return writeGeneration.get();
+    }
+
+    public OptionalLong getProductVersion(Long id) {
+        log.debug("Fetching version of product with id: {}", id);
+        return productRepository.findVersionById(id);
+    }
+
+    /**
+     * Count, stock and price range per group, answered from incrementally maintained aggregates.
+     *
+     * @param groupBy only "category" is supported
+     */
+    public List<CategoryStatistics> getStatistics(String groupBy) {
+        log.debug("Fetching product statistics grouped by {}", groupBy);
+        if (!"category".equalsIgnoreCase(groupBy)) {
+            throw new InvalidRequestException("Invalid groupBy: " + groupBy);
+        }
+        return categoryAggregates.byCategory();
     }
 
     public Product createProduct(Product product) {
         log.debug("Creating new product: {}", product);
-        return productRepository.save(product);
+        Product savedProduct = productRepository.save(product);
+        written(savedProduct.getId());
+        categoryAggregates.added(savedProduct);
+        return savedProduct;
     }
 
     public Product updateProduct(Long id, Product product) {
-        log.debug("Updating product with id {}: {}", id, product);
+        return updateProduct(id, product, null);
+    }
+
+    /**
+     * Replaces a product, optionally only if it is still at the version the caller last saw.
+     *
+     * @param expectedVersion version from the caller's If-Match, or null to update unconditionally
+     * @throws VersionConflictException if the product is missing or at another version
+     */
+    public Product updateProduct(Long id, Product product, Long expectedVersion) {
+        log.debug("Updating product with id {} at version {}: {}", id, expectedVersion, product);
         product.setId(id);
-        return productRepository.save(product);
+        try {
+            if (expectedVersion == null) {
+                quantityBuffer.discard(id);
+            } else {
+                // queued quantity changes were accepted earlier, so they count towards the version to match
+                quantityBuffer.flush(id);
+            }
+            // the update returns what it replaced, so the aggregates move without another read
+            Optional<Product> before = productRepository.updateReturningPrevious(product, expectedVersion);
+            if (before.isEmpty()) {
+                throw new VersionConflictException("Product " + id + " is not at version " + expectedVersion);
+            }
+            categoryAggregates.replaced(before.get(), product);
+            return product;
+        } finally {
+            written(id);
+        }
+    }
+
+    /**
+     * Applies a quantity change right away, or queues it when write-behind is enabled.
+     *
+     * @return false if the change matched no product or would make the quantity negative, as far as known yet
+     */
+    public boolean updateQuantity(Long id, QuantityUpdate update) {
+        log.debug("Updating quantity of product with id {}: {}", id, update);
+        QuantityChange change = update.toChange(id);
+        if (quantityBuffer.isEnabled()) {
+            // coalesced with the product's other queued changes and checked against the stored quantity on flush
+            return quantityBuffer.enqueue(change);
+        }
+        try {
+            Optional<Product> before = productRepository.updateQuantityReturningPrevious(change);
+            before.ifPresent(product -> categoryAggregates.replaced(product, withQuantity(product, change)));
+            return before.isPresent();
+        } finally {
+            written(id);
+        }
+    }
+
+    /** Whether {@link #updateQuantity} only queues changes, to be written with the next flush. */
+    public boolean isWritingBehind() {
+        return quantityBuffer.isEnabled();
+    }
+
+    /** The quantities held back were written, so what was derived from the old rows is stale. */
+    private void quantitiesFlushed(List<QuantityChange> changes) {
+        changes.forEach(change -> written(change.getId()));
+        // the quantities replaced are unknown here
+        categoryAggregates.invalidate();
     }
 
     public void deleteProduct(Long id) {
-        log.debug("Deleting product with id: {}", id);
-        productRepository.deleteById(id);
+        deleteProduct(id, null);
+    }
+
+    /**
+     * @param expectedVersion version from the caller's If-Match, or null to delete unconditionally
+     * @throws VersionConflictException if the product is missing or at another version
+     */
+    public void deleteProduct(Long id, Long expectedVersion) {
+        log.debug("Deleting product with id {} at version {}", id, expectedVersion);
+        try {
+            if (expectedVersion == null) {
+                quantityBuffer.discard(id);
+            } else {
+                quantityBuffer.flush(id);
+            }
+            Optional<Product> before = productRepository.deleteReturningPrevious(id, expectedVersion);
+            if (before.isEmpty()) {
+                throw new VersionConflictException("Product " + id + " is not at version " + expectedVersion);
+            }
+            categoryAggregates.removed(before.get());
+        } finally {
+            written(id);
+        }
+    }
+
+    public BatchResponse createProducts(List<Product> products) {
+        log.debug("Creating a batch of {} products", products.size());
+        Long[] ids = new Long[products.size()];
+        Long[] versions = new Long[products.size()];
+        Map<Integer, Map<String, String>> errors = new TreeMap<>();
+        List<Integer> indexes = new ArrayList<>();
+        List<Product> validProducts = new ArrayList<>();
+        for (int i = 0; i < products.size(); i++) {
+            Product product = products.get(i);
+            if (product == null) {
+                errors.put(i, Map.of("product", "Product is required"));
+                continue;
+            }
+            product.setId(null);
+            Map<String, String> violations = validate(product);
+            if (violations.isEmpty()) {
+                indexes.add(i);
+                validProducts.add(product);
+            } else {
+                errors.put(i, violations);
+            }
+        }
+
+        if (!validProducts.isEmpty()) {
+            List<Long> generatedIds = productRepository.insertAll(validProducts);
+            pagesChanged();
+            validProducts.forEach(categoryAggregates::added);
+            for (int i = 0; i < indexes.size(); i++) {
+                ids[indexes.get(i)] = generatedIds.get(i);
+                versions[indexes.get(i)] = validProducts.get(i).getVersion();
+            }
+        }
+        return new BatchResponse(Arrays.asList(ids), errors, Arrays.asList(versions));
+    }
+
+    public BatchResponse updateProducts(List<Product> products) {
+        log.debug("Updating a batch of {} products", products.size());
+        Long[] ids = new Long[products.size()];
+        Long[] versions = new Long[products.size()];
+        Map<Integer, Map<String, String>> errors = new TreeMap<>();
+        List<Integer> indexes = new ArrayList<>();
+        List<Product> validProducts = new ArrayList<>();
+        for (int i = 0; i < products.size(); i++) {
+            Product product = products.get(i);
+            if (product == null) {
+                errors.put(i, Map.of("product", "Product is required"));
+                continue;
+            }
+            Map<String, String> violations = validate(product);
+            if (product.getId() == null) {
+                violations.put("id", "Id is required");
+            }
+            if (violations.isEmpty()) {
+                indexes.add(i);
+                validProducts.add(product);
+            } else {
+                errors.put(i, violations);
+            }
+        }
+
+        if (!validProducts.isEmpty()) {
+            validProducts.forEach(product -> quantityBuffer.discard(product.getId()));
+            int[] rowsAffected;
+            try {
+                rowsAffected = productRepository.updateAll(validProducts);
+            } finally {
+                validProducts.forEach(product -> written(product.getId()));
+                // reading every product before a batch would cost more than aggregating again
+                categoryAggregates.invalidate();
+            }
+            for (int i = 0; i < indexes.size(); i++) {
+                if (rowsAffected[i] == 0) {
+                    errors.put(indexes.get(i), Map.of("id", "Product not found"));
+                } else {
+                    ids[indexes.get(i)] = validProducts.get(i).getId();
+                    versions[indexes.get(i)] = validProducts.get(i).getVersion();
+                }
+            }
+        }
+        return new BatchResponse(Arrays.asList(ids), errors, Arrays.asList(versions));
+    }
+
+    public BatchResponse deleteProducts(List<Long> productIds) {
+        log.debug("Deleting a batch of {} products", productIds.size());
+        Long[] ids = new Long[productIds.size()];
+        Map<Integer, Map<String, String>> errors = new TreeMap<>();
+        List<Integer> indexes = new ArrayList<>();
+        List<Long> validIds = new ArrayList<>();
+        for (int i = 0; i < productIds.size(); i++) {
+            if (productIds.get(i) == null) {
+                errors.put(i, Map.of("id", "Id is required"));
+            } else {
+                indexes.add(i);
+                validIds.add(productIds.get(i));
+            }
+        }
+
+        if (!validIds.isEmpty()) {
+            validIds.forEach(quantityBuffer::discard);
+            int[] rowsAffected;
+            try {
+                rowsAffected = productRepository.deleteAllById(validIds);
+            } finally {
+                validIds.forEach(this::written);
+                categoryAggregates.invalidate();
+            }
+            for (int i = 0; i < indexes.size(); i++) {
+                if (rowsAffected[i] == 0) {
+                    errors.put(indexes.get(i), Map.of("id", "Product not found"));
+                } else {
+                    ids[indexes.get(i)] = validIds.get(i);
+                }
+            }
+        }
+        return new BatchResponse(Arrays.asList(ids), errors);
+    }
+
+    private <K, V> V coalesce(SingleFlight<K, V> flight, K key, Supplier<V> loader) {
+        return singleFlightEnabled ? flight.execute(key, loader) : loader.get();
+    }
+
+    /**
+     * Reports a write that did not go through this service, such as an import or a write by another
+     * instance, so reads and pages are not coalesced or cached across it.
+     *
+     * @param id the written product, or null if any product may have changed
+     */
+    public void changedElsewhere(Long id) {
+        if (id == null) {
+            productFlights.forgetAll();
+            pagesChanged();
+        } else {
+            written(id);
+        }
+    }
+
+    /** Keeps reads that start after a write from joining a query that began before it. */
+    private void written(Long id) {
+        productFlights.forget(id);
+        pagesChanged();
+    }
+
+    private static Product withQuantity(Product product, QuantityChange change) {
+        int quantity = change.isAbsolute() ? change.getAmount() : product.getQuantity() + change.getAmount();
+        return new Product(product.getId(), product.getName(), product.getDescription(), product.getPrice(),
+                quantity, product.getCategory(), product.getVersion() + 1);
+    }
+
+    private void pagesChanged() {
+        writeGeneration.incrementAndGet();
+        pageFlights.forgetAll();
+    }
+
+    private record PageKey(int page, int size) {
+    }
+
+    private Map<String, String> validate(Product product) {
+        Map<String, String> violations = new HashMap<>();
+        validator.validate(product).forEach(violation ->
+                violations.put(violation.getPropertyPath().toString(), violation.getMessage()));
+        return violations;
+    }
+
+    static String nextCursor(List<Product> products, int size) {
+        if (products.isEmpty() || products.size() < size) {
+            return null;
+        }
+        long lastId = products.get(products.size() - 1).getId();
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(Long.toString(lastId).getBytes(StandardCharsets.US_ASCII));
+    }
+
+    static long decodeCursor(String cursor) {
+        try {
+            byte[] decoded = Base64.getUrlDecoder().decode(cursor);
+            return Long.parseLong(new String(decoded, StandardCharsets.US_ASCII));
+        } catch (IllegalArgumentException e) {
+            throw new InvalidRequestException("Invalid page cursor: " + cursor, e);
+        }
     }
 }
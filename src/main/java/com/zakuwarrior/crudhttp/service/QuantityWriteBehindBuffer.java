@@ -0,0 +1,301 @@
+package com.zakuwarrior.crudhttp.service;
+
+import com.zakuwarrior.crudhttp.config.ProductProperties;
+import com.zakuwarrior.crudhttp.exception.CommitOutcomeUnknownException;
+import com.zakuwarrior.crudhttp.exception.DatabaseException;
+import com.zakuwarrior.crudhttp.model.QuantityChange;
+import com.zakuwarrior.crudhttp.repository.ProductRepository;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Profile;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * Collects quantity changes per product in memory and writes them as one batch of UPDATEs when
+ * {@code max-pending} products have one or every {@code flush-interval}.
+ *
+ * <p>Changes of one product are coalesced, so a burst of decrements on a hot product costs one
+ * UPDATE: a set replaces everything queued before it, and deltas are summed into one net amount.
+ * Deltas keep their check that the quantity stays non-negative. After a queued set it is applied
+ * in memory and {@link #enqueue} refuses the delta; otherwise the database checks the net amount
+ * at flush time, and if it refuses, the deltas are written one by one so only those that no
+ * longer fit are rejected. Changes rejected at flush time are logged and counted in
+ * {@code products.quantity.write-behind.rejected}, since their callers were answered already.
+ *
+ * <p>Guarantees:
+ * <ul>
+ *     <li>Flushes never overlap, so an older batch cannot land after a newer one.</li>
+ *     <li>A batch that fails before its commit is put back in front of the changes queued since,
+ *     and retried with the next flush. If the commit itself fails the outcome is unknown: sets are
+ *     put back, since writing one twice leaves the same quantity, but deltas are dropped and logged
+ *     rather than risk applying them twice.</li>
+ *     <li>Accepted changes live only in memory until flushed: they are written on graceful
+ *     shutdown but lost if the process dies.</li>
+ *     <li>A change for a missing product is rejected at flush time.</li>
+ *     <li>After every flush the registered listener hears which products were written,
+ *     so caches and aggregates derived from their rows can be refreshed.</li>
+ * </ul>
+ */
+@Slf4j
+@Profile("!reactive")
+@Component
+public class QuantityWriteBehindBuffer implements MeterBinder {
+    private final ProductRepository productRepository;
+    private final ProductProperties.WriteBehind properties;
+    private final Map<Long, Pending> pending = new LinkedHashMap<>();
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private final AtomicLong rejected = new AtomicLong();
+    private volatile Consumer<List<QuantityChange>> flushListener = changes -> { };
+
+    /** Queued changes of one product: a set quantity, or the deltas since the last write. */
+    private static final class Pending {
+        private Integer quantity;
+        private int net;
+        private final List<Integer> deltas = new ArrayList<>();
+
+        /** @return false if the change is a delta that would take the queued quantity below zero */
+        boolean add(QuantityChange change) {
+            if (change.isAbsolute()) {
+                quantity = change.getAmount();
+                net = 0;
+                deltas.clear();
+                return true;
+            }
+            try {
+                if (quantity != null) {
+                    int result = Math.addExact(quantity, change.getAmount());
+                    if (result < 0) {
+                        return false;
+                    }
+                    quantity = result;
+                } else {
+                    net = Math.addExact(net, change.getAmount());
+                    deltas.add(change.getAmount());
+                }
+                return true;
+            } catch (ArithmeticException e) {
+                return false;
+            }
+        }
+
+        QuantityChange toChange(long id) {
+            return quantity != null ? new QuantityChange(id, true, quantity) : new QuantityChange(id, false, net);
+        }
+    }
+
+    public QuantityWriteBehindBuffer(ProductRepository productRepository, ProductProperties properties) {
+        this.productRepository = productRepository;
+        this.properties = properties.getWriteBehind();
+    }
+
+    public boolean isEnabled() {
+        return properties.isEnabled();
+    }
+
+    /** Called after each flush attempt with the changes it wrote or may have written. */
+    public void onFlushed(Consumer<List<QuantityChange>> listener) {
+        this.flushListener = listener;
+    }
+
+    /**
+     * Queues a change behind the ones already queued for the product.
+     *
+     * @return false if a set of the product is queued and the delta would take it below zero; nothing is queued then
+     */
+    public boolean enqueue(QuantityChange change) {
+        boolean full;
+        synchronized (pending) {
+            Pending changes = pending.get(change.getId());
+            if (changes == null) {
+                changes = new Pending();
+                pending.put(change.getId(), changes);
+            }
+            if (!changes.add(change)) {
+                return false;
+            }
+            full = pending.size() >= properties.getMaxPending();
+        }
+        if (full) {
+            flush();
+        }
+        return true;
+    }
+
+    /**
+     * Drops the pending changes of a product that is about to be replaced or deleted,
+     * waiting for a flush that may already be writing them.
+     */
+    public void discard(long id) {
+        flushLock.lock();
+        try {
+            synchronized (pending) {
+                pending.remove(id);
+            }
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    public int pendingCount() {
+        synchronized (pending) {
+            return pending.size();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${products.write-behind.flush-interval:PT1S}")
+    public void flush() {
+        flushLock.lock();
+        try {
+            Map<Long, Pending> changes;
+            synchronized (pending) {
+                if (pending.isEmpty()) {
+                    return;
+                }
+                changes = new LinkedHashMap<>(pending);
+                pending.clear();
+            }
+            write(changes);
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    /**
+     * Writes the pending changes of one product now, so a write that depends on the stored row sees them.
+     *
+     * @throws DatabaseException if the changes could not be written; they stay pending unless they may have been applied
+     */
+    public void flush(long id) {
+        flushLock.lock();
+        try {
+            Pending changes;
+            synchronized (pending) {
+                changes = pending.remove(id);
+            }
+            if (changes != null && !write(Map.of(id, changes))) {
+                throw new DatabaseException("Failed to write the pending quantity of product " + id);
+            }
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    private boolean write(Map<Long, Pending> changes) {
+        List<QuantityChange> batch = new ArrayList<>(changes.size());
+        changes.forEach((id, product) -> batch.add(product.toChange(id)));
+        int[] rowsAffected = update(batch, changes);
+        if (rowsAffected == null) {
+            return false;
+        }
+
+        Map<Long, Pending> refused = new LinkedHashMap<>();
+        for (int i = 0; i < rowsAffected.length; i++) {
+            QuantityChange change = batch.get(i);
+            Pending product = changes.get(change.getId());
+            if (rowsAffected[i] > 0) {
+                continue;
+            }
+            if (product.deltas.size() > 1) {
+                refused.put(change.getId(), product);
+            } else {
+                rejected(change);
+            }
+        }
+        if (refused.isEmpty()) {
+            return true;
+        }
+
+        // the net amount would go below zero, so each delta is checked on its own, in arrival order
+        List<QuantityChange> replayed = new ArrayList<>();
+        refused.forEach((id, product) -> product.deltas.forEach(delta -> replayed.add(new QuantityChange(id, false, delta))));
+        int[] replayedRowsAffected = update(replayed, refused);
+        if (replayedRowsAffected == null) {
+            return false;
+        }
+        for (int i = 0; i < replayedRowsAffected.length; i++) {
+            if (replayedRowsAffected[i] == 0) {
+                rejected(replayed.get(i));
+            }
+        }
+        return true;
+    }
+
+    /** Writes one batch, or puts the changes it was made of back and returns null. */
+    private int[] update(List<QuantityChange> batch, Map<Long, Pending> changes) {
+        try {
+            int[] rowsAffected = productRepository.updateQuantities(batch);
+            log.debug("Flushed {} quantity changes", batch.size());
+            return rowsAffected;
+        } catch (CommitOutcomeUnknownException e) {
+            log.error("Commit of {} quantity changes failed, will retry the sets only", batch.size(), e);
+            putBack(changes, true);
+            return null;
+        } catch (RuntimeException e) {
+            log.error("Failed to flush {} quantity changes, will retry", batch.size(), e);
+            putBack(changes, false);
+            return null;
+        } finally {
+            // even a failed batch may have committed before the connection dropped
+            flushListener.accept(batch);
+        }
+    }
+
+    /** Puts failed changes back in front of the changes of the same products queued meanwhile. */
+    private void putBack(Map<Long, Pending> changes, boolean setsOnly) {
+        synchronized (pending) {
+            changes.forEach((id, older) -> {
+                if (setsOnly && older.quantity == null) {
+                    log.error("Dropped quantity deltas {} of product {}, they may have been applied", older.deltas, id);
+                    return;
+                }
+                Pending newer = pending.get(id);
+                if (newer != null && newer.quantity != null) {
+                    return;
+                }
+                if (newer != null) {
+                    newer.deltas.forEach(delta -> {
+                        QuantityChange change = new QuantityChange(id, false, delta);
+                        if (!older.add(change)) {
+                            rejected(change);
+                        }
+                    });
+                }
+                pending.put(id, older);
+            });
+        }
+    }
+
+    private void rejected(QuantityChange change) {
+        log.warn("Rejected queued quantity change, the product is missing or the quantity would go below zero: {}", change);
+        rejected.incrementAndGet();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("products.quantity.write-behind.rejected", rejected, AtomicLong::get)
+                .description("Queued quantity changes rejected at flush time")
+                .register(registry);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+        int lost = pendingCount();
+        if (lost > 0) {
+            log.error("Shutting down with unflushed quantity changes of {} products", lost);
+        }
+    }
+}
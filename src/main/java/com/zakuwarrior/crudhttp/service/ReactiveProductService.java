@@ -0,0 +1,320 @@
+package com.zakuwarrior.crudhttp.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.zakuwarrior.crudhttp.config.ProductProperties;
+import com.zakuwarrior.crudhttp.exception.InvalidRequestException;
+import com.zakuwarrior.crudhttp.exception.VersionConflictException;
+import com.zakuwarrior.crudhttp.model.BatchResponse;
+import com.zakuwarrior.crudhttp.model.ImportResponse;
+import com.zakuwarrior.crudhttp.model.PageResponse;
+import com.zakuwarrior.crudhttp.model.Product;
+import com.zakuwarrior.crudhttp.model.ProductSearchCriteria;
+import com.zakuwarrior.crudhttp.model.QuantityUpdate;
+import com.zakuwarrior.crudhttp.repository.ReactiveProductRepository;
+
+import jakarta.validation.Validator;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+@Slf4j
+@Profile("reactive")
+@Service
+public class ReactiveProductService {
+    private final ReactiveProductRepository productRepository;
+    private final Validator validator;
+    private final ObjectMapper objectMapper;
+    private final ProductProperties properties;
+
+    public ReactiveProductService(ReactiveProductRepository productRepository, Validator validator,
+                                  ObjectMapper objectMapper, ProductProperties properties) {
+        this.productRepository = productRepository;
+        this.validator = validator;
+        this.objectMapper = objectMapper;
+        this.properties = properties;
+    }
+
+    public Flux<Product> getAllProducts() {
+        log.debug("Fetching all products");
+        return productRepository.findAll();
+    }
+
+    public Mono<PageResponse<Product>> getProductsByPage(int page, int size) {
+        log.debug("Fetching products for page {} with size {}", page, size);
+        int offset = page * size;
+        return Mono.zip(productRepository.findByPage(offset, size).collectList(), productRepository.countAll())
+                .map(pageAndCount -> {
+                    long totalItems = pageAndCount.getT2();
+                    int totalPages = (int) Math.ceil((double) totalItems / size);
+                    List<Product> products = pageAndCount.getT1();
+                    return new PageResponse<>(products, page, totalPages, totalItems, size,
+                            ProductService.nextCursor(products, size));
+                });
+    }
+
+    /**
+     * @param withTotal whether to count the products for totalItems and totalPages, which are -1 otherwise
+     */
+    public Mono<PageResponse<Product>> getProductsAfter(String cursor, int size, boolean withTotal) {
+        log.debug("Fetching products after cursor {} with size {}", cursor, size);
+        return Mono.defer(() -> {
+            long lastId = ProductService.decodeCursor(cursor);
+            Mono<Long> totalItems = withTotal ? productRepository.countAll() : Mono.just(-1L);
+            return Mono.zip(productRepository.findAfterId(lastId, size).collectList(), totalItems);
+        }).map(pageAndCount -> {
+            long totalItems = pageAndCount.getT2();
+            int totalPages = totalItems < 0 ? -1 : (int) Math.ceil((double) totalItems / size);
+            List<Product> products = pageAndCount.getT1();
+            return new PageResponse<>(products, -1, totalPages, totalItems, size,
+                    ProductService.nextCursor(products, size));
+        });
+    }
+
+    public Flux<Product> searchProducts(ProductSearchCriteria criteria, String sort, int page, int size) {
+        log.debug("Searching products by {} sorted by {} for page {} with size {}", criteria, sort, page, size);
+        return Flux.defer(() -> {
+            ProductService.applySort(criteria, sort);
+            return productRepository.search(criteria, page * size, size);
+        });
+    }
+
+    public Flux<Product> searchProductsByText(String text, int page, int size) {
+        log.debug("Searching products by text '{}' for page {} with size {}", text, page, size);
+        if (text == null || text.isBlank()) {
+            return Flux.error(new InvalidRequestException("Search text must not be blank"));
+        }
+        return productRepository.searchText(text, page * size, size);
+    }
+
+    public Mono<Product> getByProductId(Long id) {
+        log.debug("Fetching product with id: {}", id);
+        return productRepository.findById(id);
+    }
+
+    public Mono<Product> createProduct(Product product) {
+        log.debug("Creating new product: {}", product);
+        return productRepository.save(product);
+    }
+
+    public Mono<Product> updateProduct(Long id, Product product) {
+        return updateProduct(id, product, null);
+    }
+
+    /**
+     * Replaces a product, optionally only if it is still at the version the caller last saw.
+     *
+     * @param expectedVersion version from the caller's If-Match, or null to update unconditionally
+     * @return fails with {@link VersionConflictException} if the product is missing or at another version
+     */
+    public Mono<Product> updateProduct(Long id, Product product, Long expectedVersion) {
+        log.debug("Updating product with id {} at version {}: {}", id, expectedVersion, product);
+        product.setId(id);
+        if (expectedVersion == null) {
+            return productRepository.save(product);
+        }
+        return productRepository.updateIfVersion(product, expectedVersion)
+                .flatMap(updated -> updated
+                        ? Mono.just(product)
+                        : Mono.error(new VersionConflictException("Product " + id + " is not at version " + expectedVersion)));
+    }
+
+    /**
+     * Applies a quantity change right away; there is no write-behind in the reactive variant.
+     *
+     * @return false if the change matched no product or would make the quantity negative
+     */
+    public Mono<Boolean> updateQuantity(Long id, QuantityUpdate update) {
+        log.debug("Updating quantity of product with id {}: {}", id, update);
+        return productRepository.updateQuantity(update.toChange(id));
+    }
+
+    public Mono<Void> deleteProduct(Long id) {
+        return deleteProduct(id, null);
+    }
+
+    /**
+     * @param expectedVersion version from the caller's If-Match, or null to delete unconditionally
+     * @return fails with {@link VersionConflictException} if the product is missing or at another version
+     */
+    public Mono<Void> deleteProduct(Long id, Long expectedVersion) {
+        log.debug("Deleting product with id {} at version {}", id, expectedVersion);
+        if (expectedVersion == null) {
+            return productRepository.deleteById(id);
+        }
+        return productRepository.deleteByIdIfVersion(id, expectedVersion)
+                .flatMap(deleted -> deleted
+                        ? Mono.<Void>empty()
+                        : Mono.error(new VersionConflictException("Product " + id + " is not at version " + expectedVersion)));
+    }
+
+    public Mono<BatchResponse> createProducts(List<Product> products) {
+        log.debug("Creating a batch of {} products", products.size());
+        Long[] ids = new Long[products.size()];
+        Long[] versions = new Long[products.size()];
+        Map<Integer, Map<String, String>> errors = new TreeMap<>();
+        List<Integer> indexes = new ArrayList<>();
+        List<Product> validProducts = new ArrayList<>();
+        for (int i = 0; i < products.size(); i++) {
+            Product product = products.get(i);
+            if (product == null) {
+                errors.put(i, Map.of("product", "Product is required"));
+                continue;
+            }
+            product.setId(null);
+            Map<String, String> violations = validate(product);
+            if (violations.isEmpty()) {
+                indexes.add(i);
+                validProducts.add(product);
+            } else {
+                errors.put(i, violations);
+            }
+        }
+
+        Mono<List<Long>> inserted = validProducts.isEmpty()
+                ? Mono.just(List.of())
+                : productRepository.insertAll(validProducts);
+        return inserted.map(generatedIds -> {
+            for (int i = 0; i < generatedIds.size(); i++) {
+                ids[indexes.get(i)] = generatedIds.get(i);
+                versions[indexes.get(i)] = validProducts.get(i).getVersion();
+            }
+            return new BatchResponse(Arrays.asList(ids), errors, Arrays.asList(versions));
+        });
+    }
+
+    public Mono<BatchResponse> updateProducts(List<Product> products) {
+        log.debug("Updating a batch of {} products", products.size());
+        Long[] ids = new Long[products.size()];
+        Long[] versions = new Long[products.size()];
+        Map<Integer, Map<String, String>> errors = new TreeMap<>();
+        List<Integer> indexes = new ArrayList<>();
+        List<Product> validProducts = new ArrayList<>();
+        for (int i = 0; i < products.size(); i++) {
+            Product product = products.get(i);
+            if (product == null) {
+                errors.put(i, Map.of("product", "Product is required"));
+                continue;
+            }
+            Map<String, String> violations = validate(product);
+            if (product.getId() == null) {
+                violations.put("id", "Id is required");
+            }
+            if (violations.isEmpty()) {
+                indexes.add(i);
+                validProducts.add(product);
+            } else {
+                errors.put(i, violations);
+            }
+        }
+
+        Mono<int[]> updated = validProducts.isEmpty()
+                ? Mono.just(new int[0])
+                : productRepository.updateAll(validProducts);
+        return updated.map(rowsAffected -> {
+            for (int i = 0; i < rowsAffected.length; i++) {
+                if (rowsAffected[i] == 0) {
+                    errors.put(indexes.get(i), Map.of("id", "Product not found"));
+                } else {
+                    ids[indexes.get(i)] = validProducts.get(i).getId();
+                    versions[indexes.get(i)] = validProducts.get(i).getVersion();
+                }
+            }
+            return new BatchResponse(Arrays.asList(ids), errors, Arrays.asList(versions));
+        });
+    }
+
+    public Mono<BatchResponse> deleteProducts(List<Long> productIds) {
+        log.debug("Deleting a batch of {} products", productIds.size());
+        Long[] ids = new Long[productIds.size()];
+        Map<Integer, Map<String, String>> errors = new TreeMap<>();
+        List<Integer> indexes = new ArrayList<>();
+        List<Long> validIds = new ArrayList<>();
+        for (int i = 0; i < productIds.size(); i++) {
+            if (productIds.get(i) == null) {
+                errors.put(i, Map.of("id", "Id is required"));
+            } else {
+                indexes.add(i);
+                validIds.add(productIds.get(i));
+            }
+        }
+
+        Mono<int[]> deleted = validIds.isEmpty()
+                ? Mono.just(new int[0])
+                : productRepository.deleteAllById(validIds);
+        return deleted.map(rowsAffected -> {
+            for (int i = 0; i < rowsAffected.length; i++) {
+                if (rowsAffected[i] == 0) {
+                    errors.put(indexes.get(i), Map.of("id", "Product not found"));
+                } else {
+                    ids[indexes.get(i)] = validIds.get(i);
+                }
+            }
+            return new BatchResponse(Arrays.asList(ids), errors);
+        });
+    }
+
+    /**
+     * Copies CSV or NDJSON rows into the database as they arrive. {@link ProductCopyReader} reads
+     * blocking, so it runs on the bounded elastic scheduler and hands COPY text chunks to the driver.
+     */
+    public Mono<ImportResponse> importProducts(Flux<DataBuffer> body, Charset charset, ProductCopyReader.Format format) {
+        log.debug("Importing products from {}", format);
+        ProductProperties.Ingest ingest = properties.getIngest();
+        return Mono.defer(() -> {
+            ProductCopyReader rows = new ProductCopyReader(
+                    new InputStreamReader(DataBufferUtils.subscriberInputStream(body, 4), charset), format,
+                    objectMapper, validator, ingest.getMaxReportedErrors());
+            Flux<String> chunks = Flux.<String>generate(sink -> {
+                        char[] buffer = new char[ingest.getBufferSize()];
+                        try {
+                            int read = rows.read(buffer);
+                            if (read < 0) {
+                                sink.complete();
+                            } else {
+                                sink.next(new String(buffer, 0, read));
+                            }
+                        } catch (IOException e) {
+                            sink.error(new UncheckedIOException(e));
+                        }
+                    })
+                    .subscribeOn(Schedulers.boundedElastic())
+                    .doFinally(signal -> closeQuietly(rows));
+            return productRepository.copyFrom(chunks)
+                    .map(imported -> {
+                        log.info("Imported {} products, rejected {}", imported, rows.getRejected());
+                        return new ImportResponse(imported, rows.getRejected(), rows.getErrors());
+                    });
+        });
+    }
+
+    private Map<String, String> validate(Product product) {
+        Map<String, String> violations = new HashMap<>();
+        validator.validate(product).forEach(violation ->
+                violations.put(violation.getPropertyPath().toString(), violation.getMessage()));
+        return violations;
+    }
+
+    private static void closeQuietly(ProductCopyReader rows) {
+        try {
+            rows.close();
+        } catch (IOException e) {
+            log.warn("Failed to close the import body", e);
+        }
+    }
+}
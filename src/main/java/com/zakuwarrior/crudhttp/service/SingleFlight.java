@@ -0,0 +1,91 @@
+package com.zakuwarrior.crudhttp.service;
+
+import com.zakuwarrior.crudhttp.exception.DatabaseException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Lets concurrent callers asking for the same key share one run of the loader.
+ * The first caller runs it on its own thread; callers arriving while it runs wait up to
+ * {@code maxWait} for its result or its exception. The result object is shared between them,
+ * so callers must not modify it.
+ */
+public class SingleFlight<K, V> {
+    private final Map<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+    private final Duration maxWait;
+    private final Counter coalesced;
+    private final Counter timeouts;
+
+    public SingleFlight(String operation, Duration maxWait, MeterRegistry registry) {
+        this.maxWait = maxWait;
+        this.coalesced = Counter.builder("products.single-flight.coalesced")
+                .description("Reads that shared a query already in flight")
+                .tag("operation", operation)
+                .register(registry);
+        this.timeouts = Counter.builder("products.single-flight.timeouts")
+                .description("Reads that gave up waiting for a shared query")
+                .tag("operation", operation)
+                .register(registry);
+    }
+
+    public V execute(K key, Supplier<V> loader) {
+        CompletableFuture<V> future = new CompletableFuture<>();
+        CompletableFuture<V> running = inFlight.putIfAbsent(key, future);
+        if (running != null) {
+            coalesced.increment();
+            return await(key, running);
+        }
+
+        try {
+            V value = loader.get();
+            future.complete(value);
+            return value;
+        } catch (RuntimeException | Error e) {
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, future);
+        }
+    }
+
+    /**
+     * Makes later callers start a fresh load instead of joining one that began before a write.
+     * Callers already waiting still get the running load's result.
+     */
+    public void forget(K key) {
+        inFlight.remove(key);
+    }
+
+    public void forgetAll() {
+        inFlight.clear();
+    }
+
+    private V await(K key, CompletableFuture<V> running) {
+        try {
+            return running.get(maxWait.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            if (e.getCause() instanceof Error error) {
+                throw error;
+            }
+            throw new DatabaseException("Shared product query failed", e.getCause());
+        } catch (TimeoutException e) {
+            timeouts.increment();
+            throw new DatabaseException("Timed out waiting for a shared product query: " + key, e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new DatabaseException("Interrupted while waiting for a shared product query", e);
+        }
+    }
+}
@@ -6,9 +6,54 @@ CREATE TABLE products (
     description VARCHAR(500),
     price DECIMAL(10, 2) NOT NULL,
     quantity INTEGER NOT NULL,
-    category VARCHAR(50) NOT NULL
+    category VARCHAR(50) NOT NULL,
+    version BIGINT NOT NULL DEFAULT 0,
+    -- words of the name outrank words of the description; 'simple' keeps model names and numbers as written
+    search_vector TSVECTOR GENERATED ALWAYS AS (
+        setweight(to_tsvector('simple', name), 'A') ||
+        setweight(to_tsvector('simple', coalesce(description, '')), 'B')) STORED
 );
 
+CREATE INDEX idx_products_category_price ON products (category, price);
+CREATE INDEX idx_products_price ON products (price);
+CREATE INDEX idx_products_name_prefix ON products (name text_pattern_ops);
+CREATE INDEX idx_products_search ON products USING GIN (search_vector);
+
+-- Publishes the rows changed by each statement on the product_changes channel for ProductChangeListener.
+-- A statement that changes more than 100 rows, such as a COPY import, sends a single RESET instead, and so
+-- does every statement of a transaction that set products.bulk_write, which JDBC batches of more than 100
+-- rows do; PostgreSQL delivers identical notifications of one transaction once, so bulk writes cannot
+-- flood the notification queue.
+-- The body is single-quoted rather than dollar-quoted so plain ';'-splitting script runners keep it whole.
+CREATE OR REPLACE FUNCTION notify_product_change() RETURNS trigger AS '
+DECLARE
+    changed RECORD;
+BEGIN
+    IF current_setting(''products.bulk_write'', true) = ''on'' OR (SELECT count(*) FROM changed_rows) > 100 THEN
+        PERFORM pg_notify(''product_changes'', json_build_object(''operation'', ''RESET'', ''version'', 0)::text);
+    ELSE
+        FOR changed IN SELECT id, version FROM changed_rows LOOP
+            PERFORM pg_notify(''product_changes'',
+                json_build_object(''operation'', TG_OP, ''id'', changed.id, ''version'', changed.version)::text);
+        END LOOP;
+    END IF;
+    RETURN NULL;
+END;
+' LANGUAGE plpgsql;
+
+-- transition tables allow only one event per trigger; each names its rows changed_rows for the function
+CREATE TRIGGER products_notify_insert
+    AFTER INSERT ON products REFERENCING NEW TABLE AS changed_rows
+    FOR EACH STATEMENT EXECUTE FUNCTION notify_product_change();
+
+CREATE TRIGGER products_notify_update
+    AFTER UPDATE ON products REFERENCING NEW TABLE AS changed_rows
+    FOR EACH STATEMENT EXECUTE FUNCTION notify_product_change();
+
+CREATE TRIGGER products_notify_delete
+    AFTER DELETE ON products REFERENCING OLD TABLE AS changed_rows
+    FOR EACH STATEMENT EXECUTE FUNCTION notify_product_change();
+
 INSERT INTO products (name, description, price, quantity, category) VALUES
     ('Honor X8', 'Huawei Honor X8', 150.99, 10, 'Smartphone'),
     ('iPhone 12', 'Apple iPhone 12', 450.00, 10, 'Smartphone'),
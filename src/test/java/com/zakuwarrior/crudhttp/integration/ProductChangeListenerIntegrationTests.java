@@ -0,0 +1,119 @@
+package com.zakuwarrior.crudhttp.integration;
+
+import com.zakuwarrior.crudhttp.model.Product;
+import com.zakuwarrior.crudhttp.model.ProductChange;
+import com.zakuwarrior.crudhttp.repository.ProductRepository;
+import com.zakuwarrior.crudhttp.service.ProductChangeFeed;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@Testcontainers
+@SpringBootTest
+public class ProductChangeListenerIntegrationTests {
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private ProductChangeFeed productChangeFeed;
+
+    @Container
+    public static PostgreSQLContainer<?> postgreSQLContainer = new PostgreSQLContainer<>("postgres:17.0-alpine")
+            .withDatabaseName("product-changes-test")
+            .withUsername("application-test-user")
+            .withPassword("application-test-password")
+            .withInitScript("schema.sql");
+
+    @DynamicPropertySource
+    public static void configureDataSourceProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", postgreSQLContainer::getJdbcUrl);
+        registry.add("spring.datasource.username", postgreSQLContainer::getUsername);
+        registry.add("spring.datasource.password", postgreSQLContainer::getPassword);
+    }
+
+    @BeforeAll
+    public static void containerInit() {
+        postgreSQLContainer.start();
+    }
+
+    @AfterAll
+    public static void containerCleanup() {
+        postgreSQLContainer.stop();
+    }
+
+    @Test
+    void rowChanges_ShouldBePublishedInOrder() throws InterruptedException {
+        try (ProductChangeFeed.Subscription subscription = productChangeFeed.subscribe(null)) {
+            // the listener connects in the background, so keep writing until it is listening
+            Product product = null;
+            ProductChangeFeed.Event first = null;
+            for (int attempt = 0; attempt < 20 && first == null; attempt++) {
+                product = productRepository.save(new Product(null, "Watch", "Smart", 199.0, 3, "Wearable"));
+                first = subscription.next(Duration.ofMillis(500));
+            }
+            assertNotNull(first);
+            while (first.change().getId() != product.getId().longValue()) {
+                first = subscription.next(Duration.ofSeconds(5));
+            }
+            assertEquals("INSERT", first.change().getOperation());
+
+            product.setQuantity(2);
+            productRepository.save(product);
+            productRepository.deleteById(product.getId());
+
+            List<ProductChange> changes = new ArrayList<>();
+            while (changes.size() < 2) {
+                ProductChangeFeed.Event event = subscription.next(Duration.ofSeconds(5));
+                assertNotNull(event);
+                changes.add(event.change());
+            }
+            assertEquals("UPDATE", changes.get(0).getOperation());
+            assertEquals(1L, changes.get(0).getVersion());
+            assertEquals("DELETE", changes.get(1).getOperation());
+            assertEquals(product.getId(), changes.get(1).getId());
+        }
+    }
+
+    @Test
+    void bulkInsert_ShouldPublishSingleReset() throws InterruptedException {
+        try (ProductChangeFeed.Subscription subscription = productChangeFeed.subscribe(null)) {
+            Product product = null;
+            ProductChangeFeed.Event event = null;
+            for (int attempt = 0; attempt < 20 && event == null; attempt++) {
+                product = productRepository.save(new Product(null, "Band", "Fitness", 49.0, 3, "Wearable"));
+                event = subscription.next(Duration.ofMillis(500));
+            }
+            assertNotNull(event);
+            while (!product.getId().equals(event.change().getId())) {
+                event = subscription.next(Duration.ofSeconds(5));
+            }
+
+            List<Product> products = new ArrayList<>();
+            for (int i = 0; i < 101; i++) {
+                products.add(new Product(null, "Cable " + i, "USB-C", 9.0, 100, "Accessory"));
+            }
+            productRepository.insertAll(products);
+
+            ProductChangeFeed.Event reset = subscription.next(Duration.ofSeconds(5));
+            assertNotNull(reset);
+            assertEquals(ProductChange.RESET, reset.change().getOperation());
+            assertNull(subscription.next(Duration.ofMillis(500)));
+        }
+    }
+}
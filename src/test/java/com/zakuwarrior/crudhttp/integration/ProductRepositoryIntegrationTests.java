@@ -1,6 +1,9 @@
 package com.zakuwarrior.crudhttp.integration;
 
+import com.zakuwarrior.crudhttp.exception.InvalidRequestException;
 import com.zakuwarrior.crudhttp.model.Product;
+import com.zakuwarrior.crudhttp.model.ProductSearchCriteria;
+import com.zakuwarrior.crudhttp.model.QuantityChange;
 import com.zakuwarrior.crudhttp.repository.ProductRepository;
 
 import org.junit.jupiter.api.AfterAll;
@@ -16,6 +19,7 @@ import org.testcontainers.containers.PostgreSQLContainer;
 import org.testcontainers.junit.jupiter.Container;
 import org.testcontainers.junit.jupiter.Testcontainers;
 
+import java.util.List;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -82,4 +86,97 @@ public class ProductRepositoryIntegrationTests {
 
         assertFalse(deletedProduct.isPresent());
     }
+
+    @Test
+    void writesReturningPrevious_ShouldReturnReplacedRows() {
+        Product savedProduct = productRepository.save(new Product(null, "Watch", "Old", 200.0, 5, "Wearable"));
+        Product replacement = new Product(savedProduct.getId(), "Watch", "New", 250.0, 5, "Wearable");
+
+        Optional<Product> beforeUpdate = productRepository.updateReturningPrevious(replacement, 0L);
+        Optional<Product> stale = productRepository.updateReturningPrevious(replacement, 0L);
+        Optional<Product> beforeQuantity = productRepository.updateQuantityReturningPrevious(
+                new QuantityChange(savedProduct.getId(), false, -2));
+        Optional<Product> beforeDelete = productRepository.deleteReturningPrevious(savedProduct.getId(), null);
+
+        assertEquals("Old", beforeUpdate.get().getDescription());
+        assertEquals(1, replacement.getVersion());
+        assertTrue(stale.isEmpty());
+        assertEquals(250.0, beforeQuantity.get().getPrice());
+        assertEquals(5, beforeQuantity.get().getQuantity());
+        assertEquals(2, beforeDelete.get().getVersion());
+        assertEquals(3, beforeDelete.get().getQuantity());
+        assertTrue(productRepository.findById(savedProduct.getId()).isEmpty());
+    }
+
+    @Test
+    void searchProducts_ShouldFilterAndSortInDatabase() {
+        productRepository.save(new Product(null, "Camera A", "Cheap", 100.0, 1, "Camera"));
+        productRepository.save(new Product(null, "Camera B", "Mid", 250.0, 1, "Camera"));
+        productRepository.save(new Product(null, "Camera C", "Pricey", 900.0, 1, "Camera"));
+        productRepository.save(new Product(null, "Lens", "Not a camera", 200.0, 1, "Camera"));
+
+        List<Product> products = productRepository.search(
+                new ProductSearchCriteria("Camera", 150.0, null, "Camera", "price", true), 0, 10);
+
+        assertEquals(List.of("Camera C", "Camera B"), products.stream().map(Product::getName).toList());
+    }
+
+    @Test
+    void updateIfVersion_ShouldBumpVersionAndRejectStaleOne() {
+        Product savedProduct = productRepository.save(new Product(null, "Watch", "Old", 200.0, 3, "Watch"));
+        assertEquals(0, savedProduct.getVersion());
+
+        savedProduct.setDescription("New");
+        assertTrue(productRepository.updateIfVersion(savedProduct, 0));
+        assertEquals(1, savedProduct.getVersion());
+        assertEquals(1, productRepository.findVersionById(savedProduct.getId()).getAsLong());
+
+        assertFalse(productRepository.updateIfVersion(savedProduct, 0));
+        assertFalse(productRepository.deleteByIdIfVersion(savedProduct.getId(), 0));
+        assertTrue(productRepository.deleteByIdIfVersion(savedProduct.getId(), 1));
+    }
+
+    @Test
+    void updateAll_ShouldReturnTheNewVersions() {
+        Product first = productRepository.save(new Product(null, "Monitor", "27 inch", 300.0, 5, "Display"));
+        Product second = productRepository.save(new Product(null, "Projector", "4K", 800.0, 2, "Display"));
+        productRepository.save(second);
+        Product missing = new Product(Long.MAX_VALUE, "Ghost", "Never saved", 1.0, 1, "Display", 0);
+
+        int[] rowsAffected = productRepository.updateAll(List.of(first, missing, second));
+
+        assertArrayEquals(new int[]{1, 0, 1}, rowsAffected);
+        assertEquals(1, first.getVersion());
+        assertEquals(2, second.getVersion());
+        assertEquals(0, missing.getVersion());
+        assertTrue(productRepository.updateIfVersion(second, 2));
+    }
+
+    @Test
+    void findAllById_ShouldReturnOnlyExistingProducts() {
+        Product first = productRepository.save(new Product(null, "Mouse", "Wireless", 30.0, 7, "Accessory"));
+        Product second = productRepository.save(new Product(null, "Keyboard", "Mechanical", 90.0, 4, "Accessory"));
+
+        List<Product> products = productRepository.findAllById(new long[]{second.getId(), first.getId(), Long.MAX_VALUE});
+
+        assertEquals(2, products.size());
+        assertTrue(products.stream().anyMatch(product -> product.getName().equals("Mouse")));
+        assertTrue(products.stream().anyMatch(product -> product.getName().equals("Keyboard")));
+    }
+
+    @Test
+    void searchText_ShouldMatchWordPrefixesAndRankNameMatchesFirst() {
+        productRepository.save(new Product(null, "Charger", "Fits the Zephyrphone", 20.0, 50, "Accessory"));
+        productRepository.save(new Product(null, "Zephyrphone Ultra", "Flagship phone", 999.0, 2, "Smartphone"));
+        productRepository.save(new Product(null, "Zephyrphone Case", "Leather", 25.0, 30, "Accessory"));
+
+        List<Product> products = productRepository.searchText("zephyr", 0, 10);
+        List<Product> narrowed = productRepository.searchText("Zephyrphone ult", 0, 10);
+
+        assertEquals(3, products.size());
+        assertEquals("Charger", products.get(2).getName());
+        assertEquals(List.of("Zephyrphone Ultra"), narrowed.stream().map(Product::getName).toList());
+        assertTrue(productRepository.searchText("&|!", 0, 10).isEmpty());
+        assertThrows(InvalidRequestException.class, () -> productRepository.searchText("zephyrphone u", 0, 10));
+    }
 }
@@ -0,0 +1,117 @@
+package com.zakuwarrior.crudhttp.integration;
+
+import com.zakuwarrior.crudhttp.model.Product;
+import com.zakuwarrior.crudhttp.repository.ProductRepository;
+import com.zaxxer.hikari.HikariDataSource;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@Testcontainers
+@SpringBootTest
+public class ProductStreamIntegrationTests {
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Container
+    public static PostgreSQLContainer<?> postgreSQLContainer = new PostgreSQLContainer<>("postgres:17.0-alpine")
+            .withDatabaseName("product-stream-test")
+            .withUsername("application-test-user")
+            .withPassword("application-test-password")
+            .withInitScript("schema.sql");
+
+    @DynamicPropertySource
+    public static void configureDataSourceProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", postgreSQLContainer::getJdbcUrl);
+        registry.add("spring.datasource.username", postgreSQLContainer::getUsername);
+        registry.add("spring.datasource.password", postgreSQLContainer::getPassword);
+        // smaller than the table, so the rows arrive over several fetches from the cursor
+        registry.add("products.export.fetch-size", () -> "2");
+    }
+
+    @BeforeAll
+    public static void containerInit() {
+        postgreSQLContainer.start();
+    }
+
+    @AfterAll
+    public static void containerCleanup() {
+        postgreSQLContainer.stop();
+    }
+
+    @Test
+    void streamAll_ShouldDeliverEveryProductInIdOrderFromAnOpenCursor() throws SQLException {
+        productRepository.save(new Product(null, "Speaker", "Bluetooth", 80.0, 6, "Audio"));
+        List<Long> expected = productRepository.findAll().stream()
+                .map(Product::getId).sorted(Comparator.naturalOrder()).toList();
+
+        List<Long> streamed = new ArrayList<>();
+        List<Long> openTransactions = new ArrayList<>();
+        productRepository.streamAll(product -> {
+            if (streamed.isEmpty()) {
+                // the cursor only pages through the fetch size inside a transaction
+                openTransactions.add(countSessions("idle in transaction"));
+            }
+            streamed.add(product.getId());
+        });
+
+        assertEquals(expected, streamed);
+        assertEquals(1L, openTransactions.get(0));
+        assertEquals(0L, countSessions("idle in transaction"));
+    }
+
+    @Test
+    void streamAll_WhenConsumerFails_ShouldStopAndReturnTheConnection() throws SQLException {
+        RuntimeException abort = new RuntimeException("client went away");
+        int[] seen = {0};
+
+        RuntimeException thrown = assertThrows(RuntimeException.class, () -> productRepository.streamAll(product -> {
+            seen[0]++;
+            throw abort;
+        }));
+
+        assertSame(abort, thrown);
+        assertEquals(1, seen[0]);
+        assertEquals(0, dataSource.unwrap(HikariDataSource.class).getHikariPoolMXBean().getActiveConnections());
+        assertEquals(0L, countSessions("idle in transaction"));
+        // the connection went back with autocommit restored, so plain statements still commit
+        Product saved = productRepository.save(new Product(null, "Cable", "USB-C", 9.0, 100, "Accessory"));
+        assertTrue(productRepository.findById(saved.getId()).isPresent());
+    }
+
+    private static long countSessions(String state) throws SQLException {
+        try (Connection connection = DriverManager.getConnection(postgreSQLContainer.getJdbcUrl(),
+                postgreSQLContainer.getUsername(), postgreSQLContainer.getPassword());
+             Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery(
+                     "SELECT COUNT(*) FROM pg_stat_activity WHERE datname = current_database() AND state = '" + state + "'")) {
+            resultSet.next();
+            return resultSet.getLong(1);
+        }
+    }
+}
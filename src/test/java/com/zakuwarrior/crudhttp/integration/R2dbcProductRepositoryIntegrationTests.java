@@ -0,0 +1,156 @@
+package com.zakuwarrior.crudhttp.integration;
+
+import com.zakuwarrior.crudhttp.model.Product;
+import com.zakuwarrior.crudhttp.model.QuantityChange;
+import com.zakuwarrior.crudhttp.repository.R2dbcProductRepository;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationContext;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@Testcontainers
+@SpringBootTest
+@ActiveProfiles("reactive")
+public class R2dbcProductRepositoryIntegrationTests {
+    @Autowired
+    private R2dbcProductRepository productRepository;
+
+    @Autowired
+    private ApplicationContext applicationContext;
+
+    @Container
+    public static PostgreSQLContainer<?> postgreSQLContainer = new PostgreSQLContainer<>("postgres:17.0-alpine")
+            .withDatabaseName("r2dbc-product-test")
+            .withUsername("application-test-user")
+            .withPassword("application-test-password")
+            .withInitScript("schema.sql");
+
+    @DynamicPropertySource
+    public static void configureConnectionFactoryProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.r2dbc.url", () -> "r2dbc:postgresql://" + postgreSQLContainer.getHost() + ":"
+                + postgreSQLContainer.getFirstMappedPort() + "/" + postgreSQLContainer.getDatabaseName());
+        registry.add("spring.r2dbc.username", postgreSQLContainer::getUsername);
+        registry.add("spring.r2dbc.password", postgreSQLContainer::getPassword);
+    }
+
+    @BeforeAll
+    public static void containerInit() {
+        postgreSQLContainer.start();
+    }
+
+    @AfterAll
+    public static void containerCleanup() {
+        postgreSQLContainer.stop();
+    }
+
+    @Test
+    void reactiveProfile_ShouldNotStartTheJdbcStack() {
+        assertFalse(applicationContext.containsBean("jdbcProductRepository"));
+        assertFalse(applicationContext.containsBean("productRepository"));
+        assertEquals(0, applicationContext.getBeanNamesForType(DataSource.class).length);
+    }
+
+    @Test
+    void batchWrites_ShouldReportEachItemAndReturnNewVersions() {
+        List<Product> products = new ArrayList<>(List.of(
+                new Product(null, "Batch Keyboard", "Mechanical", 90.0, 4, "Accessories"),
+                new Product(null, "Batch Mouse", null, 40.0, 8, "Accessories")));
+
+        List<Long> ids = productRepository.insertAll(products).block();
+        assertEquals(2, ids.size());
+        assertEquals(ids.get(0), products.get(0).getId());
+
+        products.get(0).setPrice(95.0);
+        Product missing = new Product(Long.MAX_VALUE, "Missing", null, 1.0, 1, "Accessories");
+        StepVerifier.create(productRepository.updateAll(List.of(products.get(0), missing)))
+                .assertNext(rowsAffected -> assertArrayEquals(new int[]{1, 0}, rowsAffected))
+                .verifyComplete();
+        assertEquals(1, products.get(0).getVersion());
+
+        StepVerifier.create(productRepository.deleteAllById(List.of(ids.get(0), ids.get(1), Long.MAX_VALUE)))
+                .assertNext(rowsAffected -> assertArrayEquals(new int[]{1, 1, 0}, rowsAffected))
+                .verifyComplete();
+        StepVerifier.create(productRepository.findById(ids.get(0))).verifyComplete();
+    }
+
+    @Test
+    void writesIfVersion_ShouldOnlyApplyAtTheExpectedVersion() {
+        Product product = productRepository.save(new Product(null, "Versioned", null, 10.0, 1, "Versioned")).block();
+
+        product.setPrice(12.0);
+        StepVerifier.create(productRepository.updateIfVersion(product, 1)).expectNext(false).verifyComplete();
+        StepVerifier.create(productRepository.updateIfVersion(product, 0)).expectNext(true).verifyComplete();
+        assertEquals(1, product.getVersion());
+
+        StepVerifier.create(productRepository.deleteByIdIfVersion(product.getId(), 0)).expectNext(false).verifyComplete();
+        StepVerifier.create(productRepository.deleteByIdIfVersion(product.getId(), 1)).expectNext(true).verifyComplete();
+        StepVerifier.create(productRepository.findById(product.getId())).verifyComplete();
+    }
+
+    @Test
+    void findAfterId_ShouldSeekInIdOrder() {
+        Product first = productRepository.save(new Product(null, "Seek One", null, 10.0, 1, "Seek")).block();
+        Product second = productRepository.save(new Product(null, "Seek Two", null, 10.0, 1, "Seek")).block();
+
+        StepVerifier.create(productRepository.findAfterId(first.getId(), 1))
+                .assertNext(product -> assertEquals(second.getId(), product.getId()))
+                .verifyComplete();
+    }
+
+    @Test
+    void searchText_ShouldMatchWordPrefixes() {
+        Product product = productRepository.save(
+                new Product(null, "Reactive Gramophone", "Plays vinyl", 120.0, 2, "Audio")).block();
+
+        StepVerifier.create(productRepository.searchText("gramo vin", 0, 5))
+                .assertNext(found -> assertEquals(product.getId(), found.getId()))
+                .verifyComplete();
+    }
+
+    @Test
+    void updateQuantity_ShouldRefuseToGoNegative() {
+        Product product = productRepository.save(new Product(null, "Stocked", null, 5.0, 3, "Stock")).block();
+
+        StepVerifier.create(productRepository.updateQuantity(new QuantityChange(product.getId(), false, -5)))
+                .expectNext(false)
+                .verifyComplete();
+        StepVerifier.create(productRepository.updateQuantity(new QuantityChange(product.getId(), false, -3)))
+                .expectNext(true)
+                .verifyComplete();
+        StepVerifier.create(productRepository.findById(product.getId()))
+                .assertNext(found -> assertEquals(0, found.getQuantity()))
+                .verifyComplete();
+    }
+
+    @Test
+    void copyFrom_ShouldStreamCopyTextIntoTheTable() {
+        Flux<String> rows = Flux.just("Copied Lamp\t\\N\t30.0\t2\tCopied\n", "Copied Desk\tOak\t210.0\t1\tCopied\n");
+
+        StepVerifier.create(productRepository.copyFrom(rows))
+                .expectNext(2L)
+                .verifyComplete();
+        StepVerifier.create(productRepository.searchText("copied", 0, 5).map(Product::getName).sort())
+                .expectNext("Copied Desk", "Copied Lamp")
+                .verifyComplete();
+    }
+}
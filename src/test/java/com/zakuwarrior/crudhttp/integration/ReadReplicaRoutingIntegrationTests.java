@@ -0,0 +1,126 @@
+package com.zakuwarrior.crudhttp.integration;
+
+import com.zakuwarrior.crudhttp.config.ReplicaLagMonitor;
+import com.zakuwarrior.crudhttp.model.Product;
+import com.zakuwarrior.crudhttp.model.ProductSearchCriteria;
+import com.zakuwarrior.crudhttp.repository.ProductRepository;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Two unrelated databases stand in for a primary and its replica, so a row only
+ * present in one of them shows which pool served a read. The stand-in replica is not
+ * in recovery and so always reports no lag; the tests measure it when they choose to.
+ */
+@Testcontainers
+@SpringBootTest
+public class ReadReplicaRoutingIntegrationTests {
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private ReplicaLagMonitor replicaLagMonitor;
+
+    @Container
+    public static PostgreSQLContainer<?> primaryContainer = new PostgreSQLContainer<>("postgres:17.0-alpine")
+            .withDatabaseName("product-primary-test")
+            .withUsername("application-test-user")
+            .withPassword("application-test-password")
+            .withInitScript("schema.sql");
+
+    @Container
+    public static PostgreSQLContainer<?> replicaContainer = new PostgreSQLContainer<>("postgres:17.0-alpine")
+            .withDatabaseName("product-replica-test")
+            .withUsername("application-test-user")
+            .withPassword("application-test-password")
+            .withInitScript("schema.sql");
+
+    @DynamicPropertySource
+    public static void configureDataSourceProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", primaryContainer::getJdbcUrl);
+        registry.add("spring.datasource.username", primaryContainer::getUsername);
+        registry.add("spring.datasource.password", primaryContainer::getPassword);
+        registry.add("products.database.replica.url", replicaContainer::getJdbcUrl);
+        registry.add("products.database.replica.max-staleness", () -> "1s");
+        // measured by the tests only, besides the measurement at startup
+        registry.add("products.database.replica.lag-check-interval", () -> "PT1H");
+        registry.add("products.cache.enabled", () -> "false");
+    }
+
+    @BeforeAll
+    public static void containerInit() {
+        primaryContainer.start();
+        replicaContainer.start();
+    }
+
+    @AfterAll
+    public static void containerCleanup() {
+        primaryContainer.stop();
+        replicaContainer.stop();
+    }
+
+    @Test
+    void search_ShouldReadFromReplica() throws SQLException {
+        insertOnReplica("Replica Only", "Marker");
+        replicaLagMonitor.measure();
+
+        List<Product> found = productRepository.search(
+                new ProductSearchCriteria("Marker", null, null, null, "id", false), 0, 10);
+
+        assertEquals(1, found.size());
+        assertEquals("Replica Only", found.getFirst().getName());
+    }
+
+    @Test
+    void save_ShouldWriteToPrimaryAndReadOwnWrite() {
+        Product saved = productRepository.save(new Product(null, "Primary Only", "Written", 20.0, 2, "Written"));
+
+        // the replica never receives the row, so finding it proves the read went to the primary
+        assertEquals(Optional.of("Primary Only"), productRepository.findById(saved.getId()).map(Product::getName));
+
+        // once a measurement shows the replica caught up with the write, the id is read from the replica again
+        replicaLagMonitor.measure();
+        assertNotEquals(Optional.of("Primary Only"), productRepository.findById(saved.getId()).map(Product::getName));
+    }
+
+    @Test
+    void search_AfterAWrite_ShouldReadFromPrimaryUntilReplicaCaughtUp() throws SQLException {
+        insertOnReplica("Replica Listed", "Listed");
+        productRepository.save(new Product(null, "Primary Listed", "Written", 20.0, 2, "Listed"));
+        ProductSearchCriteria listed = new ProductSearchCriteria("Listed", null, null, null, "id", false);
+
+        assertEquals(List.of("Primary Listed"), productRepository.search(listed, 0, 10).stream().map(Product::getName).toList());
+
+        replicaLagMonitor.measure();
+        assertEquals(List.of("Replica Listed"), productRepository.search(listed, 0, 10).stream().map(Product::getName).toList());
+    }
+
+    private static void insertOnReplica(String name, String category) throws SQLException {
+        try (Connection connection = DriverManager.getConnection(replicaContainer.getJdbcUrl(),
+                replicaContainer.getUsername(), replicaContainer.getPassword());
+             Statement statement = connection.createStatement()) {
+            statement.executeUpdate("INSERT INTO products (name, description, price, quantity, category) "
+                    + "VALUES ('" + name + "', 'Seeded on the replica', 10.0, 1, '" + category + "')");
+        }
+    }
+}
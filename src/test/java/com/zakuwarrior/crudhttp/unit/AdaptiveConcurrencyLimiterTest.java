@@ -0,0 +1,118 @@
+package com.zakuwarrior.crudhttp.unit;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import com.zakuwarrior.crudhttp.config.ProductProperties;
+import com.zakuwarrior.crudhttp.exception.DatabaseException;
+import com.zakuwarrior.crudhttp.exception.DatabaseOverloadedException;
+import com.zakuwarrior.crudhttp.repository.AdaptiveConcurrencyLimiter;
+import com.zakuwarrior.crudhttp.repository.ConcurrencyLimitingProductRepository;
+import com.zakuwarrior.crudhttp.repository.ProductRepository;
+
+import java.sql.SQLTransientConnectionException;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class AdaptiveConcurrencyLimiterTest {
+
+    @Mock
+    private ProductRepository delegate;
+
+    @Test
+    void acquire_ShouldTurnCallersAwayAtTheLimit() throws InterruptedException {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(false, 1, 2);
+
+        assertTrue(limiter.acquire(0, TimeUnit.MILLISECONDS));
+        assertTrue(limiter.acquire(0, TimeUnit.MILLISECONDS));
+        assertFalse(limiter.acquire(10, TimeUnit.MILLISECONDS));
+        assertEquals(2, limiter.getInFlight());
+
+        limiter.release(-1, false);
+        assertTrue(limiter.acquire(0, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    void release_ShouldShrinkTheLimit_WhenLatencyRises() throws InterruptedException {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(true, 1, 10);
+
+        runRounds(limiter, 100, TimeUnit.MILLISECONDS.toNanos(1));
+        assertEquals(10, limiter.getLimit());
+
+        runRounds(limiter, 20, TimeUnit.MILLISECONDS.toNanos(50));
+        assertTrue(limiter.getLimit() < 10);
+        assertTrue(limiter.getLimit() >= 1);
+    }
+
+    @Test
+    void release_ShouldBackOff_WhenCallsAreDropped() throws InterruptedException {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(true, 1, 10);
+
+        assertTrue(limiter.acquire(0, TimeUnit.MILLISECONDS));
+        limiter.release(-1, true);
+
+        assertEquals(9, limiter.getLimit());
+    }
+
+    @Test
+    void release_ShouldKeepTheLimit_WhenNotAdaptive() throws InterruptedException {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(false, 1, 10);
+
+        assertTrue(limiter.acquire(0, TimeUnit.MILLISECONDS));
+        limiter.release(-1, true);
+
+        assertEquals(10, limiter.getLimit());
+    }
+
+    @Test
+    void findById_ShouldThrowDatabaseOverloadedException_WhenAtTheLimit() {
+        ConcurrencyLimitingProductRepository repository = new ConcurrencyLimitingProductRepository(delegate,
+                database(false, 1, Duration.ZERO));
+        // the first call holds the only permit while it makes the second
+        when(delegate.findById(1L)).thenAnswer(invocation -> repository.findById(2L));
+
+        DatabaseOverloadedException exception = assertThrows(DatabaseOverloadedException.class, () -> repository.findById(1L));
+
+        assertEquals(Duration.ofSeconds(1), exception.getRetryAfter());
+        verify(delegate, never()).findById(2L);
+    }
+
+    @Test
+    void findById_ShouldLowerTheLimit_WhenTheConnectionTimesOut() {
+        ConcurrencyLimitingProductRepository repository = new ConcurrencyLimitingProductRepository(delegate,
+                database(true, 5, Duration.ofSeconds(1)));
+        when(delegate.findById(1L)).thenThrow(new DatabaseException("Failed to get product",
+                new SQLTransientConnectionException("Connection is not available")));
+
+        assertThrows(DatabaseException.class, () -> repository.findById(1L));
+
+        assertEquals(4, repository.getLimit());
+    }
+
+    private static void runRounds(AdaptiveConcurrencyLimiter limiter, int rounds, long latencyNanos) throws InterruptedException {
+        for (int round = 0; round < rounds; round++) {
+            int limit = limiter.getLimit();
+            for (int i = 0; i < limit; i++) {
+                assertTrue(limiter.acquire(0, TimeUnit.MILLISECONDS));
+            }
+            for (int i = 0; i < limit; i++) {
+                limiter.release(latencyNanos, false);
+            }
+        }
+    }
+
+    private static ProductProperties.Database database(boolean adaptive, int maxConcurrency, Duration acquireTimeout) {
+        ProductProperties.Database database = new ProductProperties.Database();
+        database.setAdaptive(adaptive);
+        database.setMaxConcurrency(maxConcurrency);
+        database.setAcquireTimeout(acquireTimeout);
+        return database;
+    }
+}
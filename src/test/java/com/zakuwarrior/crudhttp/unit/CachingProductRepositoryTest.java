@@ -0,0 +1,71 @@
+package com.zakuwarrior.crudhttp.unit;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import com.zakuwarrior.crudhttp.config.ProductProperties;
+import com.zakuwarrior.crudhttp.model.Product;
+import com.zakuwarrior.crudhttp.repository.CachingProductRepository;
+import com.zakuwarrior.crudhttp.repository.ProductRepository;
+
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CachingProductRepositoryTest {
+
+    @Mock
+    private ProductRepository delegate;
+
+    private CachingProductRepository repository;
+
+    @BeforeEach
+    void setup() {
+        repository = new CachingProductRepository(delegate, new ProductProperties.Cache());
+    }
+
+    @Test
+    void findById_ShouldHitDatabaseOnlyOnce() {
+        Product product = new Product(1L, "Laptop", "Description", 1500.0, 10, "Laptop");
+        when(delegate.findById(1L)).thenReturn(Optional.of(product));
+
+        repository.findById(1L);
+        Optional<Product> cachedProduct = repository.findById(1L);
+
+        assertEquals("Laptop", cachedProduct.get().getName());
+        verify(delegate, times(1)).findById(1L);
+        assertEquals(1, repository.stats().hitCount());
+        assertEquals(1, repository.stats().missCount());
+    }
+
+    @Test
+    void save_ShouldInvalidateCachedProduct() {
+        Product product = new Product(1L, "Laptop", "Description", 1500.0, 10, "Laptop");
+        Product updatedProduct = new Product(1L, "Laptop", "Updated", 1500.0, 10, "Laptop");
+        when(delegate.findById(1L)).thenReturn(Optional.of(product), Optional.of(updatedProduct));
+        when(delegate.save(updatedProduct)).thenReturn(updatedProduct);
+
+        repository.findById(1L);
+        repository.save(updatedProduct);
+        Optional<Product> foundProduct = repository.findById(1L);
+
+        assertEquals("Updated", foundProduct.get().getDescription());
+        verify(delegate, times(2)).findById(1L);
+    }
+
+    @Test
+    void findById_WhenProductNotExists_ShouldNotCacheAbsence() {
+        when(delegate.findById(1L)).thenReturn(Optional.empty());
+
+        repository.findById(1L);
+        repository.findById(1L);
+
+        verify(delegate, times(2)).findById(1L);
+    }
+}
@@ -0,0 +1,165 @@
+package com.zakuwarrior.crudhttp.unit;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import com.zakuwarrior.crudhttp.config.ProductProperties;
+import com.zakuwarrior.crudhttp.model.Product;
+import com.zakuwarrior.crudhttp.model.QuantityChange;
+import com.zakuwarrior.crudhttp.repository.CatalogSnapshotProductRepository;
+import com.zakuwarrior.crudhttp.repository.ProductColumns;
+import com.zakuwarrior.crudhttp.repository.ProductRepository;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CatalogSnapshotProductRepositoryTest {
+
+    @Mock
+    private ProductRepository delegate;
+
+    private CatalogSnapshotProductRepository repository;
+
+    @BeforeEach
+    void setup() {
+        repository = new CatalogSnapshotProductRepository(delegate, new ProductProperties.Snapshot());
+    }
+
+    @SuppressWarnings("unchecked")
+    private void load(Product... products) {
+        doAnswer(invocation -> {
+            Consumer<Product> consumer = invocation.getArgument(0);
+            for (Product product : products) {
+                consumer.accept(product);
+            }
+            return null;
+        }).when(delegate).streamAll(any(Consumer.class));
+        repository.reload();
+    }
+
+    @Test
+    void reads_ShouldBeServedFromSnapshotOnceLoaded() {
+        load(new Product(1L, "Honor X8", null, 150.99, 10, "Smartphone", 2),
+                new Product(2L, "iPhone 12", "Apple iPhone 12", 450.0, 10, "Smartphone"),
+                new Product(3L, "MacBook Air", "Apple", 399.99, 20, "Laptop"));
+
+        assertEquals("Honor X8", repository.findById(1L).get().getName());
+        assertNull(repository.findById(1L).get().getDescription());
+        assertEquals(2, repository.findVersionById(1L).getAsLong());
+        assertEquals(List.of(2L, 3L), repository.findByPage(1, 5).stream().map(Product::getId).toList());
+        assertEquals(List.of(3L), repository.findAfterId(2, 5).stream().map(Product::getId).toList());
+        assertEquals(3, repository.countAll());
+        verify(delegate, never()).findById(anyLong());
+        verify(delegate, never()).countAll();
+    }
+
+    @Test
+    void reads_BeforeLoad_ShouldGoToDelegate() {
+        when(delegate.countAll()).thenReturn(7L);
+
+        assertFalse(repository.isLoaded());
+        assertEquals(7, repository.countAll());
+    }
+
+    @Test
+    void writes_ShouldBeAppliedToSnapshot() {
+        load(new Product(1L, "Honor X8", "Huawei", 150.99, 10, "Smartphone"));
+        Product updated = new Product(1L, "Honor X9", "Huawei", 160.0, 10, "Smartphone", 1);
+        when(delegate.save(updated)).thenReturn(updated);
+        when(delegate.updateQuantities(any())).thenReturn(new int[]{1});
+
+        repository.save(updated);
+        repository.updateQuantities(List.of(new QuantityChange(1L, false, -3)));
+
+        Product held = repository.findById(1L).get();
+        assertEquals("Honor X9", held.getName());
+        assertEquals(7, held.getQuantity());
+        assertEquals(2, held.getVersion());
+
+        repository.deleteById(1L);
+
+        assertTrue(repository.findById(1L).isEmpty());
+        assertEquals(0, repository.countAll());
+    }
+
+    @Test
+    void updateAll_ShouldApplyReturnedVersionsWithoutRereading() {
+        load(new Product(1L, "Honor X8", "Huawei", 150.99, 10, "Smartphone"));
+        Product updated = new Product(1L, "Honor X9", "Huawei", 160.0, 10, "Smartphone");
+        when(delegate.updateAll(List.of(updated))).thenAnswer(invocation -> {
+            updated.setVersion(1);
+            return new int[]{1};
+        });
+
+        repository.updateAll(List.of(updated));
+
+        assertEquals("Honor X9", repository.findById(1L).get().getName());
+        assertEquals(1, repository.findVersionById(1L).getAsLong());
+        verify(delegate, never()).findById(anyLong());
+    }
+
+    @Test
+    void copyFrom_ShouldReadOnlyProductsAfterPreviousLastId() {
+        load(new Product(1L, "Honor X8", "Huawei", 150.99, 10, "Smartphone"),
+                new Product(2L, "iPhone 12", "Apple iPhone 12", 450.0, 10, "Smartphone"));
+        when(delegate.copyFrom(any())).thenReturn(1L);
+        when(delegate.findAfterId(2L, 1000)).thenReturn(List.of(
+                new Product(3L, "Pixel 8", "Google Pixel 8", 300.0, 4, "Smartphone")));
+
+        assertEquals(1, repository.copyFrom(new StringReader("")));
+
+        assertEquals(3, repository.countAll());
+        assertEquals("Pixel 8", repository.findById(3L).get().getName());
+        verify(delegate, times(1)).streamAll(any());
+    }
+
+    @Test
+    void columns_ShouldMatchSortedMapUnderRandomWrites() {
+        ProductColumns columns = new ProductColumns(16);
+        TreeMap<Long, Product> expected = new TreeMap<>();
+        Random random = new Random(42);
+        for (int i = 0; i < 20_000; i++) {
+            long id = 1 + random.nextInt(2_000);
+            if (random.nextInt(3) == 0) {
+                assertEquals(expected.remove(id) != null, columns.remove(id));
+            } else {
+                long version = expected.containsKey(id) ? expected.get(id).getVersion() + 1 : 0;
+                Product product = new Product(id, "Product " + i, i % 5 == 0 ? null : "Description " + i,
+                        i, i % 100, "Category " + (i % 7), version);
+                expected.put(id, product);
+                assertTrue(columns.upsert(product));
+            }
+        }
+
+        assertEquals(expected.size(), columns.size());
+        assertEquals(new ArrayList<>(expected.values()), columns.page(0, Integer.MAX_VALUE));
+        assertEquals(new ArrayList<>(expected.values()).subList(10, 20), columns.page(10, 10));
+        for (long id = 1; id <= 2_000; id++) {
+            assertEquals(expected.get(id), columns.get(id));
+        }
+        long middle = expected.firstKey() + 1_000;
+        assertEquals(new ArrayList<>(expected.tailMap(middle, false).values()).subList(0, 5), columns.after(middle, 5));
+    }
+
+    @Test
+    void upsert_WithOlderVersion_ShouldBeIgnored() {
+        ProductColumns columns = new ProductColumns(16);
+        columns.upsert(new Product(1L, "New", null, 1.0, 1, "Laptop", 3));
+
+        assertFalse(columns.upsert(new Product(1L, "Old", null, 1.0, 1, "Laptop", 2)));
+        assertEquals("New", columns.get(1L).getName());
+    }
+}
@@ -0,0 +1,129 @@
+package com.zakuwarrior.crudhttp.unit;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import com.zakuwarrior.crudhttp.config.ProductProperties;
+import com.zakuwarrior.crudhttp.exception.DatabaseException;
+import com.zakuwarrior.crudhttp.exception.DatabaseOverloadedException;
+import com.zakuwarrior.crudhttp.model.Product;
+import com.zakuwarrior.crudhttp.repository.ConcurrencyLimitingProductRepository;
+import com.zakuwarrior.crudhttp.repository.ProductRepository;
+
+import java.io.StringReader;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ConcurrencyLimitingProductRepositoryTest {
+
+    @Mock
+    private ProductRepository delegate;
+
+    @Test
+    void findById_ShouldNeverLetMoreThanMaxConcurrencyCallersIn() throws Exception {
+        ConcurrencyLimitingProductRepository repository = new ConcurrencyLimitingProductRepository(delegate, database(2));
+        AtomicInteger inside = new AtomicInteger();
+        AtomicInteger mostInside = new AtomicInteger();
+        when(delegate.findById(anyLong())).thenAnswer(invocation -> {
+            mostInside.accumulateAndGet(inside.incrementAndGet(), Math::max);
+            Thread.sleep(20);
+            inside.decrementAndGet();
+            return Optional.of(new Product(invocation.getArgument(0), "Laptop", "Description", 1500.0, 10, "Laptop"));
+        });
+
+        // as many callers as may be inside plus as many as may wait; any more would be turned away
+        List<Future<Optional<Product>>> results = new ArrayList<>();
+        try (ExecutorService callers = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (long id = 1; id <= 4; id++) {
+                long productId = id;
+                results.add(callers.submit(() -> repository.findById(productId)));
+            }
+        }
+
+        for (Future<Optional<Product>> result : results) {
+            assertTrue(result.get().isPresent());
+        }
+        assertTrue(mostInside.get() <= 2);
+        verify(delegate, times(4)).findById(anyLong());
+    }
+
+    @Test
+    void findById_WhenDelegateFails_ShouldReleaseThePermit() {
+        ConcurrencyLimitingProductRepository repository = new ConcurrencyLimitingProductRepository(delegate, database(1));
+        when(delegate.findById(1L))
+                .thenThrow(new DatabaseException("Failed to fetch a product"))
+                .thenReturn(Optional.empty());
+
+        assertThrows(DatabaseException.class, () -> repository.findById(1L));
+
+        assertTrue(repository.findById(1L).isEmpty());
+    }
+
+    @Test
+    void findById_WhenInterruptedWhileWaiting_ShouldThrowDatabaseExceptionAndKeepTheFlag() {
+        ConcurrencyLimitingProductRepository repository = new ConcurrencyLimitingProductRepository(delegate, database(1));
+        // the outer call holds the only permit while the inner one waits for it
+        when(delegate.findById(1L)).thenAnswer(invocation -> {
+            Thread.currentThread().interrupt();
+            return repository.findById(2L);
+        });
+
+        DatabaseException thrown = assertThrows(DatabaseException.class, () -> repository.findById(1L));
+
+        assertInstanceOf(InterruptedException.class, thrown.getCause());
+        assertTrue(Thread.interrupted());
+        verify(delegate, never()).findById(2L);
+    }
+
+    @Test
+    void streamAll_ShouldUseTransferCapAndLeaveAdmissionPermitsToShortCalls() throws Exception {
+        ProductProperties.Database database = database(1);
+        database.setMaxTransfers(1);
+        database.setAcquireTimeout(Duration.ofMillis(50));
+        ConcurrencyLimitingProductRepository repository = new ConcurrencyLimitingProductRepository(delegate, database);
+        CountDownLatch streaming = new CountDownLatch(1);
+        CountDownLatch finish = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            streaming.countDown();
+            finish.await();
+            return null;
+        }).when(delegate).streamAll(any());
+        when(delegate.findById(1L)).thenReturn(Optional.empty());
+
+        try (ExecutorService callers = Executors.newVirtualThreadPerTaskExecutor()) {
+            Future<?> transfer = callers.submit(() -> repository.streamAll(product -> { }));
+            streaming.await();
+
+            assertTrue(repository.findById(1L).isEmpty());
+            assertThrows(DatabaseOverloadedException.class, () -> repository.copyFrom(new StringReader("")));
+
+            finish.countDown();
+            transfer.get();
+        }
+        verify(delegate, never()).copyFrom(any());
+    }
+
+    private static ProductProperties.Database database(int maxConcurrency) {
+        ProductProperties.Database database = new ProductProperties.Database();
+        database.setAdaptive(false);
+        database.setMaxConcurrency(maxConcurrency);
+        database.setAcquireTimeout(Duration.ofSeconds(5));
+        return database;
+    }
+}
@@ -0,0 +1,100 @@
+package com.zakuwarrior.crudhttp.unit;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import com.zakuwarrior.crudhttp.exception.DatabaseException;
+import com.zakuwarrior.crudhttp.model.Product;
+import com.zakuwarrior.crudhttp.repository.MeteredProductRepository;
+import com.zakuwarrior.crudhttp.repository.ProductRepository;
+
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class MeteredProductRepositoryTest {
+
+    @Mock
+    private ProductRepository delegate;
+
+    private SimpleMeterRegistry registry;
+    private MeteredProductRepository repository;
+
+    @BeforeEach
+    void setup() {
+        registry = new SimpleMeterRegistry();
+        repository = new MeteredProductRepository(delegate, registry);
+    }
+
+    @Test
+    void findByPage_ShouldRecordLatencyAndRows() {
+        Product laptop = new Product(1L, "Laptop", "Description", 1500.0, 10, "Laptop");
+        Product phone = new Product(2L, "Phone", "Description", 800.0, 5, "Phone");
+        when(delegate.findByPage(0, 10)).thenReturn(List.of(laptop, phone));
+
+        repository.findByPage(0, 10);
+
+        assertEquals(1, registry.get("products.repository").tags("method", "findByPage", "outcome", "success").timer().count());
+        assertEquals(2, registry.get("products.repository.rows").tag("method", "findByPage").summary().totalAmount());
+        assertEquals(0, registry.get("products.repository.errors").tag("method", "findByPage").counter().count());
+    }
+
+    @Test
+    void updateAll_ShouldRecordAffectedRows() {
+        Product laptop = new Product(1L, "Laptop", "Description", 1500.0, 10, "Laptop");
+        Product phone = new Product(2L, "Phone", "Description", 800.0, 5, "Phone");
+        when(delegate.updateAll(List.of(laptop, phone))).thenReturn(new int[]{1, 0});
+
+        repository.updateAll(List.of(laptop, phone));
+
+        assertEquals(1, registry.get("products.repository").tags("method", "updateAll", "outcome", "success").timer().count());
+        assertEquals(1, registry.get("products.repository.rows").tag("method", "updateAll").summary().totalAmount());
+    }
+
+    @Test
+    void countAll_WhenDatabaseFails_ShouldRecordError() {
+        when(delegate.countAll()).thenThrow(new DatabaseException("Connection refused"));
+
+        assertThrows(DatabaseException.class, () -> repository.countAll());
+
+        assertEquals(1, registry.get("products.repository").tags("method", "countAll", "outcome", "error").timer().count());
+        assertEquals(0, registry.get("products.repository").tags("method", "countAll", "outcome", "success").timer().count());
+        assertEquals(1, registry.get("products.repository.errors").tag("method", "countAll").counter().count());
+        assertEquals(0, registry.get("products.repository.rows").tag("method", "countAll").summary().count());
+    }
+
+    @Test
+    void streamAll_ShouldNotCountTheConsumerAsQueryLatency() {
+        Product laptop = new Product(1L, "Laptop", "Description", 1500.0, 10, "Laptop");
+        doAnswer(invocation -> {
+            Consumer<Product> consumer = invocation.getArgument(0);
+            consumer.accept(laptop);
+            return null;
+        }).when(delegate).streamAll(any());
+
+        repository.streamAll(product -> {
+            try {
+                Thread.sleep(200);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+
+        Timer timer = registry.get("products.repository").tags("method", "streamAll", "outcome", "success").timer();
+        assertEquals(1, timer.count());
+        assertTrue(timer.totalTime(TimeUnit.MILLISECONDS) < 200);
+        assertEquals(1, registry.get("products.repository.rows").tag("method", "streamAll").summary().totalAmount());
+    }
+}
@@ -0,0 +1,89 @@
+package com.zakuwarrior.crudhttp.unit;
+
+import org.junit.jupiter.api.Test;
+
+import com.zakuwarrior.crudhttp.config.ProductProperties;
+import com.zakuwarrior.crudhttp.model.ProductChange;
+import com.zakuwarrior.crudhttp.service.ProductChangeFeed;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProductChangeFeedTest {
+    private static final Duration NO_WAIT = Duration.ZERO;
+
+    private ProductChangeFeed feed(int historySize, int subscriberBuffer) {
+        ProductProperties properties = new ProductProperties();
+        properties.getChanges().setHistorySize(historySize);
+        properties.getChanges().setSubscriberBuffer(subscriberBuffer);
+        return new ProductChangeFeed(properties);
+    }
+
+    private static ProductChange change(long id) {
+        return new ProductChange("UPDATE", id, 1);
+    }
+
+    @Test
+    void subscribe_ShouldReceiveChangesPublishedAfterwards() throws InterruptedException {
+        ProductChangeFeed feed = feed(10, 10);
+        feed.publish(change(1));
+        ProductChangeFeed.Subscription subscription = feed.subscribe(null);
+
+        feed.publish(change(2));
+
+        ProductChangeFeed.Event event = subscription.next(NO_WAIT);
+        assertEquals(2L, event.change().getId());
+        assertNull(subscription.next(NO_WAIT));
+    }
+
+    @Test
+    void subscribe_WithLastEventId_ShouldReplayMissedChanges() throws InterruptedException {
+        ProductChangeFeed feed = feed(10, 10);
+        ProductChangeFeed.Subscription first = feed.subscribe(null);
+        feed.publish(change(1));
+        String lastEventId = first.next(NO_WAIT).id();
+        first.close();
+        feed.publish(change(2));
+        feed.publish(change(3));
+
+        ProductChangeFeed.Subscription resumed = feed.subscribe(lastEventId);
+        feed.publish(change(4));
+
+        assertEquals(2L, resumed.next(NO_WAIT).change().getId());
+        assertEquals(3L, resumed.next(NO_WAIT).change().getId());
+        assertEquals(4L, resumed.next(NO_WAIT).change().getId());
+    }
+
+    @Test
+    void subscribe_WithEvictedOrUnknownEventId_ShouldStartWithReset() throws InterruptedException {
+        ProductChangeFeed feed = feed(2, 10);
+        ProductChangeFeed.Subscription first = feed.subscribe(null);
+        feed.publish(change(1));
+        String evicted = first.next(NO_WAIT).id();
+        feed.publish(change(2));
+        feed.publish(change(3));
+
+        assertEquals(ProductChange.RESET, feed.subscribe(evicted).next(NO_WAIT).change().getOperation());
+        assertEquals(ProductChange.RESET, feed.subscribe("other-instance-7").next(NO_WAIT).change().getOperation());
+    }
+
+    @Test
+    void publish_ToFullSubscriber_ShouldDropOnlyThatSubscriber() throws InterruptedException {
+        ProductChangeFeed feed = feed(10, 2);
+        ProductChangeFeed.Subscription slow = feed.subscribe(null);
+        ProductChangeFeed.Subscription fast = feed.subscribe(null);
+
+        feed.publish(change(1));
+        assertNotNull(fast.next(NO_WAIT));
+        feed.publish(change(2));
+        assertNotNull(fast.next(NO_WAIT));
+        feed.publish(change(3));
+
+        assertTrue(slow.isOverflowed());
+        assertFalse(slow.isOpen());
+        assertTrue(fast.isOpen());
+        assertEquals(3L, fast.next(NO_WAIT).change().getId());
+        assertEquals(1, feed.subscriberCount());
+    }
+}
@@ -7,19 +7,47 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import org.springframework.core.ParameterizedTypeReference;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.mock.http.MockHttpInputMessage;
 import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.protobuf.ProtobufMapper;
+import com.zakuwarrior.crudhttp.config.ProductProperties;
+import com.zakuwarrior.crudhttp.config.ProtobufJacksonHttpMessageConverter;
+import com.zakuwarrior.crudhttp.model.PageResponse;
 import com.zakuwarrior.crudhttp.model.Product;
 import com.zakuwarrior.crudhttp.service.ProductService;
 import com.zakuwarrior.crudhttp.controller.ProductController;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.function.Consumer;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @ExtendWith(MockitoExtension.class)
 class ProductControllerTest {
@@ -46,7 +74,7 @@ class ProductControllerTest {
         Product product = new Product(1L, "Laptop", "Description", 1500.0, 10, "Laptop");
         when(productService.getByProductId(1L)).thenReturn(Optional.of(product));
 
-        ResponseEntity<Product> response = productController.getProductById(1L);
+        ResponseEntity<Product> response = productController.getProductById(1L, new ServletWebRequest(new MockHttpServletRequest()));
 
         assertEquals(HttpStatus.OK, response.getStatusCode());
         assertEquals("Laptop", response.getBody().getName());
@@ -56,7 +84,7 @@ class ProductControllerTest {
     void getProductById_WhenProductNotExists_ShouldReturn404() {
         when(productService.getByProductId(1L)).thenReturn(Optional.empty());
 
-        ResponseEntity<Product> response = productController.getProductById(1L);
+        ResponseEntity<Product> response = productController.getProductById(1L, new ServletWebRequest(new MockHttpServletRequest()));
 
         assertEquals(HttpStatus.NOT_FOUND, response.getStatusCode());
     }
@@ -75,9 +103,159 @@ class ProductControllerTest {
 
     @Test
     void deleteProduct_ShouldReturn204() {
-        ResponseEntity<Void> response = productController.deleteProduct(1L);
+        ResponseEntity<Void> response = productController.deleteProduct(1L, null);
 
         assertEquals(HttpStatus.NO_CONTENT, response.getStatusCode());
-        verify(productService, times(1)).deleteProduct(1L);
+        verify(productService, times(1)).deleteProduct(1L, null);
     }
-}
\ No newline at end of file
+
+    @Test
+    void getProductById_WhenETagMatches_ShouldReturn304WithoutLoadingProduct() {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/v1/products/1");
+        request.addHeader("If-None-Match", "\"3\"");
+        MockHttpServletResponse servletResponse = new MockHttpServletResponse();
+        when(productService.getProductVersion(1L)).thenReturn(OptionalLong.of(3));
+
+        ResponseEntity<Product> response = productController.getProductById(1L, new ServletWebRequest(request, servletResponse));
+
+        assertNull(response);
+        assertEquals(304, servletResponse.getStatus());
+        verify(productService, never()).getByProductId(1L);
+    }
+
+    @Test
+    void getProductById_ShouldSendVersionAsETag() {
+        Product product = new Product(1L, "Laptop", "Description", 1500.0, 10, "Laptop", 4);
+        when(productService.getByProductId(1L)).thenReturn(Optional.of(product));
+
+        ResponseEntity<Product> response = productController.getProductById(1L, new ServletWebRequest(new MockHttpServletRequest()));
+
+        assertEquals("\"4\"", response.getHeaders().getETag());
+    }
+
+    @Test
+    void updateProduct_WithIfMatch_ShouldPassExpectedVersion() {
+        Product product = new Product(null, "Laptop", "Description", 1500.0, 10, "Laptop");
+        Product updatedProduct = new Product(1L, "Laptop", "Description", 1500.0, 10, "Laptop", 5);
+        when(productService.updateProduct(1L, product, 4L)).thenReturn(updatedProduct);
+
+        ResponseEntity<Product> response = productController.updateProduct(1L, "\"4\"", product);
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals("\"5\"", response.getHeaders().getETag());
+    }
+
+    @Test
+    void getProductsByPage_WithCursorAsProtobuf_ShouldEncodeThePageWithoutThePageCache() throws Exception {
+        ProtobufJacksonHttpMessageConverter protobufConverter = new ProtobufJacksonHttpMessageConverter(new ProtobufMapper());
+        MockMvc mockMvc = MockMvcBuilders.standaloneSetup(
+                        new ProductController(productService, null, new ObjectMapper(), new ProductProperties(), null, null))
+                .setMessageConverters(new MappingJackson2HttpMessageConverter(), protobufConverter)
+                .build();
+        PageResponse<Product> page = new PageResponse<>(
+                List.of(new Product(3L, "Laptop", null, 1500.0, 10, "Laptop", 1)), -1, -1, -1, 1, "Mw");
+        when(productService.getProductsAfter("Mg", 1, false)).thenReturn(page);
+
+        byte[] body = mockMvc.perform(get("/api/v1/products/page?after=Mg&size=1")
+                        .accept(ProtobufJacksonHttpMessageConverter.APPLICATION_X_PROTOBUF))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(ProtobufJacksonHttpMessageConverter.APPLICATION_X_PROTOBUF))
+                .andReturn().getResponse().getContentAsByteArray();
+
+        Type pageType = new ParameterizedTypeReference<PageResponse<Product>>() {
+        }.getType();
+        assertEquals(page, protobufConverter.read(pageType, null, new MockHttpInputMessage(body)));
+    }
+
+    @Test
+    void streamAllProducts_ShouldWriteOneJsonObjectPerLine() throws IOException {
+        ObjectMapper objectMapper = new ObjectMapper();
+        ProductController streamingController = streamingController(objectMapper, 2);
+        doAnswer(invocation -> {
+            Consumer<Product> consumer = invocation.getArgument(0);
+            for (long id = 1; id <= 3; id++) {
+                consumer.accept(new Product(id, "Product " + id, "Line\nbreak", 10.0, 1, "Category"));
+            }
+            return null;
+        }).when(productService).streamAllProducts(any());
+
+        ResponseEntity<StreamingResponseBody> response = streamingController.streamAllProducts(new ServletWebRequest(new MockHttpServletRequest()));
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        response.getBody().writeTo(body);
+
+        String ndjson = body.toString(StandardCharsets.UTF_8);
+        assertTrue(ndjson.endsWith("\n"));
+        String[] lines = ndjson.split("\n");
+        assertEquals(3, lines.length);
+        for (int i = 0; i < lines.length; i++) {
+            Product product = objectMapper.readValue(lines[i], Product.class);
+            assertEquals(i + 1, product.getId());
+            assertEquals("Line\nbreak", product.getDescription());
+        }
+    }
+
+    @Test
+    void streamAllProducts_WithNoProducts_ShouldWriteNothing() throws IOException {
+        ProductController streamingController = streamingController(new ObjectMapper(), 2);
+
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        streamingController.streamAllProducts(new ServletWebRequest(new MockHttpServletRequest())).getBody().writeTo(body);
+
+        assertEquals(0, body.size());
+        verify(productService, times(1)).streamAllProducts(any());
+    }
+
+    @Test
+    void streamAllProducts_WhenClientAborts_ShouldStopReadingAndRethrow() {
+        ProductController streamingController = streamingController(new ObjectMapper(), 1);
+        int[] produced = {0};
+        doAnswer(invocation -> {
+            Consumer<Product> consumer = invocation.getArgument(0);
+            for (long id = 1; id <= 1000; id++) {
+                produced[0]++;
+                consumer.accept(new Product(id, "Product " + id, "Description", 10.0, 1, "Category"));
+            }
+            return null;
+        }).when(productService).streamAllProducts(any());
+        OutputStream abortedClient = new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                throw new IOException("Broken pipe");
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                throw new IOException("Broken pipe");
+            }
+        };
+
+        IOException thrown = assertThrows(IOException.class,
+                () -> streamingController.streamAllProducts(new ServletWebRequest(new MockHttpServletRequest())).getBody().writeTo(abortedClient));
+
+        assertEquals("Broken pipe", thrown.getMessage());
+        // the first flush fails, and the failure ends the database read rather than draining it
+        assertEquals(1, produced[0]);
+    }
+
+    @Test
+    void streamAllProducts_ShouldUseTheExportTimeout() throws Exception {
+        ProductProperties properties = new ProductProperties();
+        properties.getExport().setTimeout(Duration.ofMinutes(45));
+        MockMvc mockMvc = MockMvcBuilders.standaloneSetup(
+                        new ProductController(productService, null, new ObjectMapper(), properties, null, null))
+                .setAsyncRequestTimeout(30_000)
+                .build();
+
+        MvcResult result = mockMvc.perform(get("/api/v1/products/stream"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        assertEquals(Duration.ofMinutes(45).toMillis(), result.getRequest().getAsyncContext().getTimeout());
+    }
+
+    private ProductController streamingController(ObjectMapper objectMapper, int flushRows) {
+        ProductProperties properties = new ProductProperties();
+        properties.getExport().setFlushRows(flushRows);
+        return new ProductController(productService, null, objectMapper, properties, null, null);
+    }
+}
@@ -0,0 +1,70 @@
+package com.zakuwarrior.crudhttp.unit;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import jakarta.validation.Validation;
+import jakarta.validation.Validator;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import com.zakuwarrior.crudhttp.service.ProductCopyReader;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.StringWriter;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProductCopyReaderTest {
+
+    private static Validator validator;
+
+    @BeforeAll
+    static void setup() {
+        validator = Validation.buildDefaultValidatorFactory().getValidator();
+    }
+
+    @Test
+    void csvRows_ShouldBeConvertedToCopyTextFormat() throws IOException {
+        String csv = """
+                category,name,price,quantity,description
+                Laptop,"HP, 15""",120.00,5,"Tab\there"
+                Smartphone,iPhone 12,450,10,
+                """;
+        ProductCopyReader reader = new ProductCopyReader(new StringReader(csv), ProductCopyReader.Format.CSV,
+                new ObjectMapper(), validator, 10);
+
+        String copyText = readFully(reader);
+
+        assertEquals("HP, 15\"\tTab\\there\t120.00\t5\tLaptop\n"
+                + "iPhone 12\t\\N\t450\t10\tSmartphone\n", copyText);
+        assertEquals(0, reader.getRejected());
+    }
+
+    @Test
+    void invalidNdjsonRows_ShouldBeSkippedAndReported() throws IOException {
+        String ndjson = """
+                {"name":"Tablet","price":299.0,"quantity":15,"category":"Tablet"}
+                {"name":"","price":-1,"quantity":15,"category":"Tablet"}
+                not json
+                """;
+        ProductCopyReader reader = new ProductCopyReader(new StringReader(ndjson), ProductCopyReader.Format.NDJSON,
+                new ObjectMapper(), validator, 10);
+
+        String copyText = readFully(reader);
+
+        assertEquals("Tablet\t\\N\t299.0\t15\tTablet\n", copyText);
+        assertEquals(2, reader.getRejected());
+        assertTrue(reader.getErrors().get(2L).containsKey("name"));
+        assertTrue(reader.getErrors().get(2L).containsKey("price"));
+        assertTrue(reader.getErrors().get(3L).containsKey("row"));
+    }
+
+    private static String readFully(Reader reader) throws IOException {
+        StringWriter writer = new StringWriter();
+        reader.transferTo(writer);
+        return writer.toString();
+    }
+}
@@ -0,0 +1,49 @@
+package com.zakuwarrior.crudhttp.unit;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import com.zakuwarrior.crudhttp.config.ProductProperties;
+import com.zakuwarrior.crudhttp.repository.JdbcProductRepository;
+import com.zakuwarrior.crudhttp.repository.ProductCounter;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ProductCounterTest {
+
+    @Mock
+    private JdbcProductRepository jdbcProductRepository;
+
+    @Test
+    void cachedStrategy_ShouldCountOnceAndThenFollowWrites() {
+        ProductCounter counter = new ProductCounter(jdbcProductRepository, propertiesWith(ProductProperties.Count.Strategy.CACHED));
+        when(jdbcProductRepository.countAll()).thenReturn(10L);
+
+        assertEquals(10L, counter.count());
+        counter.adjust(3);
+        counter.adjust(-1);
+
+        assertEquals(12L, counter.count());
+        verify(jdbcProductRepository, times(1)).countAll();
+    }
+
+    @Test
+    void estimatedStrategy_WhenTableNotAnalyzed_ShouldFallBackToExactCount() {
+        ProductCounter counter = new ProductCounter(jdbcProductRepository, propertiesWith(ProductProperties.Count.Strategy.ESTIMATED));
+        when(jdbcProductRepository.estimateCount()).thenReturn(-1L);
+        when(jdbcProductRepository.countAll()).thenReturn(4L);
+
+        assertEquals(4L, counter.count());
+    }
+
+    private static ProductProperties propertiesWith(ProductProperties.Count.Strategy strategy) {
+        ProductProperties properties = new ProductProperties();
+        properties.getCount().setStrategy(strategy);
+        return properties;
+    }
+}
@@ -0,0 +1,187 @@
+package com.zakuwarrior.crudhttp.unit;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import com.zakuwarrior.crudhttp.config.ReactiveRouterConfig;
+import com.zakuwarrior.crudhttp.controller.ProductHandler;
+import com.zakuwarrior.crudhttp.exception.InvalidRequestException;
+import com.zakuwarrior.crudhttp.exception.VersionConflictException;
+import com.zakuwarrior.crudhttp.model.BatchResponse;
+import com.zakuwarrior.crudhttp.model.PageResponse;
+import com.zakuwarrior.crudhttp.model.Product;
+import com.zakuwarrior.crudhttp.model.QuantityUpdate;
+import com.zakuwarrior.crudhttp.service.ReactiveProductService;
+
+import jakarta.validation.Validation;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ProductHandlerTest {
+
+    @Mock
+    private ReactiveProductService productService;
+
+    private WebTestClient client;
+
+    @BeforeEach
+    void setup() {
+        ProductHandler handler = new ProductHandler(productService, Validation.buildDefaultValidatorFactory().getValidator());
+        client = WebTestClient.bindToRouterFunction(new ReactiveRouterConfig().productRoutes(handler)).build();
+    }
+
+    @Test
+    void getProductById_WhenProductNotExists_ShouldReturn404() {
+        when(productService.getByProductId(1L)).thenReturn(Mono.empty());
+
+        client.get().uri("/api/v1/products/1").exchange()
+                .expectStatus().isNotFound();
+    }
+
+    @Test
+    void getProductById_ShouldTagVersionAndAnswerIfNoneMatch() {
+        Product product = new Product(1L, "Laptop", "Description", 1500.0, 10, "Laptop");
+        product.setVersion(3);
+        when(productService.getByProductId(1L)).thenReturn(Mono.just(product));
+
+        client.get().uri("/api/v1/products/1").exchange()
+                .expectStatus().isOk()
+                .expectHeader().valueEquals(HttpHeaders.ETAG, "\"3\"");
+        client.get().uri("/api/v1/products/1").header(HttpHeaders.IF_NONE_MATCH, "\"3\"").exchange()
+                .expectStatus().isNotModified();
+    }
+
+    @Test
+    void updateProduct_WithStaleIfMatch_ShouldReturn412() {
+        Product product = new Product(null, "Laptop", "Description", 1500.0, 10, "Laptop");
+        when(productService.updateProduct(eq(1L), any(), eq(2L)))
+                .thenReturn(Mono.error(new VersionConflictException("Product 1 is not at version 2")));
+
+        client.put().uri("/api/v1/products/1").header(HttpHeaders.IF_MATCH, "\"2\"").bodyValue(product).exchange()
+                .expectStatus().isEqualTo(412);
+    }
+
+    @Test
+    void deleteProduct_ShouldPassIfMatchVersion() {
+        when(productService.deleteProduct(1L, 4L)).thenReturn(Mono.empty());
+
+        client.delete().uri("/api/v1/products/1").header(HttpHeaders.IF_MATCH, "\"4\"").exchange()
+                .expectStatus().isNoContent();
+        client.delete().uri("/api/v1/products/1").header(HttpHeaders.IF_MATCH, "W/\"4\"").exchange()
+                .expectStatus().isEqualTo(412);
+        verify(productService).deleteProduct(1L, 4L);
+    }
+
+    @Test
+    void getProductsByPage_WithCursor_ShouldSeekInsteadOfOffset() {
+        Product product = new Product(3L, "Laptop", "Description", 1500.0, 10, "Laptop");
+        when(productService.getProductsAfter("Mg", 1, false))
+                .thenReturn(Mono.just(new PageResponse<>(List.of(product), -1, -1, -1, 1, "Mw")));
+
+        client.get().uri("/api/v1/products/page?after=Mg&size=1").exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.content[0].id").isEqualTo(3)
+                .jsonPath("$.nextCursor").isEqualTo("Mw");
+        verify(productService, never()).getProductsByPage(anyInt(), anyInt());
+    }
+
+    @Test
+    void searchProducts_ShouldPassFiltersAndSort() {
+        Product product = new Product(1L, "iPhone 12", "Description", 450.0, 10, "Smartphone");
+        when(productService.searchProducts(any(), eq("price,desc"), eq(0), eq(5))).thenReturn(Flux.just(product));
+
+        client.get().uri("/api/v1/products/search?category=Smartphone&maxPrice=500&sort=price,desc").exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$[0].name").isEqualTo("iPhone 12");
+        verify(productService).searchProducts(argThat(criteria -> "Smartphone".equals(criteria.getCategory())
+                && criteria.getMaxPrice() == 500.0), eq("price,desc"), eq(0), eq(5));
+    }
+
+    @Test
+    void nonNumericParameters_ShouldReturn400() {
+        client.get().uri("/api/v1/products/page?page=first").exchange()
+                .expectStatus().isBadRequest();
+        client.get().uri("/api/v1/products/search?size=ten").exchange()
+                .expectStatus().isBadRequest();
+        client.get().uri("/api/v1/products/search?minPrice=cheap").exchange()
+                .expectStatus().isBadRequest();
+        client.get().uri("/api/v1/products/abc").exchange()
+                .expectStatus().isBadRequest();
+        client.delete().uri("/api/v1/products/abc").exchange()
+                .expectStatus().isBadRequest();
+        verifyNoInteractions(productService);
+    }
+
+    @Test
+    void searchProductsByText_WithBlankText_ShouldReturn400() {
+        when(productService.searchProductsByText("", 0, 5))
+                .thenReturn(Flux.error(new InvalidRequestException("Search text must not be blank")));
+
+        client.get().uri("/api/v1/products/search/text?q=").exchange()
+                .expectStatus().isBadRequest();
+    }
+
+    @Test
+    void deleteProducts_ShouldRouteToTheBatchHandler() {
+        when(productService.deleteProducts(List.of(1L, 2L)))
+                .thenReturn(Mono.just(new BatchResponse(List.of(1L, 2L), Map.of())));
+
+        client.method(HttpMethod.DELETE).uri("/api/v1/products/batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(List.of(1L, 2L))
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.ids.length()").isEqualTo(2);
+        verify(productService, never()).deleteProduct(any(), any());
+    }
+
+    @Test
+    void updateProductQuantity_ShouldReturn204OrNotFound() {
+        when(productService.updateQuantity(1L, new QuantityUpdate(-2, null))).thenReturn(Mono.just(true));
+        when(productService.updateQuantity(2L, new QuantityUpdate(-2, null))).thenReturn(Mono.just(false));
+
+        client.patch().uri("/api/v1/products/1/quantity").bodyValue(new QuantityUpdate(-2, null)).exchange()
+                .expectStatus().isNoContent();
+        client.patch().uri("/api/v1/products/2/quantity").bodyValue(new QuantityUpdate(-2, null)).exchange()
+                .expectStatus().isNotFound();
+    }
+
+    @Test
+    void updateProductQuantity_WithBothDeltaAndQuantity_ShouldReturn400() {
+        client.patch().uri("/api/v1/products/1/quantity").bodyValue(new QuantityUpdate(-2, 10)).exchange()
+                .expectStatus().isBadRequest()
+                .expectBody()
+                .jsonPath("$.singleChange").exists();
+        verifyNoInteractions(productService);
+    }
+
+    @Test
+    void importProducts_WithUnsupportedContentType_ShouldNotBeRouted() {
+        client.post().uri("/api/v1/products/import")
+                .contentType(MediaType.APPLICATION_XML)
+                .bodyValue("<products/>")
+                .exchange()
+                .expectStatus().is4xxClientError();
+        verifyNoInteractions(productService);
+    }
+}
@@ -1,20 +1,40 @@
 package com.zakuwarrior.crudhttp.unit;
 
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import com.zakuwarrior.crudhttp.config.ProductProperties;
+import com.zakuwarrior.crudhttp.exception.InvalidRequestException;
+import com.zakuwarrior.crudhttp.exception.VersionConflictException;
+import com.zakuwarrior.crudhttp.model.BatchResponse;
+import com.zakuwarrior.crudhttp.model.CategoryStatistics;
+import com.zakuwarrior.crudhttp.model.LookupResponse;
+import com.zakuwarrior.crudhttp.model.QuantityChange;
+import com.zakuwarrior.crudhttp.model.QuantityUpdate;
 import com.zakuwarrior.crudhttp.repository.ProductRepository;
 import com.zakuwarrior.crudhttp.model.Product;
+import com.zakuwarrior.crudhttp.model.ProductSearchCriteria;
+import com.zakuwarrior.crudhttp.service.CategoryAggregates;
 import com.zakuwarrior.crudhttp.service.ProductService;
+import com.zakuwarrior.crudhttp.service.QuantityWriteBehindBuffer;
 import com.zakuwarrior.crudhttp.model.PageResponse;
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.validation.Validation;
+
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.LongStream;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -25,9 +45,22 @@ class ProductServiceTest {
     @Mock
     private ProductRepository productRepository;
 
-    @InjectMocks
+    @Mock
+    private QuantityWriteBehindBuffer quantityBuffer;
+
     private ProductService productService;
 
+    @BeforeEach
+    void setup() {
+        productService = new ProductService(productRepository, null, quantityBuffer,
+                new CategoryAggregates(productRepository), new ProductProperties(), new SimpleMeterRegistry());
+    }
+
+    private ProductService validatingService() {
+        return new ProductService(productRepository, Validation.buildDefaultValidatorFactory().getValidator(), quantityBuffer,
+                new CategoryAggregates(productRepository), new ProductProperties(), new SimpleMeterRegistry());
+    }
+
     @Test
     void getAllProducts_ShouldReturnAllProducts() {
         Product product1 = new Product(1L, "Laptop", "High-end gaming laptop", 1500.0, 10, "Laptop");
@@ -54,6 +87,32 @@ class ProductServiceTest {
         verify(productRepository, times(1)).findByPage(0, 5);
     }
 
+    @Test
+    void getProductsAfter_ShouldSeekFromCursorOfPreviousPage() {
+        Product product1 = new Product(1L, "Laptop", "Description", 1500.0, 10, "Laptop");
+        Product product2 = new Product(2L, "Phone", "Description", 999.0, 20, "Smartphone");
+        Product product3 = new Product(3L, "Tablet", "Description", 299.0, 15, "Tablet");
+        when(productRepository.findByPage(0, 2)).thenReturn(Arrays.asList(product1, product2));
+        when(productRepository.findAfterId(2L, 2)).thenReturn(List.of(product3));
+        when(productRepository.countAll()).thenReturn(3L);
+
+        PageResponse<Product> firstPage = productService.getProductsByPage(0, 2);
+        PageResponse<Product> secondPage = productService.getProductsAfter(firstPage.getNextCursor(), 2, false);
+
+        assertNotNull(firstPage.getNextCursor());
+        assertEquals(3L, secondPage.getContent().get(0).getId());
+        assertNull(secondPage.getNextCursor());
+        assertEquals(-1, secondPage.getTotalItems());
+        verify(productRepository, times(1)).findAfterId(2L, 2);
+        // only the offset page counted
+        verify(productRepository, times(1)).countAll();
+    }
+
+    @Test
+    void getProductsAfter_WhenCursorIsMalformed_ShouldThrow() {
+        assertThrows(InvalidRequestException.class, () -> productService.getProductsAfter("not a cursor!", 5, false));
+    }
+
     @Test
     void getProductById_WhenProductExists_ShouldReturnProduct() {
         Product product = new Product(1L, "Laptop", "Description", 1500.0, 10, "Laptop");
@@ -77,9 +136,270 @@ class ProductServiceTest {
         verify(productRepository, times(1)).save(newProduct);
     }
 
+    @Test
+    void createProducts_ShouldInsertValidItemsAndReportInvalidOnes() {
+        ProductService validatingService = new ProductService(productRepository,
+                Validation.buildDefaultValidatorFactory().getValidator(), quantityBuffer,
+                new CategoryAggregates(productRepository), new ProductProperties(), new SimpleMeterRegistry());
+        Product valid = new Product(null, "Tablet", "New tablet", 299.0, 15, "Tablet");
+        Product invalid = new Product(null, "", "No name", 99.0, 1, "Tablet");
+        when(productRepository.insertAll(List.of(valid))).thenReturn(List.of(7L));
+
+        BatchResponse response = validatingService.createProducts(Arrays.asList(invalid, valid));
+
+        assertEquals(Arrays.asList(null, 7L), response.getIds());
+        assertTrue(response.getErrors().get(0).containsKey("name"));
+        assertFalse(response.getErrors().containsKey(1));
+    }
+
+    @Test
+    void createProducts_WithNullItem_ShouldReportItAtItsIndex() {
+        Product valid = new Product(null, "Tablet", "New tablet", 299.0, 15, "Tablet");
+        when(productRepository.insertAll(List.of(valid))).thenReturn(List.of(7L));
+
+        BatchResponse response = validatingService().createProducts(Arrays.asList(null, valid));
+
+        assertEquals(Arrays.asList(null, 7L), response.getIds());
+        assertEquals("Product is required", response.getErrors().get(0).get("product"));
+    }
+
+    @Test
+    void updateProducts_WithNullItem_ShouldReportItAtItsIndex() {
+        Product updated = new Product(1L, "Tablet", "New tablet", 299.0, 15, "Tablet", 3);
+        when(productRepository.updateAll(List.of(updated))).thenReturn(new int[]{1});
+
+        BatchResponse response = validatingService().updateProducts(Arrays.asList(updated, null));
+
+        assertEquals(Arrays.asList(1L, null), response.getIds());
+        assertEquals("Product is required", response.getErrors().get(1).get("product"));
+    }
+
+    @Test
+    void updateProducts_ShouldReportNewVersions() {
+        Product updated = new Product(1L, "Tablet", "New tablet", 299.0, 15, "Tablet", 3);
+        Product missing = new Product(2L, "Phone", "Gone", 99.0, 1, "Smartphone", 0);
+        when(productRepository.updateAll(List.of(updated, missing))).thenAnswer(invocation -> {
+            updated.setVersion(4);
+            return new int[]{1, 0};
+        });
+
+        BatchResponse response = validatingService().updateProducts(List.of(updated, missing));
+
+        assertEquals(Arrays.asList(1L, null), response.getIds());
+        assertEquals(Arrays.asList(4L, null), response.getVersions());
+    }
+
+    @Test
+    void deleteProducts_ShouldReportIdsThatWereNotFound() {
+        when(productRepository.deleteAllById(List.of(1L, 2L))).thenReturn(new int[]{1, 0});
+
+        BatchResponse response = productService.deleteProducts(List.of(1L, 2L));
+
+        assertEquals(Arrays.asList(1L, null), response.getIds());
+        assertEquals("Product not found", response.getErrors().get(1).get("id"));
+    }
+
     @Test
     void deleteProduct_ShouldCallRepositoryDelete() {
+        when(productRepository.deleteReturningPrevious(1L, null)).thenReturn(
+                Optional.of(new Product(1L, "Laptop", "Description", 1500.0, 10, "Laptop")));
+
         productService.deleteProduct(1L);
-        verify(productRepository, times(1)).deleteById(1L);
+
+        verify(productRepository, times(1)).deleteReturningPrevious(1L, null);
+    }
+
+    @Test
+    void updateProduct_WhenVersionIsStale_ShouldThrow() {
+        Product product = new Product(null, "Laptop", "Description", 1500.0, 10, "Laptop");
+        when(productRepository.updateReturningPrevious(product, 2L)).thenReturn(Optional.empty());
+
+        assertThrows(VersionConflictException.class, () -> productService.updateProduct(1L, product, 2L));
+        verify(productRepository, never()).save(any());
+    }
+
+    @Test
+    void deleteProduct_WithExpectedVersion_ShouldDeleteConditionally() {
+        when(productRepository.deleteReturningPrevious(1L, 2L)).thenReturn(
+                Optional.of(new Product(1L, "Laptop", "Description", 1500.0, 10, "Laptop", 2)));
+
+        productService.deleteProduct(1L, 2L);
+
+        verify(productRepository, never()).deleteReturningPrevious(1L, null);
+        // only this product's queued quantity has to land first, the rest keep coalescing
+        verify(quantityBuffer).flush(1L);
+        verify(quantityBuffer, never()).flush();
+    }
+
+    @Test
+    void updateQuantity_WithWriteBehind_ShouldQueueSetsAndDeltas() {
+        when(quantityBuffer.isEnabled()).thenReturn(true);
+        when(quantityBuffer.enqueue(any())).thenReturn(true, false);
+
+        assertTrue(productService.updateQuantity(1L, new QuantityUpdate(null, 10)));
+        assertFalse(productService.updateQuantity(1L, new QuantityUpdate(-20, null)));
+
+        verify(quantityBuffer).enqueue(new QuantityChange(1L, true, 10));
+        verify(quantityBuffer).enqueue(new QuantityChange(1L, false, -20));
+        verify(productRepository, never()).updateQuantityReturningPrevious(any());
+    }
+
+    @Test
+    void getStatistics_ShouldFollowWritesWithoutAggregatingAgain() {
+        when(productRepository.aggregateByCategory(null)).thenReturn(List.of(
+                new CategoryStatistics("Smartphone", 2, 20, 150.99, 300.495, 450.0)));
+        productService.getStatistics("category");
+
+        Product created = new Product(3L, "Pixel 8", "Google Pixel 8", 300.0, 4, "Smartphone");
+        when(productRepository.save(any())).thenAnswer(invocation -> invocation.getArgument(0));
+        productService.createProduct(created);
+        Product updated = new Product(null, "Pixel 8", "Google Pixel 8", 320.0, 6, "Smartphone");
+        when(productRepository.updateReturningPrevious(updated, null)).thenReturn(Optional.of(created));
+        productService.updateProduct(3L, updated);
+
+        CategoryStatistics statistics = productService.getStatistics("category").get(0);
+        assertEquals(3, statistics.getCount());
+        assertEquals(26, statistics.getTotalQuantity());
+        assertEquals(306.997, statistics.getAvgPrice(), 0.001);
+        assertEquals(150.99, statistics.getMinPrice());
+        assertEquals(450.0, statistics.getMaxPrice());
+        verify(productRepository, times(1)).aggregateByCategory(null);
+        verify(productRepository, never()).aggregateByCategory("Smartphone");
+        verify(productRepository, never()).findById(anyLong());
+    }
+
+    @Test
+    void getStatistics_AfterRemovingCheapestProduct_ShouldAggregateThatCategoryAgain() {
+        Product phone = new Product(1L, "Honor X8", "Huawei Honor X8", 150.99, 10, "Smartphone");
+        when(productRepository.aggregateByCategory(null)).thenReturn(List.of(
+                new CategoryStatistics("Smartphone", 2, 20, 150.99, 300.495, 450.0)));
+        productService.getStatistics("category");
+        when(productRepository.deleteReturningPrevious(1L, null)).thenReturn(Optional.of(phone));
+        productService.deleteProduct(1L);
+        when(productRepository.aggregateByCategory("Smartphone")).thenReturn(List.of(
+                new CategoryStatistics("Smartphone", 1, 10, 450.0, 450.0, 450.0)));
+
+        CategoryStatistics statistics = productService.getStatistics("category").get(0);
+
+        assertEquals(450.0, statistics.getMinPrice());
+        verify(productRepository, times(1)).aggregateByCategory("Smartphone");
+    }
+
+    @Test
+    void invalidate_ShouldRebuildInBackgroundAndKeepServingAggregates() {
+        CategoryAggregates categoryAggregates = new CategoryAggregates(productRepository);
+        when(productRepository.aggregateByCategory(null))
+                .thenReturn(List.of(new CategoryStatistics("Smartphone", 2, 20, 150.99, 300.495, 450.0)))
+                .thenReturn(List.of(new CategoryStatistics("Smartphone", 3, 30, 150.99, 300.495, 450.0)));
+        categoryAggregates.byCategory();
+
+        categoryAggregates.invalidate();
+
+        // reads answer from the current aggregates instead of waiting for the rebuild
+        long deadline = System.currentTimeMillis() + 1000;
+        while (categoryAggregates.byCategory().get(0).getCount() != 3 && System.currentTimeMillis() < deadline) {
+            Thread.onSpinWait();
+        }
+        assertEquals(3, categoryAggregates.byCategory().get(0).getCount());
+        verify(productRepository, times(2)).aggregateByCategory(null);
+        categoryAggregates.shutdown();
+    }
+
+    @Test
+    void getStatistics_WithUnsupportedGroupBy_ShouldThrow() {
+        assertThrows(InvalidRequestException.class, () -> productService.getStatistics("price"));
+    }
+
+    @Test
+    void getProductsByIds_ShouldKeepRequestOrderAndReportMissingIds() {
+        when(productRepository.findAllById(new long[]{3L, 1L, 2L})).thenReturn(List.of(
+                new Product(1L, "Honor X8", "Huawei Honor X8", 150.99, 10, "Smartphone"),
+                new Product(3L, "Pixel 8", "Google Pixel 8", 300.0, 4, "Smartphone")));
+
+        LookupResponse response = productService.getProductsByIds(List.of(3L, 1L, 3L, 2L));
+
+        assertEquals(List.of(3L, 1L), response.getProducts().stream().map(Product::getId).toList());
+        assertEquals(List.of(2L), response.getMissingIds());
+    }
+
+    @Test
+    void getProductsByIds_ShouldQueryChunksInParallel() {
+        ProductProperties properties = new ProductProperties();
+        properties.getLookup().setChunkSize(2);
+        properties.getLookup().setParallelism(2);
+        ProductService chunkingService = new ProductService(productRepository, null, quantityBuffer,
+                new CategoryAggregates(productRepository), properties, new SimpleMeterRegistry());
+        List<Long> threads = Collections.synchronizedList(new ArrayList<>());
+        // the first two chunks only get past the barrier if both are being queried at the same time
+        CyclicBarrier bothInFlight = new CyclicBarrier(2);
+        AtomicInteger calls = new AtomicInteger();
+        when(productRepository.findAllById(any(long[].class))).thenAnswer(invocation -> {
+            threads.add(Thread.currentThread().threadId());
+            if (calls.incrementAndGet() <= 2) {
+                bothInFlight.await(5, TimeUnit.SECONDS);
+            }
+            return Arrays.stream(invocation.<long[]>getArgument(0))
+                    .filter(id -> id % 2 == 0)
+                    .mapToObj(id -> new Product(id, "Product " + id, "Description", 10.0, 1, "Category"))
+                    .toList();
+        });
+
+        LookupResponse response = chunkingService.getProductsByIds(List.of(5L, 4L, 3L, 2L, 1L));
+
+        assertEquals(List.of(4L, 2L), response.getProducts().stream().map(Product::getId).toList());
+        assertEquals(List.of(5L, 3L, 1L), response.getMissingIds());
+        verify(productRepository, times(3)).findAllById(any(long[].class));
+        assertFalse(threads.contains(Thread.currentThread().threadId()));
+    }
+
+    @Test
+    void changedElsewhere_ShouldStartNewWriteGeneration() {
+        long generation = productService.getWriteGeneration();
+
+        productService.changedElsewhere(null);
+        productService.changedElsewhere(1L);
+
+        assertEquals(generation + 2, productService.getWriteGeneration());
+    }
+
+    @Test
+    void getProductsByIds_WithTooManyIds_ShouldThrow() {
+        List<Long> ids = LongStream.rangeClosed(1, 10_001).boxed().toList();
+
+        assertThrows(InvalidRequestException.class, () -> productService.getProductsByIds(ids));
+        verify(productRepository, never()).findAllById(any(long[].class));
+    }
+
+    @Test
+    void searchProducts_WithSpaceBeforeDirection_ShouldSortDescending() {
+        ProductSearchCriteria criteria = new ProductSearchCriteria();
+        when(productRepository.search(criteria, 0, 5)).thenReturn(List.of());
+
+        productService.searchProducts(criteria, "price, desc", 0, 5);
+
+        assertEquals("price", criteria.getSortBy());
+        assertTrue(criteria.isDescending());
+    }
+
+    @Test
+    void searchProducts_WithUnknownDirection_ShouldThrow() {
+        assertThrows(InvalidRequestException.class,
+                () -> productService.searchProducts(new ProductSearchCriteria(), "price,down", 0, 5));
+        verify(productRepository, never()).search(any(), anyInt(), anyInt());
+    }
+
+    @Test
+    void searchProductsByText_ShouldPassPageAsOffset() {
+        when(productRepository.searchText("apple", 10, 5)).thenReturn(List.of());
+
+        productService.searchProductsByText("apple", 2, 5);
+
+        verify(productRepository, times(1)).searchText("apple", 10, 5);
+    }
+
+    @Test
+    void searchProductsByText_WithBlankText_ShouldThrow() {
+        assertThrows(InvalidRequestException.class, () -> productService.searchProductsByText(" ", 0, 5));
+        verify(productRepository, never()).searchText(any(), anyInt(), anyInt());
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,44 @@
+package com.zakuwarrior.crudhttp.unit;
+
+import org.junit.jupiter.api.Test;
+
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.mock.http.MockHttpInputMessage;
+import org.springframework.mock.http.MockHttpOutputMessage;
+
+import com.fasterxml.jackson.dataformat.protobuf.ProtobufMapper;
+import com.zakuwarrior.crudhttp.config.ProtobufJacksonHttpMessageConverter;
+import com.zakuwarrior.crudhttp.model.PageResponse;
+import com.zakuwarrior.crudhttp.model.Product;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProtobufJacksonHttpMessageConverterTest {
+    private static final Type PAGE_TYPE = new ParameterizedTypeReference<PageResponse<Product>>() {
+    }.getType();
+
+    private final ProtobufJacksonHttpMessageConverter converter =
+            new ProtobufJacksonHttpMessageConverter(new ProtobufMapper());
+
+    @Test
+    void page_ShouldRoundTrip() throws IOException {
+        PageResponse<Product> page = new PageResponse<>(
+                List.of(new Product(1L, "Laptop", null, 1500.0, 10, "Laptop", 2)), 0, 1, 1, 5, "MQ");
+        MockHttpOutputMessage outputMessage = new MockHttpOutputMessage();
+
+        converter.write(page, PAGE_TYPE, ProtobufJacksonHttpMessageConverter.APPLICATION_X_PROTOBUF, outputMessage);
+        Object decoded = converter.read(PAGE_TYPE, null, new MockHttpInputMessage(outputMessage.getBodyAsBytes()));
+
+        assertEquals(page, decoded);
+    }
+
+    @Test
+    void canWrite_ShouldRejectTypesWithoutARootMessage() {
+        assertTrue(converter.canWrite(Product.class, ProtobufJacksonHttpMessageConverter.APPLICATION_X_PROTOBUF));
+        assertFalse(converter.canWrite(List.class, ProtobufJacksonHttpMessageConverter.APPLICATION_X_PROTOBUF));
+    }
+}
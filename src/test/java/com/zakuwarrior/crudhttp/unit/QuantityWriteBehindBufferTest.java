@@ -0,0 +1,193 @@
+package com.zakuwarrior.crudhttp.unit;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import com.zakuwarrior.crudhttp.config.ProductProperties;
+import com.zakuwarrior.crudhttp.exception.CommitOutcomeUnknownException;
+import com.zakuwarrior.crudhttp.exception.DatabaseException;
+import com.zakuwarrior.crudhttp.model.QuantityChange;
+import com.zakuwarrior.crudhttp.repository.ProductRepository;
+import com.zakuwarrior.crudhttp.service.QuantityWriteBehindBuffer;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class QuantityWriteBehindBufferTest {
+
+    @Mock
+    private ProductRepository productRepository;
+
+    private QuantityWriteBehindBuffer buffer;
+
+    @BeforeEach
+    void setup() {
+        ProductProperties properties = new ProductProperties();
+        properties.getWriteBehind().setEnabled(true);
+        properties.getWriteBehind().setMaxPending(3);
+        buffer = new QuantityWriteBehindBuffer(productRepository, properties);
+    }
+
+    @Test
+    void laterQuantityOfSameProduct_ShouldReplaceEarlierOne() {
+        when(productRepository.updateQuantities(anyList())).thenReturn(new int[]{1, 1});
+
+        buffer.enqueue(new QuantityChange(1L, true, 5));
+        buffer.enqueue(new QuantityChange(2L, true, 4));
+        buffer.enqueue(new QuantityChange(1L, true, 3));
+        buffer.flush();
+
+        assertEquals(List.of(new QuantityChange(1L, true, 3), new QuantityChange(2L, true, 4)), flushedChanges());
+    }
+
+    @Test
+    void deltasOfSameProduct_ShouldBeWrittenAsOneNetAmount() {
+        when(productRepository.updateQuantities(anyList())).thenReturn(new int[]{1});
+
+        buffer.enqueue(new QuantityChange(1L, false, -1));
+        buffer.enqueue(new QuantityChange(1L, false, -2));
+        buffer.enqueue(new QuantityChange(1L, false, 5));
+        buffer.flush();
+
+        assertEquals(List.of(new QuantityChange(1L, false, 2)), flushedChanges());
+    }
+
+    @Test
+    void deltaAfterQueuedQuantity_ShouldBeAppliedToItOrRefused() {
+        when(productRepository.updateQuantities(anyList())).thenReturn(new int[]{1});
+
+        buffer.enqueue(new QuantityChange(1L, true, 5));
+        assertTrue(buffer.enqueue(new QuantityChange(1L, false, -3)));
+        assertFalse(buffer.enqueue(new QuantityChange(1L, false, -3)));
+        buffer.flush();
+
+        assertEquals(List.of(new QuantityChange(1L, true, 2)), flushedChanges());
+    }
+
+    @Test
+    void refusedNetAmount_ShouldBeReplayedOneDeltaAtATimeAndCountRejections() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        buffer.bindTo(registry);
+        // stock of 2: the net -3 is refused, then the first two decrements fit and the third does not
+        when(productRepository.updateQuantities(List.of(new QuantityChange(1L, false, -3)))).thenReturn(new int[]{0});
+        when(productRepository.updateQuantities(List.of(new QuantityChange(1L, false, -1),
+                new QuantityChange(1L, false, -1), new QuantityChange(1L, false, -1)))).thenReturn(new int[]{1, 1, 0});
+
+        buffer.enqueue(new QuantityChange(1L, false, -1));
+        buffer.enqueue(new QuantityChange(1L, false, -1));
+        buffer.enqueue(new QuantityChange(1L, false, -1));
+        buffer.flush();
+
+        assertEquals(1.0, registry.get("products.quantity.write-behind.rejected").functionCounter().count());
+        assertEquals(0, buffer.pendingCount());
+    }
+
+    @Test
+    void failedFlush_ShouldPutDeltasBackInFrontOfNewerOnes() {
+        when(productRepository.updateQuantities(anyList()))
+                .thenThrow(new DatabaseException("down"))
+                .thenReturn(new int[]{1});
+
+        buffer.enqueue(new QuantityChange(1L, false, -2));
+        buffer.flush();
+        buffer.enqueue(new QuantityChange(1L, false, -3));
+        buffer.flush();
+
+        assertEquals(List.of(new QuantityChange(1L, false, -5)), flushedChanges());
+    }
+
+    @Test
+    void commitWithUnknownOutcome_ShouldRetrySetsButDropDeltas() {
+        when(productRepository.updateQuantities(anyList()))
+                .thenThrow(new CommitOutcomeUnknownException("commit failed", new RuntimeException()))
+                .thenReturn(new int[]{1});
+
+        buffer.enqueue(new QuantityChange(1L, true, 7));
+        buffer.enqueue(new QuantityChange(2L, false, -2));
+        buffer.flush();
+        buffer.flush();
+
+        assertEquals(List.of(new QuantityChange(1L, true, 7)), flushedChanges());
+    }
+
+    @Test
+    void reachingMaxPending_ShouldFlushImmediately() {
+        when(productRepository.updateQuantities(anyList())).thenReturn(new int[]{1, 1, 1});
+
+        buffer.enqueue(new QuantityChange(1L, true, 1));
+        buffer.enqueue(new QuantityChange(2L, true, 1));
+        verifyNoInteractions(productRepository);
+        buffer.enqueue(new QuantityChange(3L, true, 1));
+
+        verify(productRepository, times(1)).updateQuantities(anyList());
+        assertEquals(0, buffer.pendingCount());
+    }
+
+    @Test
+    void failedFlush_ShouldNotOverwriteNewerQuantities() {
+        when(productRepository.updateQuantities(anyList()))
+                .thenThrow(new DatabaseException("down"))
+                .thenReturn(new int[]{1, 1});
+
+        buffer.enqueue(new QuantityChange(1L, true, 7));
+        buffer.enqueue(new QuantityChange(2L, true, 8));
+        buffer.flush();
+        buffer.enqueue(new QuantityChange(1L, true, 9));
+        buffer.flush();
+
+        assertEquals(List.of(new QuantityChange(1L, true, 9), new QuantityChange(2L, true, 8)), flushedChanges());
+    }
+
+    @Test
+    void flush_ShouldTellListenerWhichProductsWereWritten() {
+        List<QuantityChange> written = new ArrayList<>();
+        buffer.onFlushed(written::addAll);
+        when(productRepository.updateQuantities(anyList())).thenThrow(new DatabaseException("down"));
+
+        buffer.enqueue(new QuantityChange(1L, true, 7));
+        buffer.flush();
+
+        // the failed batch may still have committed
+        assertEquals(List.of(new QuantityChange(1L, true, 7)), written);
+    }
+
+    @Test
+    void flushOfOneProduct_WhenWriteFails_ShouldThrowAndKeepItPending() {
+        when(productRepository.updateQuantities(anyList())).thenThrow(new DatabaseException("down"));
+
+        buffer.enqueue(new QuantityChange(1L, true, 7));
+        buffer.enqueue(new QuantityChange(2L, true, 8));
+
+        assertThrows(DatabaseException.class, () -> buffer.flush(1L));
+        verify(productRepository).updateQuantities(List.of(new QuantityChange(1L, true, 7)));
+        assertEquals(2, buffer.pendingCount());
+    }
+
+    @Test
+    void discard_ShouldDropPendingChanges() {
+        buffer.enqueue(new QuantityChange(1L, true, 5));
+        buffer.discard(1L);
+        buffer.flush();
+
+        verifyNoInteractions(productRepository);
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<QuantityChange> flushedChanges() {
+        ArgumentCaptor<List<QuantityChange>> captor = ArgumentCaptor.forClass(List.class);
+        verify(productRepository, atLeastOnce()).updateQuantities(captor.capture());
+        return captor.getValue();
+    }
+}
@@ -0,0 +1,177 @@
+package com.zakuwarrior.crudhttp.unit;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.zakuwarrior.crudhttp.config.ProductProperties;
+import com.zakuwarrior.crudhttp.exception.InvalidRequestException;
+import com.zakuwarrior.crudhttp.exception.VersionConflictException;
+import com.zakuwarrior.crudhttp.model.Product;
+import com.zakuwarrior.crudhttp.model.QuantityChange;
+import com.zakuwarrior.crudhttp.model.QuantityUpdate;
+import com.zakuwarrior.crudhttp.repository.ReactiveProductRepository;
+import com.zakuwarrior.crudhttp.service.ProductCopyReader;
+import com.zakuwarrior.crudhttp.service.ReactiveProductService;
+
+import jakarta.validation.Validation;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ReactiveProductServiceTest {
+
+    @Mock
+    private ReactiveProductRepository productRepository;
+
+    private ReactiveProductService productService;
+
+    @BeforeEach
+    void setup() {
+        productService = new ReactiveProductService(productRepository,
+                Validation.buildDefaultValidatorFactory().getValidator(), new ObjectMapper(), new ProductProperties());
+    }
+
+    @Test
+    void getProductsByPage_ShouldCombinePageAndCount() {
+        Product product = new Product(1L, "Laptop", "Description", 1500.0, 10, "Laptop");
+        when(productRepository.findByPage(0, 5)).thenReturn(Flux.just(product));
+        when(productRepository.countAll()).thenReturn(Mono.just(6L));
+
+        StepVerifier.create(productService.getProductsByPage(0, 5))
+                .assertNext(page -> {
+                    assertEquals(1, page.getContent().size());
+                    assertEquals(2, page.getTotalPages());
+                    assertEquals(6, page.getTotalItems());
+                })
+                .verifyComplete();
+    }
+
+    @Test
+    void getProductsAfter_ShouldSeekFromCursorWithoutCounting() {
+        Product product1 = new Product(3L, "Laptop", "Description", 1500.0, 10, "Laptop");
+        Product product2 = new Product(4L, "Phone", "Description", 999.0, 20, "Smartphone");
+        when(productRepository.findAfterId(2L, 2)).thenReturn(Flux.just(product1, product2));
+
+        // "Mg" is the cursor of id 2
+        StepVerifier.create(productService.getProductsAfter("Mg", 2, false))
+                .assertNext(page -> {
+                    assertEquals(Arrays.asList(product1, product2), page.getContent());
+                    assertEquals(-1, page.getTotalItems());
+                    assertEquals("NA", page.getNextCursor());
+                })
+                .verifyComplete();
+        verify(productRepository, never()).countAll();
+    }
+
+    @Test
+    void getProductsAfter_WhenCursorIsMalformed_ShouldFail() {
+        StepVerifier.create(productService.getProductsAfter("not a cursor", 2, false))
+                .expectError(InvalidRequestException.class)
+                .verify();
+    }
+
+    @Test
+    void searchProductsByText_WithBlankText_ShouldFail() {
+        StepVerifier.create(productService.searchProductsByText(" ", 0, 5))
+                .expectError(InvalidRequestException.class)
+                .verify();
+        verifyNoInteractions(productRepository);
+    }
+
+    @Test
+    void createProducts_ShouldInsertValidItemsAndReportInvalidOnes() {
+        Product valid = new Product(null, "Laptop", "Description", 1500.0, 10, "Laptop");
+        Product invalid = new Product(null, "", "Description", -1.0, 10, "Laptop");
+        when(productRepository.insertAll(List.of(valid))).thenReturn(Mono.just(List.of(7L)));
+
+        StepVerifier.create(productService.createProducts(Arrays.asList(valid, invalid)))
+                .assertNext(response -> {
+                    assertEquals(Arrays.asList(7L, null), response.getIds());
+                    assertTrue(response.getErrors().containsKey(1));
+                })
+                .verifyComplete();
+    }
+
+    @Test
+    void updateProducts_WithNullItem_ShouldReportItAtItsIndex() {
+        Product updated = new Product(1L, "Laptop", "Description", 1500.0, 10, "Laptop");
+        when(productRepository.updateAll(List.of(updated))).thenReturn(Mono.just(new int[]{1}));
+
+        StepVerifier.create(productService.updateProducts(Arrays.asList(null, updated)))
+                .assertNext(response -> {
+                    assertEquals(Arrays.asList(null, 1L), response.getIds());
+                    assertEquals("Product is required", response.getErrors().get(0).get("product"));
+                })
+                .verifyComplete();
+    }
+
+    @Test
+    void deleteProducts_ShouldReportIdsThatWereNotFound() {
+        when(productRepository.deleteAllById(List.of(1L, 2L))).thenReturn(Mono.just(new int[]{1, 0}));
+
+        StepVerifier.create(productService.deleteProducts(List.of(1L, 2L)))
+                .assertNext(response -> {
+                    assertEquals(Arrays.asList(1L, null), response.getIds());
+                    assertEquals("Product not found", response.getErrors().get(1).get("id"));
+                })
+                .verifyComplete();
+    }
+
+    @Test
+    void updateProduct_WhenVersionDoesNotMatch_ShouldFailWithConflict() {
+        Product product = new Product(null, "Laptop", "Description", 1500.0, 10, "Laptop");
+        when(productRepository.updateIfVersion(product, 2L)).thenReturn(Mono.just(false));
+
+        StepVerifier.create(productService.updateProduct(1L, product, 2L))
+                .expectError(VersionConflictException.class)
+                .verify();
+        verify(productRepository, never()).save(any());
+    }
+
+    @Test
+    void updateQuantity_ShouldApplyTheChangeRightAway() {
+        when(productRepository.updateQuantity(new QuantityChange(1L, false, -2))).thenReturn(Mono.just(true));
+
+        StepVerifier.create(productService.updateQuantity(1L, new QuantityUpdate(-2, null)))
+                .expectNext(true)
+                .verifyComplete();
+    }
+
+    @Test
+    void importProducts_ShouldCopyValidRowsAndReportRejectedOnes() {
+        String csv = "name,description,price,quantity,category\n"
+                + "Laptop,Fast,1500.0,10,Laptop\n"
+                + ",Nameless,10.0,1,Laptop\n";
+        DataBuffer buffer = DefaultDataBufferFactory.sharedInstance.wrap(csv.getBytes(StandardCharsets.UTF_8));
+        StringBuilder copied = new StringBuilder();
+        when(productRepository.copyFrom(any())).thenAnswer(invocation -> {
+            Flux<String> rows = invocation.getArgument(0);
+            return rows.doOnNext(copied::append).count();
+        });
+
+        StepVerifier.create(productService.importProducts(Flux.just(buffer), StandardCharsets.UTF_8,
+                        ProductCopyReader.Format.CSV))
+                .assertNext(response -> {
+                    assertEquals(1, response.getRejected());
+                    assertTrue(response.getErrors().containsKey(3L));
+                })
+                .verifyComplete();
+        assertTrue(copied.toString().startsWith("Laptop\tFast\t1500.0\t10\tLaptop"));
+    }
+}
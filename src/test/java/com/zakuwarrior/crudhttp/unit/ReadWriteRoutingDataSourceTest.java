@@ -0,0 +1,96 @@
+package com.zakuwarrior.crudhttp.unit;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import com.zakuwarrior.crudhttp.config.ReadWriteRoutingDataSource;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ReadWriteRoutingDataSourceTest {
+
+    @Mock
+    private DataSource primary;
+
+    @Mock
+    private DataSource replica;
+
+    @Mock
+    private Connection primaryConnection;
+
+    @Mock
+    private Connection replicaConnection;
+
+    private ReadWriteRoutingDataSource routingDataSource;
+
+    @BeforeEach
+    void setup() {
+        routingDataSource = new ReadWriteRoutingDataSource(primary, replica, Duration.ofSeconds(1), Duration.ofSeconds(2));
+        routingDataSource.afterPropertiesSet();
+    }
+
+    @Test
+    void read_BeforeLagIsMeasured_ShouldGoToPrimary() throws SQLException {
+        when(primary.getConnection()).thenReturn(primaryConnection);
+
+        assertSame(primaryConnection, ReadWriteRoutingDataSource.getReplicaConnection(
+                routingDataSource, ReadWriteRoutingDataSource.NEVER));
+    }
+
+    @Test
+    void read_WhenLagExceedsMaxStaleness_ShouldGoToPrimary() throws SQLException {
+        when(primary.getConnection()).thenReturn(primaryConnection);
+        routingDataSource.replicaLagMeasured(System.nanoTime(), Duration.ofSeconds(3));
+
+        assertSame(primaryConnection, ReadWriteRoutingDataSource.getReplicaConnection(
+                routingDataSource, ReadWriteRoutingDataSource.NEVER));
+    }
+
+    @Test
+    void read_OfWriteReplayedByLastMeasurement_ShouldGoToReplica() throws SQLException {
+        when(replica.getConnection()).thenReturn(replicaConnection);
+        long writtenAt = System.nanoTime();
+        routingDataSource.replicaLagMeasured(writtenAt + Duration.ofMillis(300).toNanos(), Duration.ofMillis(200));
+
+        assertSame(replicaConnection, ReadWriteRoutingDataSource.getReplicaConnection(routingDataSource, writtenAt));
+    }
+
+    @Test
+    void read_OfWriteNewerThanReplicaCouldHaveReplayed_ShouldGoToPrimary() throws SQLException {
+        when(primary.getConnection()).thenReturn(primaryConnection);
+        long writtenAt = System.nanoTime();
+        routingDataSource.replicaLagMeasured(writtenAt + Duration.ofMillis(100).toNanos(), Duration.ofMillis(200));
+
+        assertSame(primaryConnection, ReadWriteRoutingDataSource.getReplicaConnection(routingDataSource, writtenAt));
+    }
+
+    @Test
+    void read_WhenMeasurementIsOutdated_ShouldGoToPrimary() throws SQLException {
+        when(primary.getConnection()).thenReturn(primaryConnection);
+        routingDataSource.replicaLagMeasured(System.nanoTime() - Duration.ofSeconds(3).toNanos(), Duration.ZERO);
+
+        assertSame(primaryConnection, ReadWriteRoutingDataSource.getReplicaConnection(
+                routingDataSource, ReadWriteRoutingDataSource.NEVER));
+    }
+
+    @Test
+    void read_AfterFailedMeasurement_ShouldGoToPrimary() throws SQLException {
+        when(primary.getConnection()).thenReturn(primaryConnection);
+        routingDataSource.replicaLagMeasured(System.nanoTime(), Duration.ZERO);
+        routingDataSource.replicaLagUnknown();
+
+        assertSame(primaryConnection, ReadWriteRoutingDataSource.getReplicaConnection(
+                routingDataSource, ReadWriteRoutingDataSource.NEVER));
+    }
+}
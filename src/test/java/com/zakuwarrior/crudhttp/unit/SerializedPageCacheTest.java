@@ -0,0 +1,112 @@
+package com.zakuwarrior.crudhttp.unit;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.accept.ContentNegotiationManager;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerAdapter;
+
+import com.zakuwarrior.crudhttp.config.ProductProperties;
+import com.zakuwarrior.crudhttp.controller.SerializedPageCache;
+import com.zakuwarrior.crudhttp.model.PageResponse;
+import com.zakuwarrior.crudhttp.model.Product;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class SerializedPageCacheTest {
+
+    @Mock
+    private ObjectProvider<RequestMappingHandlerAdapter> handlerAdapterProvider;
+
+    private SerializedPageCache pageCache;
+    private final AtomicInteger loads = new AtomicInteger();
+
+    @BeforeEach
+    void setup() {
+        RequestMappingHandlerAdapter handlerAdapter = new RequestMappingHandlerAdapter();
+        handlerAdapter.setMessageConverters(List.of(
+                new MappingJackson2HttpMessageConverter(), new MappingJackson2CborHttpMessageConverter()));
+        lenient().when(handlerAdapterProvider.getObject()).thenReturn(handlerAdapter);
+        pageCache = new SerializedPageCache(new ProductProperties(), handlerAdapterProvider, new ContentNegotiationManager());
+    }
+
+    @Test
+    void negotiate_ShouldPreferJsonForWildcardAndHonourBinaryFormats() {
+        assertEquals(MediaType.APPLICATION_JSON, pageCache.negotiate(requestAccepting("*/*")));
+        assertEquals(MediaType.APPLICATION_CBOR, pageCache.negotiate(requestAccepting("application/cbor")));
+        assertNull(pageCache.negotiate(requestAccepting("application/x-ndjson")));
+    }
+
+    @Test
+    void get_ShouldEncodeOncePerGeneration() {
+        SerializedPageCache.Entry first = pageCache.get(0, 20, MediaType.APPLICATION_JSON, 0, this::loadPage);
+        SerializedPageCache.Entry second = pageCache.get(0, 20, MediaType.APPLICATION_JSON, 0, this::loadPage);
+        pageCache.get(0, 20, MediaType.APPLICATION_JSON, 1, this::loadPage);
+
+        assertSame(first, second);
+        assertEquals(2, loads.get());
+        verify(handlerAdapterProvider, times(2)).getObject();
+    }
+
+    @Test
+    void get_ShouldKeepGzipCopyOfLargeBodies() throws IOException {
+        SerializedPageCache.Entry entry = pageCache.get(0, 20, MediaType.APPLICATION_JSON, 0, this::loadPage);
+
+        assertNotNull(entry.gzipBody());
+        assertTrue(entry.gzipBody().length < entry.body().length);
+        try (GZIPInputStream gzipStream = new GZIPInputStream(new ByteArrayInputStream(entry.gzipBody()))) {
+            assertArrayEquals(entry.body(), gzipStream.readAllBytes());
+        }
+    }
+
+    @Test
+    void get_ShouldTagEachFormatDifferently() {
+        SerializedPageCache.Entry json = pageCache.get(0, 20, MediaType.APPLICATION_JSON, 0, this::loadPage);
+        SerializedPageCache.Entry cbor = pageCache.get(0, 20, MediaType.APPLICATION_CBOR, 0, this::loadPage);
+
+        assertNotEquals(json.eTag(), cbor.eTag());
+        assertFalse(json.eTag().startsWith("W/"));
+        assertTrue(SerializedPageCache.weakPageETag(loadPage()).startsWith("W/\""));
+    }
+
+    @Test
+    void covers_ShouldOnlyIncludeFirstPagesOfCommonSizes() {
+        assertTrue(pageCache.covers(0, 20));
+        assertFalse(pageCache.covers(5, 20));
+        assertFalse(pageCache.covers(0, 1000));
+    }
+
+    private PageResponse<Product> loadPage() {
+        loads.incrementAndGet();
+        List<Product> products = new ArrayList<>();
+        for (long id = 1; id <= 20; id++) {
+            products.add(new Product(id, "Product " + id, "Description of product " + id, 9.99, 1, "Laptop"));
+        }
+        return new PageResponse<>(products, 0, 1, 20, 20);
+    }
+
+    private static ServletWebRequest requestAccepting(String accept) {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader("Accept", accept);
+        return new ServletWebRequest(request);
+    }
+}
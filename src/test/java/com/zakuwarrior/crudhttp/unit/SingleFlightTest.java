@@ -0,0 +1,105 @@
+package com.zakuwarrior.crudhttp.unit;
+
+import org.junit.jupiter.api.Test;
+
+import com.zakuwarrior.crudhttp.exception.DatabaseException;
+import com.zakuwarrior.crudhttp.service.SingleFlight;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SingleFlightTest {
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    @Test
+    void concurrentCalls_ShouldShareOneLoad() throws Exception {
+        SingleFlight<Long, String> flight = new SingleFlight<>("findById", Duration.ofSeconds(5), registry);
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger loads = new AtomicInteger();
+
+        CompletableFuture<String> leader = CompletableFuture.supplyAsync(() -> flight.execute(1L, () -> {
+            loads.incrementAndGet();
+            loading.countDown();
+            await(release);
+            return "product";
+        }));
+        assertTrue(loading.await(5, TimeUnit.SECONDS));
+        CompletableFuture<String> follower = CompletableFuture.supplyAsync(() -> flight.execute(1L, () -> {
+            loads.incrementAndGet();
+            return "other";
+        }));
+        waitForCoalesced(1);
+        release.countDown();
+
+        assertEquals("product", leader.get(5, TimeUnit.SECONDS));
+        assertEquals("product", follower.get(5, TimeUnit.SECONDS));
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void failedLoad_ShouldPropagateToWaitingCallers() throws Exception {
+        SingleFlight<Long, String> flight = new SingleFlight<>("findById", Duration.ofSeconds(5), registry);
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        CompletableFuture<String> leader = CompletableFuture.supplyAsync(() -> flight.execute(1L, () -> {
+            loading.countDown();
+            await(release);
+            throw new DatabaseException("Failed to fetch a product");
+        }));
+        assertTrue(loading.await(5, TimeUnit.SECONDS));
+        CompletableFuture<String> follower = CompletableFuture.supplyAsync(() -> flight.execute(1L, () -> "other"));
+        waitForCoalesced(1);
+        release.countDown();
+
+        ExecutionException leaderError = assertThrows(ExecutionException.class, () -> leader.get(5, TimeUnit.SECONDS));
+        ExecutionException followerError = assertThrows(ExecutionException.class, () -> follower.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(DatabaseException.class, leaderError.getCause());
+        assertSame(leaderError.getCause(), followerError.getCause());
+        assertEquals("fresh", flight.execute(1L, () -> "fresh"));
+    }
+
+    @Test
+    void slowLoad_ShouldTimeOutWaitingCallers() throws Exception {
+        SingleFlight<Long, String> flight = new SingleFlight<>("findById", Duration.ofMillis(50), registry);
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        CompletableFuture<String> leader = CompletableFuture.supplyAsync(() -> flight.execute(1L, () -> {
+            loading.countDown();
+            await(release);
+            return "product";
+        }));
+        assertTrue(loading.await(5, TimeUnit.SECONDS));
+
+        assertThrows(DatabaseException.class, () -> flight.execute(1L, () -> "other"));
+        release.countDown();
+        assertEquals("product", leader.get(5, TimeUnit.SECONDS));
+        assertEquals(1.0, registry.get("products.single-flight.timeouts").counter().count());
+    }
+
+    private void waitForCoalesced(int expected) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (registry.get("products.single-flight.coalesced").counter().count() < expected) {
+            assertTrue(System.nanoTime() < deadline, "caller never joined the running load");
+            Thread.sleep(5);
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}